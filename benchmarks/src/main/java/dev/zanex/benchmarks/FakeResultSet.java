@@ -0,0 +1,43 @@
+package dev.zanex.benchmarks;
+
+import org.h2.tools.SimpleResultSet;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * In-memory result set with the typed getObject() the mappers use for dates, which the H2 base class lacks.
+ * Like Connector/J it hands out a new metadata object on every getMetaData() call, the H2 base class
+ * returns itself and would hide mappers that cache by metadata identity.
+ */
+class FakeResultSet extends SimpleResultSet {
+    @Override
+    public ResultSetMetaData getMetaData() {
+        return (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    try {
+                        return method.invoke(this, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (type == LocalDate.class && value instanceof Date date) {
+            return type.cast(date.toLocalDate());
+        }
+        return type.cast(value);
+    }
+
+    @Override
+    public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+        return getObject(findColumn(columnLabel), type);
+    }
+}
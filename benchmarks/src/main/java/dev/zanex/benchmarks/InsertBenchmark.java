@@ -0,0 +1,81 @@
+package dev.zanex.benchmarks;
+
+import dev.zanex.utils.MySQLHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts the same rows one statement at a time and as one batch through MySQLHandler, against an
+ * in-memory H2 database in MySQL mode. H2 has no network round-trip, so against a real MySQL server
+ * the difference is larger; this tracks the overhead on our side of the driver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InsertBenchmark {
+    private static final int ROWS = 1000;
+    private static final String INSERT = "INSERT INTO transactions (category_id, amount, description, transaction_date) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private MySQLHandler dbHandler;
+    private List<Object[]> rows;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dbHandler = MySQLHandler.forUrl("jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        dbHandler.executeUpdate("CREATE TABLE transactions (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "category_id INT NOT NULL, " +
+                "amount DECIMAL(10, 2) NOT NULL, " +
+                "description VARCHAR(255), " +
+                "transaction_date DATE NOT NULL)");
+
+        rows = new ArrayList<>(ROWS);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{i % 3 + 1, BigDecimal.valueOf(i * 137L % 100_000, 2), "Buchung " + i, start.plusDays(i % 365)});
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        dbHandler.executeUpdate("TRUNCATE TABLE transactions");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        dbHandler.executeUpdate("DROP TABLE transactions");
+        dbHandler.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int singleInserts() throws SQLException {
+        int inserted = 0;
+        for (Object[] row : rows) {
+            inserted += dbHandler.executeUpdate(INSERT, row);
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] batchInsert() throws SQLException {
+        return dbHandler.executeBatch(INSERT, rows);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] batchInsertReturningKeys() throws SQLException {
+        return dbHandler.executeBatchReturningKeys(INSERT, rows);
+    }
+}
@@ -0,0 +1,70 @@
+package dev.zanex.benchmarks;
+
+import dev.zanex.utils.OutputHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Color code replacement and table printing, with System.out discarded so the console is not measured
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OutputHandlerBenchmark {
+    private static final String COLORED = "&b(i) &a» &fTransaction &e4711 &fupdated, amount &c-12,34 € &7(Lebensmittel)&r";
+    private static final String PLAIN = "Transaction 4711 updated, amount -12,34 € (Lebensmittel)";
+
+    private final OutputHandler outputHandler = new OutputHandler();
+    private final StringBuilder line = new StringBuilder(256);
+    private final List<String> tableLines = new ArrayList<>();
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < 20; i++) {
+            tableLines.add("&7Spalte &b" + i + "&7: &fVARCHAR(255) &8NULL");
+        }
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public StringBuilder appendColored() {
+        line.setLength(0);
+        return OutputHandler.appendColored(COLORED, line);
+    }
+
+    @Benchmark
+    public StringBuilder appendStripped() {
+        line.setLength(0);
+        return OutputHandler.appendStripped(COLORED, line);
+    }
+
+    @Benchmark
+    public void printlnColored() {
+        outputHandler.println(COLORED);
+    }
+
+    @Benchmark
+    public void printlnPlain() {
+        outputHandler.println(PLAIN);
+    }
+
+    @Benchmark
+    public void printTable() {
+        outputHandler.printTable("transactions", tableLines);
+    }
+}
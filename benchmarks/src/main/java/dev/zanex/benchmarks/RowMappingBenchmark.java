@@ -0,0 +1,86 @@
+package dev.zanex.benchmarks;
+
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.Transaction;
+import dev.zanex.mvc.model.TransactionRowMapper;
+import dev.zanex.mvc.model.TransactionType;
+import dev.zanex.utils.RowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps rows of an in-memory result set, so only the mapper is measured and not the driver.
+ * byLabel is the previous approach of looking every column up by name for every row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMappingBenchmark {
+    private static final int ROWS = 1000;
+
+    private FakeResultSet resultSet;
+    private CategoryRegistry categories;
+    private TransactionRowMapper mapper;
+
+    @Setup
+    public void setUp() {
+        // Seeded categories are used until invalidate(), which is never called here, so no store is needed
+        categories = new CategoryRegistry(null);
+        categories.seed(List.of(
+                new Category(1, "Gehalt", TransactionType.INCOME),
+                new Category(2, "Miete", TransactionType.EXPENSE),
+                new Category(3, "Lebensmittel", TransactionType.EXPENSE)));
+        mapper = new TransactionRowMapper(categories);
+
+        resultSet = new FakeResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("transaction_date", Types.DATE, 10, 0);
+        resultSet.addColumn("description", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("amount", Types.DECIMAL, 10, 2);
+        resultSet.addColumn("category_id", Types.INTEGER, 10, 0);
+
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < ROWS; i++) {
+            resultSet.addRow(i + 1, java.sql.Date.valueOf(start.plusDays(i % 365)), "Buchung " + i,
+                    BigDecimal.valueOf(i * 137L % 100_000, 2), i % 3 + 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void compiledMapper(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        RowMapper<Transaction> rows = mapper.bind(resultSet.getMetaData());
+        while (resultSet.next()) {
+            blackhole.consume(rows.mapRow(resultSet));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void byLabel(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            Transaction transaction = new Transaction();
+            transaction.setId(resultSet.getInt("id"));
+            transaction.setType(categories.getType(resultSet.getInt("category_id")));
+            transaction.setAmount(Money.of(resultSet.getBigDecimal("amount")));
+            transaction.setDescription(resultSet.getString("description"));
+            transaction.setDate(resultSet.getObject("transaction_date", LocalDate.class));
+            blackhole.consume(transaction);
+        }
+    }
+}
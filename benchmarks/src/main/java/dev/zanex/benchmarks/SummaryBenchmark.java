@@ -0,0 +1,85 @@
+package dev.zanex.benchmarks;
+
+import dev.zanex.mvc.controller.SummaryService;
+import dev.zanex.mvc.model.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Income and expense totals of a date range from the daily totals, compared with summing the
+ * individual transactions like the database fallback does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SummaryBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final int DAYS = 10 * 365;
+
+    @Param({"100000"})
+    private int transactions;
+
+    private SummaryService summary;
+    private long[] epochDays;
+    private long[] cents;
+    private boolean[] income;
+    private LocalDate monthFrom;
+    private LocalDate monthTo;
+
+    @Setup
+    public void setUp() {
+        summary = new SummaryService();
+        epochDays = new long[transactions];
+        cents = new long[transactions];
+        income = new boolean[transactions];
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < transactions; i++) {
+            LocalDate date = FIRST_DAY.plusDays(random.nextInt(DAYS));
+            epochDays[i] = date.toEpochDay();
+            cents[i] = random.nextLong(1, 500_000);
+            income[i] = random.nextInt(4) == 0;
+            summary.add(income[i] ? TransactionType.INCOME : TransactionType.EXPENSE, date, cents[i]);
+        }
+
+        monthFrom = FIRST_DAY.plusYears(5).withDayOfMonth(1);
+        monthTo = monthFrom.plusMonths(1).minusDays(1);
+    }
+
+    @Benchmark
+    public long dailyTotalsMonth() {
+        return summary.sum(TransactionType.INCOME, monthFrom, monthTo)
+                - summary.sum(TransactionType.EXPENSE, monthFrom, monthTo);
+    }
+
+    @Benchmark
+    public long dailyTotalsAll() {
+        LocalDate last = FIRST_DAY.plusDays(DAYS);
+        return summary.sum(TransactionType.INCOME, FIRST_DAY, last)
+                - summary.sum(TransactionType.EXPENSE, FIRST_DAY, last);
+    }
+
+    @Benchmark
+    public long scanMonth() {
+        long from = monthFrom.toEpochDay();
+        long to = monthTo.toEpochDay();
+        long balance = 0;
+        for (int i = 0; i < epochDays.length; i++) {
+            if (epochDays[i] >= from && epochDays[i] <= to) {
+                balance += income[i] ? cents[i] : -cents[i];
+            }
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public void addTransaction() {
+        summary.add(TransactionType.EXPENSE, monthFrom, 1);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.zanex.benchmarks;
+
+import dev.zanex.mvc.controller.AppController;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.TransactionFilter;
+import dev.zanex.mvc.model.TransactionType;
+import dev.zanex.mvc.view.CurrencyCellRenderer;
+import dev.zanex.mvc.view.DateCellRenderer;
+import dev.zanex.mvc.view.TransactionTableModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.JTable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads every cell of one loaded page through the table model and renders the date and amount cells,
+ * which is what the table does for each visible row while scrolling
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class TableRenderingBenchmark {
+    // One page, so the model never asks the controller for more rows
+    private static final int ROWS = 100;
+
+    private TransactionTableModel model;
+    private JTable table;
+    private DateCellRenderer dateRenderer;
+    private CurrencyCellRenderer currencyRenderer;
+
+    @Setup
+    public void setUp() {
+        List<AppController.Transaction> rows = new ArrayList<>();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < ROWS; i++) {
+            boolean income = i % 5 == 0;
+            rows.add(new AppController.Transaction(i + 1, start.plusDays(i), "Buchung " + i,
+                    Money.ofCents(income ? 250_000 : -(i * 1_337L)), income ? "Gehalt" : "Lebensmittel",
+                    income ? TransactionType.INCOME : TransactionType.EXPENSE));
+        }
+
+        model = new TransactionTableModel(null);
+        model.setRange(TransactionFilter.range(start, start.plusDays(ROWS)), ROWS, rows, TransactionTableModel.NO_WATERMARK);
+        table = new JTable(model);
+        dateRenderer = new DateCellRenderer();
+        currencyRenderer = new CurrencyCellRenderer();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void getValueAt(Blackhole blackhole) {
+        int columns = model.getColumnCount();
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < columns; column++) {
+                blackhole.consume(model.getValueAt(row, column));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void renderDate(Blackhole blackhole) {
+        for (int row = 0; row < ROWS; row++) {
+            blackhole.consume(dateRenderer.getTableCellRendererComponent(table, model.getValueAt(row, 1), false, false, row, 1));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void renderCurrency(Blackhole blackhole) {
+        for (int row = 0; row < ROWS; row++) {
+            blackhole.consume(currencyRenderer.getTableCellRendererComponent(table, model.getValueAt(row, 3), false, false, row, 3));
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package dev.zanex;
+
+import dev.zanex.mvc.model.TransactionType;
+import dev.zanex.utils.Logger;
+import dev.zanex.utils.MigrationRunner;
+import dev.zanex.utils.MySQLHandler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates a synthetic ledger for load tests. The same seed and options always produce the same
+ * categories and transactions: dates are spread over the range with fewer entries on weekends,
+ * categories are picked by how often they typically occur, and amounts follow a log-normal
+ * distribution around a typical amount per category.
+ * <p>
+ * Rows are written directly to the database in parallel batches, or streamed to an SQL script or
+ * to a CSV file in the format the CSV import reads by default.
+ * <pre>
+ * java -cp app.jar dev.zanex.LedgerGenerator --transactions 10000000 --output csv --file ledger.csv
+ * </pre>
+ */
+public class LedgerGenerator {
+    private static final String USAGE = """
+            Usage: LedgerGenerator [options]
+              --seed <n>            Random seed (default 42)
+              --categories <n>      Number of categories (default 20)
+              --transactions <n>    Number of transactions (default 1000000)
+              --from <yyyy-MM-dd>   First transaction date (default 2015-01-01)
+              --to <yyyy-MM-dd>     Last transaction date (default 2024-12-31)
+              --output db|sql|csv   Write to the database, an SQL script or a CSV file (default db)
+              --file <path>         Target file for sql and csv
+              --host, --port, --database, --user, --password
+                                    MySQL connection (default localhost 3306 buchhaltung root root)
+              --url <jdbc url>      Any JDBC url instead of the MySQL connection options
+              --threads <n>         Parallel insert connections for db, 1 to 8 (default 4)""";
+
+    private static final int DB_BATCH_SIZE = 10_000;
+    private static final int MAX_THREADS = 8;
+    private static final int SQL_ROWS_PER_INSERT = 1000;
+    private static final int SQL_INSERTS_PER_COMMIT = 100;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final long PROGRESS_INTERVAL = 1_000_000;
+    private static final long MAX_CENTS = 99_999_999_99L; // DECIMAL(10,2)
+
+    // Typical categories of a private ledger. Weight is the relative number of transactions,
+    // median and spread describe the log-normal distribution of the amounts.
+    private static final List<CategoryProfile> PROFILES = List.of(
+            new CategoryProfile("Gehalt", TransactionType.INCOME, 2, 320_000, 0.15,
+                    "Gehalt Muster GmbH", "Lohn Muster GmbH"),
+            new CategoryProfile("Lebensmittel", TransactionType.EXPENSE, 30, 3_500, 0.8,
+                    "REWE Markt", "EDEKA", "ALDI SUED", "LIDL", "Netto Marken-Discount"),
+            new CategoryProfile("Miete", TransactionType.EXPENSE, 2, 95_000, 0.1,
+                    "Miete Wohnung", "Hausverwaltung Schmidt"),
+            new CategoryProfile("Restaurant", TransactionType.EXPENSE, 10, 2_800, 0.6,
+                    "Pizzeria Da Mario", "Cafe Central", "Burger King", "Sushi Bar"),
+            new CategoryProfile("Nebeneinkünfte", TransactionType.INCOME, 3, 25_000, 0.7,
+                    "Honorar", "Nebenjob", "Verkauf Kleinanzeigen"),
+            new CategoryProfile("Tanken", TransactionType.EXPENSE, 8, 6_500, 0.3,
+                    "ARAL Tankstelle", "Shell", "JET Tankstelle"),
+            new CategoryProfile("Strom und Gas", TransactionType.EXPENSE, 2, 11_000, 0.2,
+                    "Stadtwerke Abschlag", "Vattenfall"),
+            new CategoryProfile("Zinsen", TransactionType.INCOME, 1, 1_200, 1.0,
+                    "Zinsgutschrift", "Dividende"),
+            new CategoryProfile("Versicherung", TransactionType.EXPENSE, 2, 8_000, 0.6,
+                    "Haftpflicht", "Kfz-Versicherung", "Hausrat"),
+            new CategoryProfile("Online-Shopping", TransactionType.EXPENSE, 8, 4_500, 1.0,
+                    "Amazon", "Zalando", "Otto", "eBay"),
+            new CategoryProfile("Erstattungen", TransactionType.INCOME, 2, 4_000, 0.9,
+                    "Rückerstattung", "Erstattung Krankenkasse", "Steuererstattung"),
+            new CategoryProfile("Mobilität", TransactionType.EXPENSE, 6, 900, 0.8,
+                    "DB Fernverkehr", "MVG Ticket", "Taxi"),
+            new CategoryProfile("Freizeit", TransactionType.EXPENSE, 5, 3_000, 0.9,
+                    "Kino", "Fitnessstudio", "Konzertkasse"),
+            new CategoryProfile("Gesundheit", TransactionType.EXPENSE, 3, 2_500, 0.9,
+                    "Apotheke", "Zahnarzt", "Optiker"),
+            new CategoryProfile("Kommunikation", TransactionType.EXPENSE, 2, 3_500, 0.3,
+                    "Telekom", "Vodafone", "Netflix", "Spotify"),
+            new CategoryProfile("Haushalt", TransactionType.EXPENSE, 5, 2_000, 0.9,
+                    "dm-drogerie markt", "Rossmann", "IKEA", "OBI Baumarkt"),
+            new CategoryProfile("Bildung", TransactionType.EXPENSE, 1, 6_000, 0.8,
+                    "Buchhandlung", "Volkshochschule", "Udemy"),
+            new CategoryProfile("Geschenke", TransactionType.EXPENSE, 2, 4_000, 0.8,
+                    "Geschenk", "Blumenladen"),
+            new CategoryProfile("Spenden", TransactionType.EXPENSE, 1, 3_000, 0.7,
+                    "Spende"),
+            new CategoryProfile("Sonstiges", TransactionType.EXPENSE, 3, 2_000, 1.2,
+                    "Bargeldabhebung", "Überweisung", "Lastschrift"));
+
+    public static void main(String[] args) {
+        Logger logger = Main.startLogger();
+        int exitCode = 0;
+
+        try {
+            Map<String, String> options = parseOptions(args);
+            if (options.containsKey("help")) {
+                System.out.println(USAGE);
+                return;
+            }
+            new LedgerGenerator().run(options);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            logger.log("ERROR", e.getMessage());
+            System.out.println(USAGE);
+            exitCode = 2;
+        } catch (IOException | SQLException e) {
+            logger.log("ERROR", "Ledger generation failed: " + e.getMessage());
+            exitCode = 1;
+        } finally {
+            logger.close();
+        }
+
+        System.exit(exitCode);
+    }
+
+    private void run(Map<String, String> options) throws IOException, SQLException {
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int categoryCount = Integer.parseInt(options.getOrDefault("categories", "20"));
+        long transactionCount = Long.parseLong(options.getOrDefault("transactions", "1000000"));
+        LocalDate from = LocalDate.parse(options.getOrDefault("from", "2015-01-01"));
+        LocalDate to = LocalDate.parse(options.getOrDefault("to", "2024-12-31"));
+        String output = options.getOrDefault("output", "db");
+
+        if (categoryCount < 2) {
+            throw new IllegalArgumentException("At least 2 categories are needed, one for income and one for expenses");
+        }
+        if (transactionCount < 0) {
+            throw new IllegalArgumentException("Number of transactions must not be negative");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("--from must not be after --to");
+        }
+
+        List<CategoryProfile> categories = categories(categoryCount);
+        RowGenerator rows = new RowGenerator(seed, categories, from, to);
+
+        long start = System.nanoTime();
+        try (Sink sink = openSink(output, options, from, to)) {
+            sink.begin(categories);
+            for (long i = 1; i <= transactionCount; i++) {
+                rows.next();
+                sink.accept(rows);
+                if (i % PROGRESS_INTERVAL == 0) {
+                    long row = i;
+                    Main.getLogger().log("INFO", () -> row + " of " + transactionCount + " transactions generated");
+                }
+            }
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Main.getLogger().log("SUCCESS", () -> "Generated " + categoryCount + " categories and " + transactionCount
+                + " transactions in " + millis + " ms (" + transactionCount * 1000 / Math.max(1, millis) + " rows/s)");
+    }
+
+    private static Sink openSink(String output, Map<String, String> options, LocalDate from, LocalDate to)
+            throws IOException, SQLException {
+        switch (output) {
+            case "db" -> {
+                int threads = Math.clamp(Integer.parseInt(options.getOrDefault("threads", "4")), 1, MAX_THREADS);
+                MySQLHandler dbHandler = options.containsKey("url")
+                        ? MySQLHandler.forUrl(options.get("url"), options.getOrDefault("user", "root"),
+                        options.getOrDefault("password", "root"))
+                        : new MySQLHandler(options.getOrDefault("host", "localhost"),
+                        Integer.parseInt(options.getOrDefault("port", "3306")),
+                        options.getOrDefault("database", "buchhaltung"),
+                        options.getOrDefault("user", "root"), options.getOrDefault("password", "root"),
+                        1, threads);
+                return new DatabaseSink(dbHandler, threads, from, to);
+            }
+            case "sql" -> {
+                return new SqlSink(requireFile(options), from, to);
+            }
+            case "csv" -> {
+                return new CsvSink(requireFile(options), from, to);
+            }
+            default -> throw new IllegalArgumentException("Unknown output '" + output + "', use db, sql or csv");
+        }
+    }
+
+    private static Path requireFile(Map<String, String> options) {
+        String file = options.get("file");
+        if (file == null) {
+            throw new IllegalArgumentException("--file is required for sql and csv output");
+        }
+        return Path.of(file);
+    }
+
+    // Takes the first profiles, further categories reuse the profiles with a number appended
+    private static List<CategoryProfile> categories(int count) {
+        List<CategoryProfile> categories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CategoryProfile profile = PROFILES.get(i % PROFILES.size());
+            int round = i / PROFILES.size();
+            categories.add(round == 0 ? profile : profile.withName(profile.name() + " " + (round + 1)));
+        }
+        return categories;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--help") || args[i].equals("-h")) {
+                options.put("help", "");
+            } else if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unexpected argument '" + args[i] + "'");
+            }
+        }
+        return options;
+    }
+
+    // Formats cents as 1234.56 or 1234,56 without going through BigDecimal
+    private static void appendAmount(StringBuilder out, long cents, char decimalSeparator) {
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        out.append(cents / 100).append(decimalSeparator);
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static String[] formatDays(LocalDate from, LocalDate to, DateTimeFormatter format) {
+        String[] days = new String[(int) (to.toEpochDay() - from.toEpochDay() + 1)];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = format.format(from.plusDays(i));
+        }
+        return days;
+    }
+
+    private record CategoryProfile(String name, TransactionType type, double weight, long medianCents,
+                                   double spread, String... merchants) {
+        private CategoryProfile withName(String name) {
+            return new CategoryProfile(name, type, weight, medianCents, spread, merchants);
+        }
+    }
+
+    /**
+     * Produces the rows one after another into its own fields, so generating a row allocates nothing
+     */
+    private static final class RowGenerator {
+        private final SplittableRandom random;
+        private final List<CategoryProfile> categories;
+        private final double[] cumulativeWeights;
+        private final double[] logMedians;
+        private final LocalDate from;
+        private final int days;
+
+        private int category;
+        private int day;
+        private long cents;
+        private final StringBuilder description = new StringBuilder(64);
+
+        private RowGenerator(long seed, List<CategoryProfile> categories, LocalDate from, LocalDate to) {
+            this.random = new SplittableRandom(seed);
+            this.categories = categories;
+            this.from = from;
+            this.days = (int) (to.toEpochDay() - from.toEpochDay() + 1);
+
+            cumulativeWeights = new double[categories.size()];
+            logMedians = new double[categories.size()];
+            double total = 0;
+            for (int i = 0; i < categories.size(); i++) {
+                total += categories.get(i).weight();
+                cumulativeWeights[i] = total;
+                logMedians[i] = Math.log(categories.get(i).medianCents());
+            }
+        }
+
+        private void next() {
+            category = pickCategory();
+            CategoryProfile profile = categories.get(category);
+
+            // Two thirds of weekend days are moved to a random other day
+            day = random.nextInt(days);
+            DayOfWeek weekday = from.plusDays(day).getDayOfWeek();
+            if ((weekday == DayOfWeek.SATURDAY || weekday == DayOfWeek.SUNDAY) && random.nextInt(3) != 0) {
+                day = random.nextInt(days);
+            }
+
+            double logAmount = logMedians[category] + profile.spread() * random.nextGaussian();
+            cents = Math.clamp(Math.round(Math.exp(logAmount)), 1, MAX_CENTS);
+
+            description.setLength(0);
+            description.append(profile.merchants()[random.nextInt(profile.merchants().length)])
+                    .append(' ')
+                    .append(1000 + random.nextInt(9000));
+        }
+
+        private int pickCategory() {
+            double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+            int low = 0;
+            int high = cumulativeWeights.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulativeWeights[middle] <= target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private TransactionType type() {
+            return categories.get(category).type();
+        }
+    }
+
+    private interface Sink extends AutoCloseable {
+        void begin(List<CategoryProfile> categories) throws IOException, SQLException;
+
+        void accept(RowGenerator row) throws IOException, SQLException;
+
+        @Override
+        void close() throws IOException, SQLException;
+    }
+
+    /**
+     * Inserts batches on several pooled connections while the next batch is generated
+     */
+    private static final class DatabaseSink implements Sink {
+        private static final String INSERT_CATEGORY = "INSERT INTO categories (name, type) VALUES (?, ?)";
+        private static final String INSERT_TRANSACTION = "INSERT INTO transactions (category_id, amount, description, transaction_date) " +
+                "VALUES (?, ?, ?, ?)";
+
+        private final MySQLHandler dbHandler;
+        private final ExecutorService writers;
+        private final Semaphore inFlight;
+        private final AtomicReference<SQLException> failure = new AtomicReference<>();
+        private boolean failureThrown = false;
+        private final LocalDate[] dates;
+        private int[] categoryIds;
+        private List<Object[]> batch = new ArrayList<>(DB_BATCH_SIZE);
+
+        private DatabaseSink(MySQLHandler dbHandler, int threads, LocalDate from, LocalDate to) {
+            this.dbHandler = dbHandler;
+            this.writers = Executors.newFixedThreadPool(threads);
+            // One batch per writer plus one waiting, so generation stays just ahead of the inserts
+            this.inFlight = new Semaphore(threads * 2);
+            this.dates = from.datesUntil(to.plusDays(1)).toArray(LocalDate[]::new);
+        }
+
+        @Override
+        public void begin(List<CategoryProfile> categories) throws IOException, SQLException {
+            new MigrationRunner(dbHandler, "/sql/migrations").migrate();
+
+            List<Object[]> params = new ArrayList<>(categories.size());
+            for (CategoryProfile category : categories) {
+                params.add(new Object[]{category.name(), category.type().name()});
+            }
+            categoryIds = dbHandler.executeBatchReturningKeys(INSERT_CATEGORY, params);
+        }
+
+        @Override
+        public void accept(RowGenerator row) throws SQLException {
+            batch.add(new Object[]{categoryIds[row.category], BigDecimal.valueOf(row.cents, 2),
+                    row.description.toString(), dates[row.day]});
+            if (batch.size() == DB_BATCH_SIZE) {
+                submit();
+            }
+        }
+
+        private void submit() throws SQLException {
+            throwIfFailed();
+            List<Object[]> rows = batch;
+            batch = new ArrayList<>(DB_BATCH_SIZE);
+
+            inFlight.acquireUninterruptibly();
+            writers.execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        dbHandler.executeBatch(INSERT_TRANSACTION, rows);
+                    }
+                } catch (SQLException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        // Throws the first failed insert once, close() must not throw it again after submit() did
+        private void throwIfFailed() throws SQLException {
+            SQLException e = failure.get();
+            if (e != null && !failureThrown) {
+                failureThrown = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (!batch.isEmpty() && failure.get() == null) {
+                    submit();
+                }
+                writers.shutdown();
+                writers.awaitTermination(1, TimeUnit.HOURS);
+                throwIfFailed();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the inserts", e);
+            } finally {
+                writers.shutdownNow();
+                dbHandler.close();
+            }
+        }
+    }
+
+    /**
+     * Writes a MySQL script with multi-row INSERTs. Category ids are kept in session variables, so the
+     * script can be loaded into a database that already contains categories.
+     */
+    private static final class SqlSink implements Sink {
+        private final Writer out;
+        private final String[] dates;
+        private final StringBuilder line = new StringBuilder(256);
+        private String[] categoryRefs;
+        private int rowsInInsert = 0;
+        private int insertsInTransaction = 0;
+
+        private SqlSink(Path file, LocalDate from, LocalDate to) throws IOException {
+            this.out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            this.dates = formatDays(from, to, DateTimeFormatter.ISO_LOCAL_DATE);
+        }
+
+        @Override
+        public void begin(List<CategoryProfile> categories) throws IOException {
+            out.write("-- Synthetic ledger written by LedgerGenerator\n");
+            out.write("SET autocommit = 0;\n");
+
+            categoryRefs = new String[categories.size()];
+            for (int i = 0; i < categories.size(); i++) {
+                CategoryProfile category = categories.get(i);
+                out.write("INSERT INTO categories (name, type) VALUES ('" + escape(category.name()) + "', '"
+                        + category.type().name() + "');\n");
+                categoryRefs[i] = "@category" + (i + 1);
+                out.write("SET " + categoryRefs[i] + " = LAST_INSERT_ID();\n");
+            }
+            out.write("COMMIT;\n");
+        }
+
+        @Override
+        public void accept(RowGenerator row) throws IOException {
+            line.setLength(0);
+            line.append(rowsInInsert == 0
+                    ? "INSERT INTO transactions (category_id, amount, description, transaction_date) VALUES\n("
+                    : ",\n(");
+            line.append(categoryRefs[row.category]).append(", ");
+            appendAmount(line, row.cents, '.');
+            line.append(", '");
+            appendEscaped(line, row.description);
+            line.append("', '").append(dates[row.day]).append("')");
+            out.append(line);
+
+            if (++rowsInInsert == SQL_ROWS_PER_INSERT) {
+                endInsert();
+            }
+        }
+
+        private void endInsert() throws IOException {
+            out.write(";\n");
+            rowsInInsert = 0;
+            if (++insertsInTransaction == SQL_INSERTS_PER_COMMIT) {
+                out.write("COMMIT;\n");
+                insertsInTransaction = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                if (rowsInInsert > 0) {
+                    endInsert();
+                }
+                out.write("COMMIT;\n");
+            }
+        }
+
+        private static String escape(String text) {
+            return appendEscaped(new StringBuilder(text.length()), text).toString();
+        }
+
+        private static StringBuilder appendEscaped(StringBuilder out, CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\'' || c == '\\') {
+                    out.append('\\');
+                }
+                out.append(c);
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Writes "Datum;Beschreibung;Betrag" with signed amounts, the default layout of the CSV import.
+     * Categories are not part of that layout, imported rows get the default category of their type.
+     */
+    private static final class CsvSink implements Sink {
+        private final Writer out;
+        private final String[] dates;
+        private final StringBuilder line = new StringBuilder(128);
+
+        private CsvSink(Path file, LocalDate from, LocalDate to) throws IOException {
+            this.out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            this.dates = formatDays(from, to, DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+        }
+
+        @Override
+        public void begin(List<CategoryProfile> categories) throws IOException {
+            out.write("Datum;Beschreibung;Betrag\n");
+        }
+
+        @Override
+        public void accept(RowGenerator row) throws IOException {
+            // Descriptions come from the profiles and never contain the delimiter or quotes
+            line.setLength(0);
+            line.append(dates[row.day]).append(';').append(row.description).append(';');
+            appendAmount(line, row.type() == TransactionType.EXPENSE ? -row.cents : row.cents, ',');
+            line.append('\n');
+            out.append(line);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
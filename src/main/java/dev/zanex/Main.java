@@ -1,94 +1,306 @@
 package dev.zanex;
 
 import dev.zanex.mvc.controller.AppController;
+import dev.zanex.mvc.controller.StartupSnapshot;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.DeferredTransactionStore;
+import dev.zanex.mvc.model.JournalTransactionStore;
+import dev.zanex.mvc.model.MySQLTransactionStore;
+import dev.zanex.mvc.model.TransactionStore;
 import dev.zanex.mvc.view.MainFrame;
+import dev.zanex.utils.ErrorHandler;
 import dev.zanex.utils.Logger;
+import dev.zanex.utils.Metrics;
+import dev.zanex.utils.MigrationRunner;
 import dev.zanex.utils.MySQLHandler;
 import dev.zanex.utils.OutputHandler;
+import dev.zanex.utils.PhaseTimer;
 
+import javax.swing.*;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.sql.ResultSet;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class Main {
+    private static final long LOG_FILE_MAX_BYTES = 10L * 1024 * 1024;
+    private static final int LOG_FILE_COUNT = 5;
+    private static final long METRICS_INTERVAL_SECONDS = 300;
+    private static final String DEFAULT_JOURNAL_FILE = "buchhaltung.journal";
+    private static final String DEFAULT_SNAPSHOT_FILE = "buchhaltung.snapshot";
+    private static final String DEFAULT_FILTERS_FILE = "buchhaltung.filters";
+    private static final String DEFAULT_UNSAVED_FILE = "buchhaltung.unsaved.csv";
+    private static final String DEFAULT_BUS_GROUP = "239.255.73.76";
+    private static final int DEFAULT_BUS_PORT = 47476;
+
     private static MySQLHandler mysqlHandler;
+    private static TransactionStore transactionStore;
+    private static CategoryRegistry categoryRegistry;
     private static Logger logger;
     private static AppController controller;
+    private static volatile MainFrame mainFrame;
+    private static final PhaseTimer startup = new PhaseTimer("startup");
 
     public static void main(String[] args) {
-        logger = new Logger();
+        startLogger();
+        configureMetrics();
         logger.log("INFO", "Starting application");
 
+        // The window is built on the EDT while the store is opened, from the last session's snapshot if there is one
+        long phaseStart = System.nanoTime();
+        StartupSnapshot snapshot = readSnapshot();
+        startup.record("snapshot", phaseStart);
+        DeferredTransactionStore deferredStore = new DeferredTransactionStore();
+        transactionStore = deferredStore;
+
         try {
-            // Connect to MySQL
-            logger.log("INFO", "Connecting to database");
-            mysqlHandler = new MySQLHandler("localhost", 3306, "buchhaltung", "root", "root");
-            logger.log("SUCCESS", "Database connection established");
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                // Queued writes go out before the store closes
+                if (controller != null) {
+                    controller.shutdown(Path.of(DEFAULT_UNSAVED_FILE));
+                }
+                saveSnapshot();
+                transactionStore.close();
+                if (mysqlHandler != null) {
+                    mysqlHandler.close();
+                }
+                Metrics.stopReporter();
+                logger.log("INFO", Metrics::summary);
+                logger.close();
+            }, "database-shutdown"));
 
-            // Initialize schema if needed
-            initializeDatabase();
+            categoryRegistry = new CategoryRegistry(transactionStore);
 
             // Initialize controller
             controller = new AppController();
             logger.log("INFO", "Controller initialized");
 
-            // Initialize main frame
-            logger.log("INFO", "Initializing UI");
-            MainFrame mainFrame = new MainFrame(controller);
-            mainFrame.setVisible(true);
+            // -Dfilters.file sets where filter presets are saved, an empty value disables them
+            String filtersFile = System.getProperty("filters.file", DEFAULT_FILTERS_FILE);
+            if (!filtersFile.isBlank()) {
+                controller.loadFilterPresets(Path.of(filtersFile));
+            }
+
+            if (snapshot != null) {
+                categoryRegistry.seed(snapshot.categories());
+                controller.setDateFilter(snapshot.from(), snapshot.to());
+            }
+            StartupSnapshot firstView = snapshot != null
+                    ? snapshot
+                    : StartupSnapshot.empty(controller.getFromDate(), controller.getToDate());
+            SwingUtilities.invokeLater(() -> showMainFrame(firstView, snapshot != null));
+
+            try {
+                deferredStore.complete(openStore());
+            } catch (SQLException | RuntimeException e) {
+                deferredStore.fail(e);
+                throw e;
+            }
+            // The snapshot's categories may be outdated
+            categoryRegistry.invalidate();
+
+            phaseStart = System.nanoTime();
+            try {
+                controller.loadSummary();
+            } catch (SQLException e) {
+                logger.log("WARN", "Summary totals not loaded, falling back to database aggregation: " + e.getMessage());
+            }
+            startup.record("summary", phaseStart);
+
+            // The window keeps the snapshot or empty totals until now, so the first refresh finds the totals loaded
+            SwingUtilities.invokeLater(() -> mainFrame.refreshTransactions());
+
+            // Optional in-memory transaction cache, enabled with the "cache" run argument
+            if (getRunArgs().contains("cache")) {
+                phaseStart = System.nanoTime();
+                try {
+                    controller.enableCache();
+                } catch (SQLException e) {
+                    logger.log("WARN", "Transaction cache disabled: " + e.getMessage());
+                }
+                startup.record("cache", phaseStart);
+            }
+
+            connectChangeBus();
+
+            // The search index is loaded behind the window, searches meanwhile see the rows loaded so far
+            Thread.ofVirtual().name("search-index").start(() -> {
+                try {
+                    controller.enableSearch();
+                } catch (SQLException e) {
+                    logger.log("WARN", "Search index not loaded, search is unavailable: " + e.getMessage());
+                }
+            });
+
             logger.log("SUCCESS", "Application started successfully");
+            logger.log("INFO", () -> "Startup phases: " + startup.summary());
 
         } catch (SQLException e) {
             logger.log("ERROR", "Database connection error: " + e.getMessage());
             e.printStackTrace();
+            SwingUtilities.invokeLater(() -> ErrorHandler.showError(mainFrame, "Keine Verbindung zur Datenbank", e));
         } catch (Exception e) {
             logger.log("ERROR", "Application initialization error: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    private static void initializeDatabase() {
+    // Runs on the EDT, main() refreshes the window once the store is open
+    private static void showMainFrame(StartupSnapshot firstView, boolean fromSnapshot) {
+        long phaseStart = System.nanoTime();
+        mainFrame = new MainFrame(controller, firstView);
+        mainFrame.setVisible(true);
+        startup.record("frame", phaseStart);
+        logger.log("INFO", () -> "Main window shown " + (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime())
+                + " ms after launch" + (fromSnapshot ? " from the startup snapshot" : ""));
+    }
+
+    // -Dsnapshot.file sets where the window contents are kept between sessions, an empty value disables the snapshot
+    private static Path snapshotFile() {
+        String file = System.getProperty("snapshot.file", DEFAULT_SNAPSHOT_FILE);
+        return file.isBlank() ? null : Path.of(file);
+    }
+
+    private static StartupSnapshot readSnapshot() {
+        Path file = snapshotFile();
+        return file != null ? StartupSnapshot.read(file) : null;
+    }
+
+    private static void saveSnapshot() {
+        Path file = snapshotFile();
+        MainFrame frame = mainFrame;
+        // Without an opened store the window still shows the old snapshot, which stays on disk
+        if (file == null || frame == null || !(transactionStore instanceof DeferredTransactionStore deferred && deferred.isReady())) {
+            return;
+        }
+
+        StartupSnapshot view = frame.getLastView();
+        if (view == null || view.firstPage() == null) {
+            return;
+        }
+
         try {
-            logger.log("INFO", "Checking/initializing database schema");
+            view.withCategories(categoryRegistry.getAll()).write(file);
+        } catch (IOException | SQLException e) {
+            logger.log("WARN", "Startup snapshot not saved: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates and configures the logger unless it already exists, also used by other entry points like
+     * the LedgerGenerator
+     *
+     * @return The logger
+     */
+    static synchronized Logger startLogger() {
+        if (logger == null) {
+            logger = new Logger();
+            configureLogger();
+        }
+        return logger;
+    }
 
-            // Load the schema SQL from resources
-            InputStream schemaStream = Main.class.getResourceAsStream("/sql/SCHEMA.sql");
+    // Level and file output can be set with -Dlog.level=WARN and -Dlog.file=logs/app.log
+    private static void configureLogger() {
+        String level = System.getProperty("log.level", getRunArgs().contains("debug") ? "DEBUG" : "INFO");
+        try {
+            logger.setMinimumLevel(level);
+        } catch (IllegalArgumentException e) {
+            logger.log("WARN", e.getMessage());
+        }
 
-            if (schemaStream == null) {
-                logger.log("ERROR", "Schema file not found in resources");
-                throw new RuntimeException("Could not find SCHEMA.sql in resources");
+        String file = System.getProperty("log.file");
+        if (file != null) {
+            try {
+                logger.enableFileOutput(Path.of(file), LOG_FILE_MAX_BYTES, LOG_FILE_COUNT);
+            } catch (IOException e) {
+                logger.log("WARN", "Log file " + file + " cannot be opened: " + e.getMessage());
             }
+        }
+    }
 
-            // Read the SQL file content
-            String schemaSql = new BufferedReader(new InputStreamReader(schemaStream))
-                    .lines().collect(Collectors.joining("\n"));
+    // Metrics are always readable over JMX, -Dmetrics.interval=60 sets the seconds between log dumps, 0 disables them
+    private static void configureMetrics() {
+        Metrics.registerMBean();
+        Metrics.startReporter(Long.getLong("metrics.interval", METRICS_INTERVAL_SECONDS));
+    }
 
-            // Split by semicolons to execute each statement separately
-            String[] statements = schemaSql.split(";");
+    // Instances on the same MySQL database notify each other of their writes over UDP multicast, configured with
+    // -Dbus.group, -Dbus.port and -Dbus.interface (network interface name). -Dbus.enabled=false turns it off.
+    private static void connectChangeBus() {
+        // A journal file belongs to one instance, there is nobody to notify
+        if (mysqlHandler == null || !Boolean.parseBoolean(System.getProperty("bus.enabled", "true"))) {
+            return;
+        }
 
-            // Execute each statement
-            for (String statement : statements) {
-                if (!statement.trim().isEmpty()) {
-                    try {
-                        mysqlHandler.executeUpdate(statement);
-                    } catch (SQLException e) {
-                        logger.log("WARN", "Error executing schema statement: " + e.getMessage());
-                    }
-                }
+        try {
+            InetAddress group = InetAddress.getByName(System.getProperty("bus.group", DEFAULT_BUS_GROUP));
+            int port = Integer.getInteger("bus.port", DEFAULT_BUS_PORT);
+            String interfaceName = System.getProperty("bus.interface");
+            NetworkInterface networkInterface = interfaceName != null ? NetworkInterface.getByName(interfaceName) : null;
+            if (interfaceName != null && networkInterface == null) {
+                throw new IOException("Unknown network interface " + interfaceName);
             }
+            controller.connectChangeBus(group, port, networkInterface, mysqlHandler.getChannelId());
+        } catch (IOException e) {
+            logger.log("WARN", "Change notifications disabled, other instances' writes show up on the next refresh: " + e.getMessage());
+        }
+    }
+
+    // -Dstore=journal keeps the transactions in a local journal file (-Dstore.file) instead of MySQL
+    private static TransactionStore openStore() throws SQLException {
+        if ("journal".equalsIgnoreCase(System.getProperty("store", "mysql"))) {
+            Path file = Path.of(System.getProperty("store.file", DEFAULT_JOURNAL_FILE));
+            logger.log("INFO", "Opening journal " + file.toAbsolutePath());
+            long phaseStart = System.nanoTime();
+            JournalTransactionStore journal = new JournalTransactionStore(file);
+            startup.record("connect", phaseStart);
+            return journal;
+        }
+
+        logger.log("INFO", "Connecting to database");
+        long phaseStart = System.nanoTime();
+        mysqlHandler = new MySQLHandler("localhost", 3306, "buchhaltung", "root", "root");
+        startup.record("connect", phaseStart);
+        logger.log("SUCCESS", "Database connection established");
+
+        // Apply pending schema migrations
+        phaseStart = System.nanoTime();
+        initializeDatabase();
+        startup.record("migrations", phaseStart);
+
+        // The schema printout is only wanted while debugging (run argument "debug" or -Dschema.print=true)
+        // and is printed off the startup path
+        if (getRunArgs().contains("debug") || Boolean.getBoolean("schema.print")) {
+            Thread.ofVirtual().name("schema-printer").start(Main::printDatabaseSchema);
+        }
+        return new MySQLTransactionStore(mysqlHandler);
+    }
 
-            // Add dummy data if needed
-            loadDummyData();
+    private static void initializeDatabase() {
+        try {
+            logger.log("INFO", "Checking database schema");
 
-            // Print database structure to console
-            printDatabaseSchema();
+            // Databases set up before the migrations already have the tables of V1, it is recorded without running
+            MigrationRunner migrations = new MigrationRunner(mysqlHandler, "/sql/migrations", "transactions");
+            int applied = migrations.migrate();
+
+            // Dummy data only goes into a database whose tables were created by this run, never into existing books
+            if (migrations.hasCreatedSchema()) {
+                loadDummyData();
+            }
 
-            logger.log("SUCCESS", "Database schema initialized");
+            if (applied > 0) {
+                logger.log("SUCCESS", "Database schema migrated, " + applied + " migrations applied");
+            }
         } catch (Exception e) {
             logger.log("ERROR", "Failed to initialize database schema: " + e.getMessage());
             throw new RuntimeException("Database initialization failed", e);
@@ -126,54 +338,32 @@ public class Main {
         }
     }
 
+    // One information_schema query instead of a metadata round trip per table, column and key
     private static void printDatabaseSchema() {
         try {
             OutputHandler output = new OutputHandler();
             List<String> tableInfo = new ArrayList<>();
-
-            // Get all tables in the database
-            ResultSet tables = mysqlHandler.getConnection().getMetaData().getTables(
-                    null, null, "%", new String[]{"TABLE"});
-
-            while (tables.next()) {
-                String tableName = tables.getString("TABLE_NAME");
-                tableInfo.add("&b" + tableName + "&r:");
-
-                // Get table columns and their details
-                ResultSet columns = mysqlHandler.getConnection().getMetaData().getColumns(
-                        null, null, tableName, "%");
-
-                while (columns.next()) {
-                    String columnName = columns.getString("COLUMN_NAME");
-                    String dataType = columns.getString("TYPE_NAME");
-                    String nullable = columns.getString("IS_NULLABLE").equals("Ja") ? "NULL" : "NOT NULL";
-                    String key = "";
-
-                    // Check if column is a primary key
-                    ResultSet primaryKeys = mysqlHandler.getConnection().getMetaData().getPrimaryKeys(
-                            null, null, tableName);
-                    while (primaryKeys.next()) {
-                        if (primaryKeys.getString("COLUMN_NAME").equals(columnName)) {
-                            key = "PRIMARY KEY";
-                            break;
+            String[] currentTable = {null};
+
+            mysqlHandler.forEachRow(
+                    "SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE, IS_NULLABLE, COLUMN_KEY FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() ORDER BY TABLE_NAME, ORDINAL_POSITION",
+                    row -> {
+                        String tableName = row.getString("TABLE_NAME");
+                        if (!tableName.equals(currentTable[0])) {
+                            // Add blank line between tables
+                            if (currentTable[0] != null) {
+                                tableInfo.add("");
+                            }
+                            tableInfo.add("&b" + tableName + "&r:");
+                            currentTable[0] = tableName;
                         }
-                    }
-                    primaryKeys.close();
-
-                    tableInfo.add("  &7- &e" + columnName + "&7: &f" + dataType +
-                            " &7" + nullable + (key.isEmpty() ? "" : " &c" + key));
-                }
-                columns.close();
-
-                // Add blank line between tables
-                tableInfo.add("");
-            }
-            tables.close();
 
-            // Remove last empty line if exists
-            if (!tableInfo.isEmpty() && tableInfo.get(tableInfo.size() - 1).isEmpty()) {
-                tableInfo.remove(tableInfo.size() - 1);
-            }
+                        String nullable = "YES".equals(row.getString("IS_NULLABLE")) ? "NULL" : "NOT NULL";
+                        boolean primaryKey = "PRI".equals(row.getString("COLUMN_KEY"));
+                        tableInfo.add("  &7- &e" + row.getString("COLUMN_NAME") + "&7: &f" + row.getString("DATA_TYPE").toUpperCase() +
+                                " &7" + nullable + (primaryKey ? " &cPRIMARY KEY" : ""));
+                    });
 
             // Print the table structure
             output.printTable("Database Schema", tableInfo);
@@ -187,6 +377,14 @@ public class Main {
         return mysqlHandler;
     }
 
+    public static TransactionStore getTransactionStore() {
+        return transactionStore;
+    }
+
+    public static CategoryRegistry getCategoryRegistry() {
+        return categoryRegistry;
+    }
+
     public static AppController getController() {
         return controller;
     }
@@ -1,215 +1,950 @@
 package dev.zanex.mvc.controller;
 
 import dev.zanex.Main;
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.FilterPlan;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.StoredTransaction;
+import dev.zanex.mvc.model.TransactionChanges;
+import dev.zanex.mvc.model.TransactionFilter;
+import dev.zanex.mvc.model.TransactionStore;
 import dev.zanex.mvc.model.TransactionType;
 import dev.zanex.utils.ErrorHandler;
-import dev.zanex.utils.MySQLHandler;
-
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import dev.zanex.utils.Histogram;
+import dev.zanex.utils.Metrics;
+
+import javax.swing.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class AppController {
-    private LocalDate fromDate;
-    private LocalDate toDate;
-    private MySQLHandler dbHandler;
+    private static final int WRITE_BATCH_SIZE = 1000;
+    private static final long WRITE_DELAY_MILLIS = 200;
+    // More changes at once are announced as a reload, other instances patch their tables with at most as many
+    private static final int MAX_PUBLISHED_CHANGES = 500;
+    // Writes made while the search index loads are applied afterwards, more than this many are left out
+    private static final int MAX_SEARCH_CATCH_UP_CHANGES = 10_000;
+    // Rows listed in the message about rejected writes
+    private static final int MAX_REPORTED_REJECTS = 10;
+    private static final DateTimeFormatter GERMAN_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private static final Histogram SUMMARY_TIME = Metrics.timer("controller.getSummary");
+    private static final Histogram GET_TRANSACTIONS_TIME = Metrics.timer("controller.getTransactions");
+    private static final Histogram COUNT_TIME = Metrics.timer("controller.countTransactions");
+    private static final Histogram KEYSET_PAGE_TIME = Metrics.timer("controller.getTransactionPage.keyset");
+    private static final Histogram OFFSET_PAGE_TIME = Metrics.timer("controller.getTransactionPage.offset");
+    private static final Histogram ADD_TIME = Metrics.timer("controller.addTransaction");
+    private static final Histogram ADD_ALL_TIME = Metrics.timer("controller.addTransactions");
+    private static final Histogram IMPORT_TIME = Metrics.timer("controller.importCsv");
+    private static final Histogram EXPORT_TIME = Metrics.timer("controller.exportTransactions");
+    private static final Histogram DELETE_TIME = Metrics.timer("controller.deleteTransaction");
+    private static final Histogram UPDATE_TIME = Metrics.timer("controller.updateTransaction");
+    private static final Histogram CHANGES_TIME = Metrics.timer("controller.getChangesSince");
+    private static final Histogram REMOTE_CHANGES_TIME = Metrics.timer("controller.applyRemoteChanges");
+    private static final Histogram SEARCH_TIME = Metrics.timer("controller.search");
+
+    private TransactionFilter filter;
+    private final TransactionStore store;
+    // Category names and types come from the CategoryRegistry, so the store does not join categories
+    private final CategoryRegistry categories;
+    private final FilterPlanCache filterPlans;
+    private volatile FilterPresets filterPresets;
+    private volatile TransactionCache cache;
+    private volatile SummaryService summaryService;
+    private volatile SearchIndex searchIndex;
+    private final WriteBehindQueue writeBehind;
+    private volatile ChangeBus changeBus;
+    private volatile RemoteChangeListener remoteChangeListener;
 
     public AppController() {
         // Default filter is current month
-        this.fromDate = LocalDate.now().withDayOfMonth(1);
-        this.toDate = LocalDate.now();
-        this.dbHandler = Main.getMySQLHandler();
+        this.filter = TransactionFilter.range(LocalDate.now().withDayOfMonth(1), LocalDate.now());
+        this.store = Main.getTransactionStore();
+        this.categories = Main.getCategoryRegistry();
+        this.filterPlans = new FilterPlanCache(categories);
+        this.writeBehind = new WriteBehindQueue(store, categories::getDefaultId, this::onFlushed, this::onRejected,
+                WRITE_BATCH_SIZE, WRITE_DELAY_MILLIS);
+    }
+
+    /**
+     * Loads all transactions into an in-memory columnar cache. Afterwards range queries are answered
+     * from memory and every write made through this controller is applied to the cache as well.
+     *
+     * @throws SQLException if the cache cannot be loaded
+     */
+    public void enableCache() throws SQLException {
+        long start = System.currentTimeMillis();
+        cache = TransactionCache.load(store, categories);
+        Main.getLogger().log("INFO", () -> "Transaction cache loaded with " + cache.size() + " rows in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    public boolean isCacheEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Loads all transactions into the search index. Searches made while it loads see the rows loaded so far,
+     * writes made through this controller meanwhile are applied to it right away.
+     *
+     * @throws SQLException if the rows cannot be read
+     */
+    public void enableSearch() throws SQLException {
+        long start = System.currentTimeMillis();
+        SearchIndex index = new SearchIndex(categories);
+        searchIndex = index;
+
+        // Rows written by other clients during the load are picked up from the changes since its start
+        long watermark = store.watermark();
+        store.forEach(null, null, row -> index.put(row.id(), row.date(), row.cents(), row.categoryId(), row.description()));
+        TransactionChanges changes = store.changesSince(watermark, MAX_SEARCH_CATCH_UP_CHANGES);
+        for (StoredTransaction row : changes.inserted()) {
+            index.put(row.id(), row.date(), row.cents(), row.categoryId(), row.description());
+        }
+        for (StoredTransaction row : changes.updated()) {
+            index.put(row.id(), row.date(), row.cents(), row.categoryId(), row.description());
+        }
+        for (TransactionChanges.Tombstone tombstone : changes.deleted()) {
+            index.remove(tombstone.id());
+        }
+        if (!changes.complete()) {
+            Main.getLogger().log("WARN", "Search index may miss rows written while it was loading");
+        }
+
+        Main.getLogger().log("INFO", () -> "Search index loaded with " + index.size() + " rows in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Searches descriptions and category names of all transactions, regardless of the date filter
+     *
+     * @param query Terms separated by whitespace, every one has to match
+     * @param limit Maximum number of returned rows
+     * @return The best matching rows, newest first among equally good ones
+     * @throws SQLException if the search index is not enabled or the categories cannot be loaded
+     */
+    public SearchIndex.Result search(String query, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            SearchIndex index = searchIndex;
+            if (index == null) {
+                throw new SQLException("Search index is not available");
+            }
+            flushBeforeRead(); // Find your own queued writes
+            SearchIndex.Result result = index.search(query, limit);
+            Main.getLogger().log("DEBUG", () -> "Search '" + query + "' found " + result.total() + " transactions in "
+                    + (System.nanoTime() - start) / 1000 + " us");
+            return result;
+        } finally {
+            SEARCH_TIME.recordSince(start);
+        }
+    }
+
+    /**
+     * Loads the daily income/expense totals used by getSummary() and getLoadedSummary(). Afterwards they are kept
+     * up to date from the writes of this controller instead of being recomputed.
+     *
+     * @throws SQLException if the totals cannot be loaded
+     */
+    public void loadSummary() throws SQLException {
+        summaryService = SummaryService.load(store, categories);
+    }
+
+    /**
+     * Connects to the other instances working on the same database. Afterwards the writes of this controller
+     * are published to them, and their writes are applied to the totals and the cache and reported to the
+     * RemoteChangeListener.
+     *
+     * @param group Multicast group address
+     * @param port UDP port
+     * @param networkInterface Interface to use, or null for the system default
+     * @param channel Identifies the database
+     * @throws IOException if the group cannot be joined
+     */
+    public void connectChangeBus(InetAddress group, int port, NetworkInterface networkInterface, String channel) throws IOException {
+        changeBus = new ChangeBus(group, port, networkInterface, channel, new RemoteChanges(), MAX_PUBLISHED_CHANGES);
+        Main.getLogger().log("INFO", () -> "Change notifications on " + group.getHostAddress() + ":" + port + " for " + channel);
+    }
+
+    /**
+     * Sets who is told about changes made by other instances
+     *
+     * @param listener The listener, called on the change bus thread
+     */
+    public void setRemoteChangeListener(RemoteChangeListener listener) {
+        this.remoteChangeListener = listener;
+    }
+
+    /**
+     * Makes the next access reload the categories, call this after categories were changed.
+     * If they did change, the other instances are told to reload theirs as well.
+     */
+    public void invalidateCategories() {
+        ChangeBus changeBus = this.changeBus;
+        if (changeBus == null) {
+            categories.invalidate();
+            return;
+        }
+
+        List<Category> before;
+        try {
+            before = categories.getAll();
+        } catch (SQLException e) {
+            before = List.of();
+        }
+        categories.invalidate();
+
+        // Comparing needs a query, which does not belong on the caller's thread
+        List<Category> previous = before;
+        Thread.ofVirtual().name("category-check").start(() -> {
+            try {
+                if (!sameCategories(previous, categories.getAll())) {
+                    Main.getLogger().log("INFO", "Categories changed, notifying other instances");
+                    changeBus.publishCategoriesChanged();
+                }
+            } catch (SQLException e) {
+                Main.getLogger().log("WARN", () -> "Categories could not be compared: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Returns income and expense totals of a date range from the daily totals, without a query.
+     * Safe to call on the event dispatch thread.
+     *
+     * @param filter The filter
+     * @return The summary, or null if the totals are not loaded yet or the filter has criteria they cannot tell apart
+     */
+    public Summary getLoadedSummary(TransactionFilter filter) {
+        SummaryService summaryService = this.summaryService;
+        if (summaryService == null || !filter.isRangeOnly()) {
+            return null;
+        }
+
+        return new Summary(
+                Money.ofCents(summaryService.sum(TransactionType.INCOME, filter.from(), filter.to())),
+                Money.ofCents(summaryService.sum(TransactionType.EXPENSE, filter.from(), filter.to())),
+                filter.from(), filter.to());
+    }
+
+    /**
+     * Returns income and expense totals of the transactions the given filter shows. Filters with criteria
+     * aggregate the matching rows, so this must not run on the event dispatch thread.
+     *
+     * @param filter The filter
+     * @return The summary
+     * @throws SQLException if the matching rows cannot be aggregated
+     */
+    public Summary getSummary(TransactionFilter filter) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Summary loaded = getLoadedSummary(filter);
+            if (loaded != null) {
+                return loaded;
+            }
+
+            // Totals were not loaded or cannot tell the criteria apart, aggregate the matching rows instead
+            long income = 0;
+            long expenses = 0;
+            FilterPlan plan = filterPlans.get(filter);
+            TransactionCache cache = this.cache;
+            Map<Integer, Long> totals = cache != null
+                    ? cache.sumByCategory(filter.from(), filter.to(), plan)
+                    : store.sumByCategory(filter.from(), filter.to(), plan);
+            for (Map.Entry<Integer, Long> total : totals.entrySet()) {
+                if (categories.getType(total.getKey()) == TransactionType.INCOME) {
+                    income += total.getValue();
+                } else {
+                    expenses += total.getValue();
+                }
+            }
+            return new Summary(Money.ofCents(income), Money.ofCents(expenses), filter.from(), filter.to());
+        } finally {
+            SUMMARY_TIME.recordSince(start);
+        }
     }
 
     public void setDateFilter(LocalDate fromDate, LocalDate toDate) {
         if (fromDate.isAfter(toDate)) {
-            Main.getLogger().log("ERROR", "Invalid date range: " + fromDate + " to " + toDate);
+            Main.getLogger().log("ERROR", () -> "Invalid date range: " + fromDate + " to " + toDate);
             throw new IllegalArgumentException("From date must be before to date");
         }
 
-        this.fromDate = fromDate;
-        this.toDate = toDate;
-        Main.getLogger().log("INFO", "Date filter set: " + fromDate + " to " + toDate);
+        this.filter = filter.withRange(fromDate, toDate);
+        Main.getLogger().log("INFO", () -> "Date filter set: " + fromDate + " to " + toDate);
     }
 
+    /**
+     * Resets the filter to the current month without further criteria
+     */
     public void resetDateFilter() {
-        this.fromDate = LocalDate.now().withDayOfMonth(1);
-        this.toDate = LocalDate.now();
-        Main.getLogger().log("INFO", "Date filter reset to current month");
+        this.filter = TransactionFilter.range(LocalDate.now().withDayOfMonth(1), LocalDate.now());
+        Main.getLogger().log("INFO", "Filter reset to current month");
+    }
+
+    /**
+     * Replaces the filter of the displayed transactions, totals and exports
+     *
+     * @param filter The filter, it needs a date range
+     */
+    public void setFilter(TransactionFilter filter) {
+        if (filter.from() == null || filter.to() == null || filter.from().isAfter(filter.to())) {
+            Main.getLogger().log("ERROR", () -> "Invalid date range: " + filter.from() + " to " + filter.to());
+            throw new IllegalArgumentException("From date must be before to date");
+        }
+        if (filter.minCents() != null && filter.maxCents() != null && filter.minCents() > filter.maxCents()) {
+            Main.getLogger().log("ERROR", () -> "Invalid amount range: " + filter.minCents() + " to " + filter.maxCents());
+            throw new IllegalArgumentException("Minimum amount must not be above maximum amount");
+        }
+
+        this.filter = filter;
+        Main.getLogger().log("INFO", () -> "Filter set: " + filter);
+    }
+
+    public TransactionFilter getFilter() {
+        return filter;
     }
 
     public List<Transaction> getTransactions() {
         List<Transaction> transactions = new ArrayList<>();
 
+        long start = System.nanoTime();
         try {
-            Main.getLogger().log("INFO", "Fetching transactions from " + fromDate + " to " + toDate);
-            Connection conn = dbHandler.getConnection();
-
-            // Fix: Changed 'transactions.date' to 'transactions.transaction_date' to match the schema
-            String query = "SELECT transactions.id, transactions.transaction_date, transactions.description, transactions.amount, categories.name as category FROM transactions JOIN categories ON transactions.category_id = categories.id WHERE transactions.transaction_date BETWEEN ? AND ? ORDER BY transactions.transaction_date DESC";
-
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setObject(1, fromDate);
-            stmt.setObject(2, toDate);
-
-            ResultSet rs = stmt.executeQuery();
-            int count = 0;
-
-            while (rs.next()) {
-                Transaction transaction = new Transaction(
-                        rs.getInt("id"),
-                        rs.getObject("transaction_date", LocalDate.class), // Also update here
-                        rs.getString("description"),
-                        rs.getDouble("amount"),
-                        rs.getString("category")
-                );
-                transactions.add(transaction);
-                count++;
-            }
-
-            Main.getLogger().log("INFO", "Retrieved " + count + " transactions");
-            rs.close();
-            stmt.close();
+            TransactionFilter filter = this.filter;
+            Main.getLogger().log("INFO", () -> "Fetching transactions from " + filter.from() + " to " + filter.to());
+            flushBeforeRead();
+
+            FilterPlan plan = filterPlans.get(filter);
+            TransactionCache cache = this.cache;
+            transactions = cache != null
+                    ? cache.page(filter.from(), filter.to(), plan, null, Integer.MAX_VALUE)
+                    : toView(store.page(filter.from(), filter.to(), plan, null, 0, Integer.MAX_VALUE));
+            Main.getLogger().log("INFO", "Retrieved " + transactions.size() + " transactions");
         } catch (SQLException e) {
-            Main.getLogger().log("ERROR", "Database error retrieving transactions: " + e.getMessage());
+            Main.getLogger().log("ERROR", () -> "Database error retrieving transactions: " + e.getMessage());
             ErrorHandler.showError(null, "Error retrieving transactions", e);
+        } finally {
+            GET_TRANSACTIONS_TIME.recordSince(start);
         }
 
         return transactions;
     }
 
-    public void addTransaction(dev.zanex.mvc.model.Transaction transaction) {
+    /**
+     * Counts the transactions the given filter shows
+     *
+     * @param filter The filter
+     * @return Number of transactions
+     * @throws SQLException if the query fails
+     */
+    public int countTransactions(TransactionFilter filter) throws SQLException {
+        long start = System.nanoTime();
         try {
-            Main.getLogger().log("INFO", "Adding new transaction: " + transaction.getDescription());
-            Connection conn = dbHandler.getConnection();
+            flushBeforeRead(); // Read your own queued writes
+            FilterPlan plan = filterPlans.get(filter);
+            TransactionCache cache = this.cache;
+            if (cache != null) {
+                return cache.count(filter.from(), filter.to(), plan);
+            }
 
-            // First get the default category ID for this transaction type
-            int categoryId = getDefaultCategoryId(transaction.getType());
+            return store.count(filter.from(), filter.to(), plan);
+        } finally {
+            COUNT_TIME.recordSince(start);
+        }
+    }
 
-            String query = "INSERT INTO transactions (category_id, amount, description, transaction_date, created_at) " +
-                    "VALUES (?, ?, ?, ?, NOW())";
+    /**
+     * Fetches one page of transactions ordered by date and id descending, continuing after the given row
+     * (keyset pagination), so the cost of a page does not grow with its position in the range
+     *
+     * @param filter The filter
+     * @param after Last row of the previous page, or null for the first page
+     * @param limit Maximum number of rows
+     * @return The transactions of the page
+     * @throws SQLException if the query fails
+     */
+    public List<Transaction> getTransactionPage(TransactionFilter filter, Transaction after, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            flushBeforeRead(); // Read your own queued writes
+            FilterPlan plan = filterPlans.get(filter);
+            TransactionCache cache = this.cache;
+            if (cache != null) {
+                return cache.page(filter.from(), filter.to(), plan, after, limit);
+            }
 
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setInt(1, categoryId);
-            stmt.setDouble(2, transaction.getAmount());
-            stmt.setString(3, transaction.getDescription());
-            stmt.setObject(4, transaction.getDate());
+            return after == null
+                    ? toView(store.page(filter.from(), filter.to(), plan, null, 0, limit))
+                    : toView(store.page(filter.from(), filter.to(), plan, after.getDate(), after.getId(), limit));
+        } finally {
+            KEYSET_PAGE_TIME.recordSince(start);
+        }
+    }
 
-            int rowsAffected = stmt.executeUpdate();
-            stmt.close();
+    /**
+     * Fetches one page of transactions by position, used when no keyset anchor for the page is known
+     * because the user jumped into the middle of the range
+     *
+     * @param filter The filter
+     * @param offset Position of the first row
+     * @param limit Maximum number of rows
+     * @return The transactions of the page
+     * @throws SQLException if the query fails
+     */
+    public List<Transaction> getTransactionPage(TransactionFilter filter, int offset, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            flushBeforeRead(); // Read your own queued writes
+            FilterPlan plan = filterPlans.get(filter);
+            TransactionCache cache = this.cache;
+            if (cache != null) {
+                return cache.page(filter.from(), filter.to(), plan, offset, limit);
+            }
 
-            if (rowsAffected > 0) {
-                Main.getLogger().log("INFO", "Transaction added successfully");
-            } else {
-                Main.getLogger().log("WARN", "No rows affected when adding transaction");
+            return toView(store.page(filter.from(), filter.to(), plan, offset, limit));
+        } finally {
+            OFFSET_PAGE_TIME.recordSince(start);
+        }
+    }
+
+    /**
+     * Returns the current watermark of the store. Take it before reading the rows that a later
+     * getChangesSince() call is supposed to patch.
+     *
+     * @return The watermark
+     * @throws SQLException if the store cannot be read
+     */
+    public long getWatermark() throws SQLException {
+        flushBeforeRead(); // Queued writes belong before the watermark
+        return store.watermark();
+    }
+
+    /**
+     * Fetches the transactions inserted, updated and deleted since a watermark, so the displayed rows can
+     * be patched instead of reloaded. Rows the filter does not show are left out, updated rows it no
+     * longer shows are reported as excluded.
+     *
+     * @param filter The filter of the displayed rows
+     * @param watermark Watermark from getWatermark() or the previous call
+     * @param limit Maximum number of changes, more make the result incomplete
+     * @return The changes
+     * @throws SQLException if the query fails
+     */
+    public Changes getChangesSince(TransactionFilter filter, long watermark, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            flushBeforeRead(); // Read your own queued writes
+            TransactionChanges changes = store.changesSince(watermark, limit);
+            Main.getLogger().log("DEBUG", () -> changes.complete()
+                    ? "Changes since watermark " + watermark + ": " + changes.inserted().size() + " inserted, "
+                            + changes.updated().size() + " updated, " + changes.deleted().size() + " deleted"
+                    : "Changes since watermark " + watermark + " are incomplete");
+
+            // Dates are checked by the caller, it tells rows that left the range from rows that moved within it
+            FilterPlan plan = filterPlans.get(filter);
+            List<StoredTransaction> inserted = new ArrayList<>(changes.inserted().size());
+            for (StoredTransaction row : changes.inserted()) {
+                if (plan.matches(row)) {
+                    inserted.add(row);
+                }
             }
-        } catch (SQLException e) {
-            Main.getLogger().log("ERROR", "Database error adding transaction: " + e.getMessage());
-            ErrorHandler.showError(null, "Error adding transaction", e);
+            List<StoredTransaction> updated = new ArrayList<>(changes.updated().size());
+            List<Integer> excluded = new ArrayList<>();
+            for (StoredTransaction row : changes.updated()) {
+                if (plan.matches(row)) {
+                    updated.add(row);
+                } else {
+                    excluded.add(row.id());
+                }
+            }
+            return new Changes(changes.watermark(), toView(inserted), toView(updated), excluded,
+                    changes.deleted(), changes.complete());
+        } finally {
+            CHANGES_TIME.recordSince(start);
         }
     }
 
-    public void deleteTransaction(int transactionId) {
+    public LocalDate getFromDate() {
+        return filter.from();
+    }
+
+    public LocalDate getToDate() {
+        return filter.to();
+    }
+
+    /**
+     * Returns all categories, e.g. to offer them as filter criteria
+     *
+     * @return Categories ordered by id
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public List<Category> getCategories() throws SQLException {
+        return categories.getAll();
+    }
+
+    /**
+     * Reads the saved filter presets. Their plans are compiled on first use and cached like those of any filter.
+     *
+     * @param file The presets file
+     */
+    public void loadFilterPresets(Path file) {
+        filterPresets = FilterPresets.read(file);
+        Main.getLogger().log("INFO", () -> "Loaded " + filterPresets.getAll().size() + " filter presets from " + file);
+    }
+
+    /**
+     * Returns the saved filter presets
+     *
+     * @return The presets or null if none were loaded
+     */
+    public FilterPresets getFilterPresets() {
+        return filterPresets;
+    }
+
+    public void addTransaction(dev.zanex.mvc.model.Transaction transaction) {
+        long start = System.nanoTime();
         try {
-            Main.getLogger().log("INFO", "Deleting transaction ID " + transactionId);
-            Connection conn = dbHandler.getConnection();
+            Main.getLogger().log("INFO", () -> "Queueing new transaction: " + transaction.getDescription());
 
-            String query = "DELETE FROM transactions WHERE id = ?";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setInt(1, transactionId);
+            // The insert is batched by the write-behind queue, the totals follow once it is committed
+            writeBehind.enqueue(transaction);
+        } finally {
+            ADD_TIME.recordSince(start);
+        }
+    }
 
-            int rowsAffected = stmt.executeUpdate();
-            stmt.close();
+    /**
+     * Queues many new transactions at once, e.g. from a script. They are inserted in batches.
+     *
+     * @param transactions The transactions to insert
+     */
+    public void addTransactions(List<dev.zanex.mvc.model.Transaction> transactions) {
+        long start = System.nanoTime();
+        try {
+            Main.getLogger().log("INFO", () -> "Queueing " + transactions.size() + " new transactions");
 
-            if (rowsAffected > 0) {
-                Main.getLogger().log("INFO", "Transaction deleted successfully");
-            } else {
-                Main.getLogger().log("WARN", "No rows affected when deleting transaction ID " + transactionId);
+            for (dev.zanex.mvc.model.Transaction transaction : transactions) {
+                writeBehind.enqueue(transaction);
             }
-        } catch (SQLException e) {
-            Main.getLogger().log("ERROR", "Database error deleting transaction: " + e.getMessage());
-            ErrorHandler.showError(null, "Error deleting transaction", e);
+        } finally {
+            ADD_ALL_TIME.recordSince(start);
         }
     }
 
-    public void updateTransaction(dev.zanex.mvc.model.Transaction transaction) {
+    /**
+     * Imports a bank statement CSV file in large batches
+     *
+     * @param importer The importer to run, created with newCsvImporter()
+     * @param file The CSV file
+     * @param listener Receives progress updates, may be null
+     * @return Counts and the first errors of the import
+     * @throws IOException if the file cannot be read
+     * @throws SQLException if writing fails, batches written before stay committed
+     */
+    public CsvImporter.ImportResult importCsv(CsvImporter importer, Path file, CsvImporter.ProgressListener listener)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
         try {
-            Main.getLogger().log("INFO", "Updating transaction ID " + transaction.getId());
-            Connection conn = dbHandler.getConnection();
+            Main.getLogger().log("INFO", () -> "Importing transactions from " + file);
+            flushBeforeRead();
+
+            CsvImporter.ImportResult result = importer.importFile(file, listener);
+            Main.getLogger().log("SUCCESS", () -> "Imported " + result.imported() + " of " + result.lines() + " lines in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms, " + result.failed() + " failed");
+            return result;
+        } finally {
+            IMPORT_TIME.recordSince(start);
+        }
+    }
 
-            // Get category ID for this transaction type if it's needed
-            int categoryId = transaction.getId() > 0 ?
-                    getCurrentCategoryId(transaction.getId()) :
-                    getDefaultCategoryId(transaction.getType());
+    /**
+     * Creates a CSV importer whose batches are written directly, bypassing the write-behind queue
+     *
+     * @param settings Layout of the CSV file
+     * @return The importer
+     */
+    public CsvImporter newCsvImporter(CsvImportSettings settings) {
+        return new CsvImporter(settings, writeBehind::writeNow);
+    }
 
-            String query = "UPDATE transactions SET category_id = ?, amount = ?, description = ?, " +
-                    "transaction_date = ? WHERE id = ?";
+    /**
+     * Exports the transactions the current filter shows. The format is chosen by the file
+     * extension, .xlsx writes a workbook and anything else writes CSV.
+     *
+     * @param exporter The exporter to run, created with newExporter()
+     * @param file The target file
+     * @param listener Receives the number of written rows, may be null
+     * @return Number of exported rows
+     * @throws IOException if the file cannot be written
+     * @throws SQLException if the query fails
+     */
+    public long exportTransactions(TransactionExporter exporter, Path file, TransactionExporter.ProgressListener listener)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        try {
+            Main.getLogger().log("INFO", () -> "Exporting transactions to " + file);
+            flushBeforeRead();
+
+            TransactionFilter filter = this.filter;
+            FilterPlan plan = filterPlans.get(filter);
+            long rows = file.getFileName().toString().toLowerCase().endsWith(".xlsx")
+                    ? exporter.exportXlsx(filter.from(), filter.to(), plan, file, listener)
+                    : exporter.exportCsv(filter.from(), filter.to(), plan, file, listener);
+            Main.getLogger().log("SUCCESS", () -> "Exported " + rows + " transactions in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return rows;
+        } finally {
+            EXPORT_TIME.recordSince(start);
+        }
+    }
 
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setInt(1, categoryId);
-            stmt.setDouble(2, transaction.getAmount());
-            stmt.setString(3, transaction.getDescription());
-            stmt.setObject(4, transaction.getDate());
-            stmt.setInt(5, transaction.getId());
+    /**
+     * Creates an exporter that streams rows from the store
+     *
+     * @return The exporter
+     */
+    public TransactionExporter newExporter() {
+        return new TransactionExporter(store, categories);
+    }
 
-            int rowsAffected = stmt.executeUpdate();
-            stmt.close();
+    /**
+     * Writes all queued transactions and waits for the commit
+     *
+     * @throws SQLException if the pending rows could not be written
+     */
+    public void flushPendingWrites() throws SQLException {
+        writeBehind.flush();
+    }
 
-            if (rowsAffected > 0) {
+    /**
+     * Writes the remaining queued transactions, called on shutdown. Those the store cannot take are saved
+     * to a CSV file in the default import layout, so they can be imported once the store is back.
+     *
+     * @param unsavedFile File for the transactions that could not be written
+     */
+    public void shutdown(Path unsavedFile) {
+        List<dev.zanex.mvc.model.Transaction> unwritten = writeBehind.close();
+        if (!unwritten.isEmpty()) {
+            saveUnwritten(unwritten, unsavedFile);
+        }
+        if (changeBus != null) {
+            changeBus.close();
+        }
+    }
+
+    public void deleteTransaction(int transactionId) {
+        long start = System.nanoTime();
+        try {
+            Main.getLogger().log("INFO", () -> "Deleting transaction ID " + transactionId);
+
+            // The deleted amount has to be taken out of the summary totals, here and in the other instances
+            StoredTransaction previous = summaryService != null || changeBus != null ? store.get(transactionId) : null;
+
+            if (store.delete(transactionId)) {
+                if (cache != null) {
+                    cache.remove(transactionId);
+                }
+                if (searchIndex != null) {
+                    searchIndex.remove(transactionId);
+                }
+                if (previous != null) {
+                    TransactionType type = categories.getType(previous.categoryId());
+                    if (summaryService != null) {
+                        summaryService.remove(type, previous.date(), previous.cents());
+                    }
+                    publish(new ChangeBus.Change(transactionId, new ChangeBus.Posting(previous.date(), type, previous.cents()), null));
+                }
+                Main.getLogger().log("INFO", "Transaction deleted successfully");
+            } else {
+                Main.getLogger().log("WARN", () -> "No rows affected when deleting transaction ID " + transactionId);
+            }
+        } catch (SQLException e) {
+            Main.getLogger().log("ERROR", () -> "Database error deleting transaction: " + e.getMessage());
+            ErrorHandler.showError(null, "Error deleting transaction", e);
+        } finally {
+            DELETE_TIME.recordSince(start);
+        }
+    }
+
+    public void updateTransaction(dev.zanex.mvc.model.Transaction transaction) {
+        long start = System.nanoTime();
+        try {
+            Main.getLogger().log("INFO", () -> "Updating transaction ID " + transaction.getId());
+
+            // Keep the current category of an existing transaction, its old values also feed the summary delta
+            StoredTransaction previous = transaction.getId() > 0 ? store.get(transaction.getId()) : null;
+            int categoryId = previous != null ?
+                    previous.categoryId() :
+                    categories.getDefaultId(transaction.getType());
+
+            if (store.update(new StoredTransaction(transaction.getId(), transaction.getDate(), transaction.getAmount().cents(),
+                    categoryId, transaction.getDescription()))) {
+                writeThrough(transaction, categoryId);
+                if (previous != null) {
+                    TransactionType type = categories.getType(previous.categoryId());
+                    if (summaryService != null) {
+                        summaryService.remove(type, previous.date(), previous.cents());
+                        summaryService.add(type, transaction.getDate(), transaction.getAmount().cents());
+                    }
+                    publish(new ChangeBus.Change(transaction.getId(),
+                            new ChangeBus.Posting(previous.date(), type, previous.cents()),
+                            new ChangeBus.Posting(transaction.getDate(), type, transaction.getAmount().cents())));
+                }
                 Main.getLogger().log("INFO", "Transaction updated successfully");
             } else {
-                Main.getLogger().log("WARN", "No rows affected when updating transaction ID " + transaction.getId());
+                Main.getLogger().log("WARN", () -> "No rows affected when updating transaction ID " + transaction.getId());
             }
         } catch (SQLException e) {
-            Main.getLogger().log("ERROR", "Database error updating transaction: " + e.getMessage());
+            Main.getLogger().log("ERROR", () -> "Database error updating transaction: " + e.getMessage());
             ErrorHandler.showError(null, "Error updating transaction", e);
+        } finally {
+            UPDATE_TIME.recordSince(start);
+        }
+    }
+
+    // Called for every committed row of the write-behind queue and the CSV import
+    private void onFlushed(dev.zanex.mvc.model.Transaction transaction, int categoryId) {
+        SummaryService summaryService = this.summaryService;
+        if (summaryService != null) {
+            summaryService.add(transaction.getType(), transaction.getDate(), transaction.getAmount().cents());
+        }
+        writeThrough(transaction, categoryId);
+        publish(new ChangeBus.Change(transaction.getId(), null,
+                new ChangeBus.Posting(transaction.getDate(), transaction.getType(), transaction.getAmount().cents())));
+    }
+
+    // Called on the flusher thread for queued rows the store refused, they were dropped from the queue
+    private void onRejected(List<dev.zanex.mvc.model.Transaction> rejected, SQLException cause) {
+        StringBuilder message = new StringBuilder(rejected.size() == 1
+                ? "Eine Buchung wurde von der Datenbank abgelehnt und nicht gespeichert:\n"
+                : rejected.size() + " Buchungen wurden von der Datenbank abgelehnt und nicht gespeichert:\n");
+        for (int i = 0; i < Math.min(rejected.size(), MAX_REPORTED_REJECTS); i++) {
+            dev.zanex.mvc.model.Transaction transaction = rejected.get(i);
+            message.append(transaction.getDate().format(GERMAN_DATE)).append("  ").append(transaction.getAmount().format())
+                    .append("  ").append(transaction.getDescription()).append('\n');
+        }
+        if (rejected.size() > MAX_REPORTED_REJECTS) {
+            message.append("...\n");
+        }
+        message.append("Grund: ").append(cause.getMessage());
+        SwingUtilities.invokeLater(() -> ErrorHandler.showError(null, message.toString(), cause));
+    }
+
+    // Same layout as CsvImportSettings' defaults, amounts are signed by type like on a bank statement
+    private static void saveUnwritten(List<dev.zanex.mvc.model.Transaction> unwritten, Path file) {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (Files.size(file) == 0) {
+                out.write("Datum;Beschreibung;Betrag\n");
+            }
+            for (dev.zanex.mvc.model.Transaction transaction : unwritten) {
+                Money amount = transaction.getType() == TransactionType.EXPENSE
+                        ? Money.ZERO.minus(transaction.getAmount())
+                        : transaction.getAmount();
+                out.write(transaction.getDate().format(GERMAN_DATE) + ";\""
+                        + transaction.getDescription().replace("\"", "\"\"") + "\";" + amount.toPlainString(true) + "\n");
+            }
+            Main.getLogger().log("WARN", () -> unwritten.size() + " transactions could not be written and were saved to " + file);
+        } catch (IOException e) {
+            Main.getLogger().log("ERROR", () -> unwritten.size() + " transactions are lost, " + file + " cannot be written: " + e.getMessage());
+            for (dev.zanex.mvc.model.Transaction transaction : unwritten) {
+                Main.getLogger().log("ERROR", () -> "Lost transaction: " + transaction.getDate() + " " + transaction.getType() + " "
+                        + transaction.getAmount() + " " + transaction.getDescription());
+            }
         }
     }
 
-    // Helper method to get the default category ID for a transaction type
-    private int getDefaultCategoryId(TransactionType type) throws SQLException {
-        Connection conn = dbHandler.getConnection();
-        String query = "SELECT id FROM categories WHERE type = ? LIMIT 1";
+    // A read sees the rows committed so far if the queued ones cannot be written, they stay queued for the next flush
+    private void flushBeforeRead() {
+        try {
+            writeBehind.flush();
+        } catch (SQLException e) {
+            Main.getLogger().log("WARN", () -> "Reading without " + writeBehind.getPendingCount() + " queued transactions, flush failed: " + e.getMessage());
+        }
+    }
 
-        PreparedStatement stmt = conn.prepareStatement(query);
-        stmt.setString(1, type.name());
+    private void publish(ChangeBus.Change change) {
+        ChangeBus changeBus = this.changeBus;
+        if (changeBus != null) {
+            changeBus.publish(change);
+        }
+    }
 
-        ResultSet rs = stmt.executeQuery();
-        int categoryId = 1; // Default fallback
+    private static boolean sameCategories(List<Category> a, List<Category> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        // Category.equals() only compares ids
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i).getId() != b.get(i).getId() || !Objects.equals(a.get(i).getName(), b.get(i).getName())
+                    || a.get(i).getType() != b.get(i).getType()) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        if (rs.next()) {
-            categoryId = rs.getInt("id");
-        } else {
-            Main.getLogger().log("WARN", "No default category found for type " + type + ", using ID 1");
+    // Applies a successful write to the in-memory cache and the search index, if enabled
+    private void writeThrough(dev.zanex.mvc.model.Transaction transaction, int categoryId) {
+        if (transaction.getId() <= 0) {
+            return;
         }
 
-        rs.close();
-        stmt.close();
-        return categoryId;
+        TransactionCache cache = this.cache;
+        if (cache != null) {
+            cache.put(transaction.getId(), transaction.getDate(), transaction.getAmount().cents(),
+                    categoryId, transaction.getDescription());
+        }
+        SearchIndex searchIndex = this.searchIndex;
+        if (searchIndex != null) {
+            searchIndex.put(transaction.getId(), transaction.getDate(), transaction.getAmount().cents(),
+                    categoryId, transaction.getDescription());
+        }
     }
 
-    // Helper method to get the current category ID for an existing transaction
-    private int getCurrentCategoryId(int transactionId) throws SQLException {
-        Connection conn = dbHandler.getConnection();
-        String query = "SELECT category_id FROM transactions WHERE id = ?";
+    // Resolves category name and type of stored rows from the registry instead of a join
+    private List<Transaction> toView(List<StoredTransaction> rows) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>(rows.size());
+        for (StoredTransaction row : rows) {
+            Category category = categories.get(row.categoryId());
+            transactions.add(new Transaction(
+                    row.id(),
+                    row.date(),
+                    row.description(),
+                    Money.ofCents(row.cents()),
+                    category != null ? category.getName() : null,
+                    category != null ? category.getType() : null));
+        }
+        return transactions;
+    }
 
-        PreparedStatement stmt = conn.prepareStatement(query);
-        stmt.setInt(1, transactionId);
+    // Applies the writes of other instances to the totals and the cache, then tells the view. Notifications arrive
+    // unauthenticated over UDP, so they only name the rows and days to read again, their amounts are not used.
+    private class RemoteChanges implements ChangeBus.Listener {
+        @Override
+        public void transactionsChanged(List<ChangeBus.Change> changes) {
+            long start = System.nanoTime();
+            try {
+                TransactionCache cache = AppController.this.cache;
+                SearchIndex searchIndex = AppController.this.searchIndex;
+                Set<LocalDate> days = new TreeSet<>();
+                for (ChangeBus.Change change : changes) {
+                    if (change.before() != null) {
+                        days.add(change.before().date());
+                    }
+                    if (change.after() != null) {
+                        days.add(change.after().date());
+                    }
+
+                    StoredTransaction row = store.get(change.id());
+                    if (row != null) {
+                        days.add(row.date());
+                        if (cache != null) {
+                            cache.put(row.id(), row.date(), row.cents(), row.categoryId(), row.description());
+                        }
+                        if (searchIndex != null) {
+                            searchIndex.put(row.id(), row.date(), row.cents(), row.categoryId(), row.description());
+                        }
+                    } else {
+                        if (cache != null) {
+                            cache.remove(change.id());
+                        }
+                        if (searchIndex != null) {
+                            searchIndex.remove(change.id());
+                        }
+                    }
+                }
+
+                SummaryService summaryService = AppController.this.summaryService;
+                if (summaryService != null) {
+                    summaryService.reload(store, categories, days);
+                }
+                Main.getLogger().log("DEBUG", () -> "Applied " + changes.size() + " changes of another instance");
+                notifyRemoteChange(false);
+            } catch (SQLException e) {
+                Main.getLogger().log("WARN", () -> "Changes of another instance could not be applied, reloading: " + e.getMessage());
+                reloadRequired();
+            } finally {
+                REMOTE_CHANGES_TIME.recordSince(start);
+            }
+        }
 
-        ResultSet rs = stmt.executeQuery();
-        int categoryId = 1; // Default fallback
+        @Override
+        public void categoriesChanged() {
+            Main.getLogger().log("INFO", "Categories changed by another instance");
+            categories.invalidate();
+            notifyRemoteChange(true);
+        }
 
-        if (rs.next()) {
-            categoryId = rs.getInt("category_id");
+        @Override
+        public void reloadRequired() {
+            try {
+                if (summaryService != null) {
+                    loadSummary();
+                }
+                if (cache != null) {
+                    enableCache();
+                }
+                if (searchIndex != null) {
+                    enableSearch();
+                }
+            } catch (SQLException e) {
+                Main.getLogger().log("ERROR", () -> "Reload after changes of another instance failed: " + e.getMessage());
+            }
+            notifyRemoteChange(true);
         }
 
-        rs.close();
-        stmt.close();
-        return categoryId;
+        private void notifyRemoteChange(boolean reload) {
+            RemoteChangeListener listener = remoteChangeListener;
+            if (listener != null) {
+                listener.remoteChanged(reload);
+            }
+        }
+    }
+
+    /**
+     * Told about changes other instances made to the database, after they were applied to the totals and the cache
+     */
+    @FunctionalInterface
+    public interface RemoteChangeListener {
+        /**
+         * Called on the change bus thread
+         *
+         * @param reload true if the displayed rows have to be reloaded, false if they can be patched with getChangesSince()
+         */
+        void remoteChanged(boolean reload);
+    }
+
+    /**
+     * Income and expense totals of a date range
+     */
+    public record Summary(Money income, Money expenses, LocalDate from, LocalDate to) {
+        public Money balance() {
+            return income.minus(expenses);
+        }
+    }
+
+    /**
+     * Transactions written and deleted since a watermark, see TransactionChanges. Excluded are the ids of
+     * updated rows the filter no longer shows.
+     */
+    public record Changes(long watermark, List<Transaction> inserted, List<Transaction> updated, List<Integer> excluded,
+                          List<TransactionChanges.Tombstone> deleted, boolean complete) {
     }
 
     // Inner class to represent a transaction
@@ -217,15 +952,17 @@ public class AppController {
         private int id;
         private LocalDate date;
         private String description;
-        private double amount;
+        private Money amount;
         private String category;
+        private TransactionType type;
 
-        public Transaction(int id, LocalDate date, String description, double amount, String category) {
+        public Transaction(int id, LocalDate date, String description, Money amount, String category, TransactionType type) {
             this.id = id;
             this.date = date;
             this.description = description;
             this.amount = amount;
             this.category = category;
+            this.type = type;
         }
 
         public int getId() {
@@ -240,12 +977,16 @@ public class AppController {
             return description;
         }
 
-        public double getAmount() {
+        public Money getAmount() {
             return amount;
         }
 
         public String getCategory() {
             return category;
         }
+
+        public TransactionType getType() {
+            return type;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,349 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.Main;
+import dev.zanex.mvc.model.TransactionType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells other instances of the application working on the same database about transactions and categories
+ * written here, over UDP multicast. Changes published within a few milliseconds go out together, one
+ * datagram carries up to MAX_PACKET_CHANGES of them. Every datagram has a sequence number per sender, a
+ * receiver that misses one (UDP may drop datagrams) is told to reload instead of patching. A heartbeat
+ * with the last sequence number also reveals a lost last datagram.
+ */
+public class ChangeBus implements AutoCloseable {
+    private static final int MAGIC = 0x49544C42; // "ITLB"
+    private static final byte VERSION = 1;
+
+    private static final byte TRANSACTIONS = 1;
+    private static final byte CATEGORIES = 2;
+    private static final byte RELOAD = 3;
+    private static final byte HEARTBEAT = 4;
+
+    // Keeps datagrams below 1500 bytes, the usual Ethernet MTU
+    private static final int MAX_PACKET_CHANGES = 32;
+    private static final int MAX_CHANNEL_BYTES = 200;
+    private static final int RECEIVE_BUFFER_BYTES = 2048;
+    private static final long SEND_DELAY_MILLIS = 20;
+    private static final long HEARTBEAT_SECONDS = 5;
+
+    private final InetAddress group;
+    private final int port;
+    private final String channel;
+    private final Listener listener;
+    private final int maxChanges;
+    private final long instanceId = ThreadLocalRandom.current().nextLong();
+    private final MulticastSocket socket;
+    private final ScheduledExecutorService sender;
+
+    // Only used on the sender thread
+    private long sequence;
+
+    private List<Change> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledSend;
+
+    // Last sequence number per sender, only used on the receiver thread
+    private final Map<Long, Long> lastSequences = new HashMap<>();
+
+    /**
+     * Joins the multicast group and starts receiving
+     *
+     * @param group Multicast group address, e.g. 239.255.73.76
+     * @param port UDP port shared by all instances
+     * @param networkInterface Interface to send and receive on, or null for the system default
+     * @param channel Identifies the database, instances only listen to instances with the same channel
+     * @param listener Receives the changes of other instances on the receiver thread
+     * @param maxChanges More changes within one send delay are published as a request to reload
+     * @throws IOException if the socket cannot be opened or the group cannot be joined
+     */
+    public ChangeBus(InetAddress group, int port, NetworkInterface networkInterface, String channel, Listener listener,
+                     int maxChanges) throws IOException {
+        this.group = group;
+        this.port = port;
+        this.channel = channel;
+        this.listener = listener;
+        this.maxChanges = maxChanges;
+
+        // MulticastSocket binds with SO_REUSEADDR, so several instances on one machine share the port
+        socket = new MulticastSocket(port);
+        try {
+            socket.setTimeToLive(1);
+            socket.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+            if (networkInterface != null) {
+                socket.setNetworkInterface(networkInterface);
+            }
+            socket.joinGroup(new InetSocketAddress(group, port), networkInterface);
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+
+        sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-bus-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender.scheduleWithFixedDelay(() -> send(HEARTBEAT, List.of()), HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+
+        Thread receiver = new Thread(this::receive, "change-bus-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Queues a change for the other instances, it is sent together with the changes of the next few milliseconds
+     *
+     * @param change The change
+     */
+    public synchronized void publish(Change change) {
+        pending.add(change);
+        if (scheduledSend == null) {
+            scheduledSend = sender.schedule(this::sendPending, SEND_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Tells the other instances to reload their categories
+     */
+    public void publishCategoriesChanged() {
+        sender.execute(() -> send(CATEGORIES, List.of()));
+    }
+
+    /**
+     * Sends the queued changes, leaves the group and stops both threads
+     */
+    @Override
+    public void close() {
+        sender.execute(this::sendPending);
+        sender.shutdown();
+        try {
+            sender.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Closing the socket ends the blocking receive()
+        socket.close();
+    }
+
+    // Only ever runs on the sender thread
+    private void sendPending() {
+        List<Change> changes;
+        synchronized (this) {
+            scheduledSend = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = pending;
+            pending = new ArrayList<>();
+        }
+
+        // A bulk write like an import is cheaper to reload than to patch change by change
+        if (changes.size() > maxChanges) {
+            send(RELOAD, List.of());
+            return;
+        }
+        for (int i = 0; i < changes.size(); i += MAX_PACKET_CHANGES) {
+            send(TRANSACTIONS, changes.subList(i, Math.min(i + MAX_PACKET_CHANGES, changes.size())));
+        }
+    }
+
+    // Only ever runs on the sender thread. A heartbeat repeats the last sequence number instead of taking a new one.
+    private void send(byte type, List<Change> changes) {
+        if (type != HEARTBEAT) {
+            sequence++;
+        } else if (sequence == 0) {
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(RECEIVE_BUFFER_BYTES);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(instanceId);
+            out.writeLong(sequence);
+            out.writeUTF(channel);
+            out.writeByte(type);
+            out.writeShort(changes.size());
+            for (Change change : changes) {
+                out.writeInt(change.id());
+                writePosting(out, change.before());
+                writePosting(out, change.after());
+            }
+            socket.send(new DatagramPacket(bytes.toByteArray(), bytes.size(), group, port));
+        } catch (IOException e) {
+            // The receivers notice the missing sequence number and reload
+            Main.getLogger().log("WARN", () -> "Change notification could not be sent: " + e.getMessage());
+        }
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[RECEIVE_BUFFER_BYTES];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                handle(ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength()));
+            } catch (SocketException e) {
+                if (!socket.isClosed()) {
+                    Main.getLogger().log("ERROR", () -> "Change bus stopped receiving: " + e.getMessage());
+                }
+                return;
+            } catch (IOException e) {
+                Main.getLogger().log("WARN", () -> "Change notification could not be received: " + e.getMessage());
+            } catch (RuntimeException e) {
+                Main.getLogger().log("ERROR", () -> "Change notification could not be applied: " + e);
+            }
+        }
+    }
+
+    private void handle(ByteBuffer in) {
+        Long sender;
+        long sequence;
+        byte type;
+        List<Change> changes;
+        try {
+            if (in.getInt() != MAGIC || in.get() != VERSION) {
+                return;
+            }
+            sender = in.getLong();
+            sequence = in.getLong();
+            if (sender == instanceId || !channel.equals(readUtf(in))) {
+                return;
+            }
+            type = in.get();
+            int count = in.getShort();
+            changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                changes.add(new Change(in.getInt(), readPosting(in), readPosting(in)));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            Main.getLogger().log("WARN", () -> "Ignoring malformed change notification: " + e);
+            return;
+        }
+
+        // The first datagram of a sender only starts counting, everything before it was read from the database
+        Long last = lastSequences.put(sender, sequence);
+        if (last != null && sequence != last + (type == HEARTBEAT ? 0 : 1)) {
+            if (sequence > last) {
+                Main.getLogger().log("WARN", () -> "Missed " + (sequence - last - (type == HEARTBEAT ? 0 : 1))
+                        + " change notifications of instance " + Long.toHexString(sender) + ", reloading");
+                listener.reloadRequired();
+            } else {
+                // Reordered or duplicated, the reload or patch it belongs to already happened
+                lastSequences.put(sender, last);
+            }
+            return;
+        }
+
+        switch (type) {
+            case TRANSACTIONS -> listener.transactionsChanged(changes);
+            case CATEGORIES -> listener.categoriesChanged();
+            case RELOAD -> listener.reloadRequired();
+            default -> {
+                // Heartbeat, nothing to apply
+            }
+        }
+    }
+
+    // A posting is a presence byte followed by epoch day, type ordinal and cents
+    private static void writePosting(DataOutputStream out, Posting posting) throws IOException {
+        if (posting == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        out.writeInt((int) posting.date().toEpochDay());
+        out.writeByte(posting.type().ordinal());
+        out.writeLong(posting.cents());
+    }
+
+    private static Posting readPosting(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        LocalDate date = LocalDate.ofEpochDay(in.getInt());
+        byte type = in.get();
+        if (type < 0 || type >= TransactionType.values().length) {
+            throw new IllegalArgumentException("Unknown transaction type " + type);
+        }
+        return new Posting(date, TransactionType.values()[type], in.getLong());
+    }
+
+    // Reads a string written by DataOutputStream.writeUTF(), channels are plain ASCII in practice
+    private static String readUtf(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length > MAX_CHANNEL_BYTES) {
+            throw new IllegalArgumentException("Channel name too long");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A transaction written by another instance. Inserts have no before, deletes have no after.
+     * Anyone on the network can send one, receivers only take it as a hint which rows and days to read again.
+     *
+     * @param id Transaction id
+     * @param before Values before the change, or null
+     * @param after Values after the change, or null
+     */
+    public record Change(int id, Posting before, Posting after) {
+    }
+
+    /**
+     * What a transaction contributes to the totals
+     *
+     * @param date Transaction date
+     * @param type Income or expense
+     * @param cents Amount in cents
+     */
+    public record Posting(LocalDate date, TransactionType type, long cents) {
+    }
+
+    /**
+     * Receives the changes of other instances, always on the receiver thread
+     */
+    public interface Listener {
+        /**
+         * Transactions were inserted, updated or deleted
+         *
+         * @param changes The changes in the order they were made
+         */
+        void transactionsChanged(List<Change> changes);
+
+        /**
+         * Categories were changed
+         */
+        void categoriesChanged();
+
+        /**
+         * Changes were missed or too many to patch, everything derived from the database has to be reloaded
+         */
+        void reloadRequired();
+    }
+}
@@ -0,0 +1,97 @@
+package dev.zanex.mvc.controller;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Describes the layout of a bank statement CSV file. Column indexes are 0-based, the defaults match
+ * the common German export "Datum;Beschreibung;Betrag" with dates as dd.MM.yyyy and decimal commas.
+ */
+public class CsvImportSettings {
+    private char delimiter = ';';
+    private boolean header = true;
+    private Charset charset = StandardCharsets.UTF_8;
+    private int dateColumn = 0;
+    private int descriptionColumn = 1;
+    private int amountColumn = 2;
+    private int typeColumn = -1;
+    private String datePattern = "dd.MM.yyyy";
+    private boolean decimalComma = true;
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public boolean hasHeader() {
+        return header;
+    }
+
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public int getDateColumn() {
+        return dateColumn;
+    }
+
+    public void setDateColumn(int dateColumn) {
+        this.dateColumn = dateColumn;
+    }
+
+    public int getDescriptionColumn() {
+        return descriptionColumn;
+    }
+
+    public void setDescriptionColumn(int descriptionColumn) {
+        this.descriptionColumn = descriptionColumn;
+    }
+
+    public int getAmountColumn() {
+        return amountColumn;
+    }
+
+    public void setAmountColumn(int amountColumn) {
+        this.amountColumn = amountColumn;
+    }
+
+    /**
+     * Returns the column holding INCOME/EXPENSE, or -1 if the type is taken from the sign of the amount
+     *
+     * @return The type column or -1
+     */
+    public int getTypeColumn() {
+        return typeColumn;
+    }
+
+    public void setTypeColumn(int typeColumn) {
+        this.typeColumn = typeColumn;
+    }
+
+    public String getDatePattern() {
+        return datePattern;
+    }
+
+    public void setDatePattern(String datePattern) {
+        this.datePattern = datePattern;
+    }
+
+    public boolean isDecimalComma() {
+        return decimalComma;
+    }
+
+    public void setDecimalComma(boolean decimalComma) {
+        this.decimalComma = decimalComma;
+    }
+}
@@ -0,0 +1,333 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.Transaction;
+import dev.zanex.mvc.model.TransactionType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports bank statement CSV files in three stages: a reader thread cuts the file into chunks of lines,
+ * a pool of parser threads parses and validates the chunks in parallel, and the calling thread writes
+ * the valid rows in large batches. The number of chunks in flight is bounded, so memory use does not
+ * depend on the file size. Quoted fields are supported, line breaks inside quotes are not.
+ */
+public class CsvImporter {
+    private static final int CHUNK_LINES = 5000;
+    private static final int WRITE_BATCH_SIZE = 5000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final List<Transaction> END_OF_FILE = Collections.emptyList();
+
+    private final CsvImportSettings settings;
+    private final BatchWriter writer;
+    private final DateTimeFormatter dateFormatter;
+    private final int parserThreads;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Creates an importer
+     *
+     * @param settings Layout of the CSV file
+     * @param writer Writes batches of valid rows
+     */
+    public CsvImporter(CsvImportSettings settings, BatchWriter writer) {
+        this.settings = settings;
+        this.writer = writer;
+        this.dateFormatter = DateTimeFormatter.ofPattern(settings.getDatePattern());
+        this.parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * Stops the import after the batch currently being written. Batches already written stay committed.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Imports a file
+     *
+     * @param file The CSV file
+     * @param listener Receives progress updates from the writing thread, may be null
+     * @return Counts and the first errors of the import
+     * @throws IOException if the file cannot be read
+     * @throws SQLException if writing a batch fails, earlier batches stay committed
+     */
+    public ImportResult importFile(Path file, ProgressListener listener) throws IOException, SQLException {
+        long totalBytes = Files.size(file);
+        AtomicLong bytesRead = new AtomicLong();
+        AtomicLong linesRead = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<ImportError> errors = Collections.synchronizedList(new ArrayList<>());
+
+        BlockingQueue<List<Transaction>> parsed = new ArrayBlockingQueue<>(parserThreads * 2);
+        Semaphore chunksInFlight = new Semaphore(parserThreads * 2);
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        IOException[] readFailure = new IOException[1];
+        AtomicBoolean writerDone = new AtomicBoolean(false);
+
+        Thread reader = Thread.ofPlatform().name("csv-import-reader").daemon().start(() -> {
+            try (BufferedReader in = Files.newBufferedReader(file, settings.getCharset())) {
+                long lineNumber = 0;
+                if (settings.hasHeader() && in.readLine() != null) {
+                    lineNumber++;
+                }
+
+                List<String> chunk = new ArrayList<>(CHUNK_LINES);
+                long chunkStart = lineNumber + 1;
+                String line;
+                while (!cancelled && (line = in.readLine()) != null) {
+                    lineNumber++;
+                    bytesRead.addAndGet(line.length() + 1);
+                    chunk.add(line);
+
+                    if (chunk.size() == CHUNK_LINES) {
+                        submitChunk(parsers, chunksInFlight, parsed, chunk, chunkStart, failed, errors);
+                        chunk = new ArrayList<>(CHUNK_LINES);
+                        chunkStart = lineNumber + 1;
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    submitChunk(parsers, chunksInFlight, parsed, chunk, chunkStart, failed, errors);
+                }
+                linesRead.set(lineNumber);
+
+                // Wait until every chunk has been parsed before signalling the end
+                chunksInFlight.acquire(parserThreads * 2);
+            } catch (IOException e) {
+                readFailure[0] = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                parsers.shutdown();
+                signalEnd(parsed, writerDone);
+            }
+        });
+
+        long imported = 0;
+        try {
+            List<Transaction> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+            while (true) {
+                List<Transaction> rows = parsed.take();
+                if (rows == END_OF_FILE) {
+                    break;
+                }
+                if (cancelled) {
+                    continue; // Keep draining so the reader and parsers can finish
+                }
+
+                batch.addAll(rows);
+                if (batch.size() >= WRITE_BATCH_SIZE) {
+                    writer.write(batch);
+                    imported += batch.size();
+                    batch = new ArrayList<>(WRITE_BATCH_SIZE);
+                    if (listener != null) {
+                        listener.progress(bytesRead.get(), totalBytes, imported, failed.get());
+                    }
+                }
+            }
+
+            if (!batch.isEmpty() && !cancelled) {
+                writer.write(batch);
+                imported += batch.size();
+            }
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+        } catch (SQLException | RuntimeException e) {
+            cancel();
+            throw e;
+        } finally {
+            writerDone.set(true);
+
+            // Unblock the reader and parsers if the writer stopped early
+            if (reader.isAlive()) {
+                cancel();
+                parsed.clear();
+            }
+        }
+
+        if (readFailure[0] != null) {
+            throw readFailure[0];
+        }
+        if (listener != null) {
+            listener.progress(totalBytes, totalBytes, imported, failed.get());
+        }
+        return new ImportResult(linesRead.get(), imported, failed.get(), new ArrayList<>(errors), cancelled);
+    }
+
+    // Hands the end marker to the writer, giving up once the writer no longer listens
+    private static void signalEnd(BlockingQueue<List<Transaction>> parsed, AtomicBoolean writerDone) {
+        try {
+            while (!writerDone.get() && !parsed.offer(END_OF_FILE, 100, TimeUnit.MILLISECONDS)) {
+                // Queue is full, the writer is still busy with a batch
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submitChunk(ExecutorService parsers, Semaphore chunksInFlight, BlockingQueue<List<Transaction>> parsed,
+                             List<String> lines, long firstLineNumber, AtomicLong failed, List<ImportError> errors)
+            throws InterruptedException {
+        chunksInFlight.acquire();
+        parsers.execute(() -> {
+            try {
+                List<Transaction> rows = new ArrayList<>(lines.size());
+                for (int i = 0; i < lines.size(); i++) {
+                    long lineNumber = firstLineNumber + i;
+                    String line = lines.get(i);
+                    if (line.isBlank()) {
+                        continue;
+                    }
+
+                    try {
+                        rows.add(parseLine(line));
+                    } catch (IllegalArgumentException | DateTimeParseException e) {
+                        failed.incrementAndGet();
+                        if (errors.size() < MAX_REPORTED_ERRORS) {
+                            errors.add(new ImportError(lineNumber, e.getMessage()));
+                        }
+                    }
+                }
+                if (!cancelled) {
+                    parsed.put(rows);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                chunksInFlight.release();
+            }
+        });
+    }
+
+    // Parses and validates one line, throws IllegalArgumentException with a user-facing message
+    private Transaction parseLine(String line) {
+        List<String> fields = splitFields(line);
+
+        LocalDate date = LocalDate.parse(field(fields, settings.getDateColumn(), "Datum"), dateFormatter);
+        String description = field(fields, settings.getDescriptionColumn(), "Beschreibung").trim();
+        long cents = Money.parse(field(fields, settings.getAmountColumn(), "Betrag"), settings.isDecimalComma()).cents();
+
+        if (description.isEmpty()) {
+            throw new IllegalArgumentException("Beschreibung fehlt");
+        }
+        if (cents == 0) {
+            throw new IllegalArgumentException("Betrag ist 0");
+        }
+        if (Math.abs(cents) > Money.MAX_CENTS) {
+            throw new IllegalArgumentException("Betrag zu groß: " + cents / 100);
+        }
+
+        TransactionType type;
+        if (settings.getTypeColumn() >= 0) {
+            type = parseType(field(fields, settings.getTypeColumn(), "Typ"));
+        } else {
+            // Bank statements sign the amount, the application stores positive amounts plus a type
+            type = cents < 0 ? TransactionType.EXPENSE : TransactionType.INCOME;
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setType(type);
+        transaction.setDate(date);
+        transaction.setDescription(description);
+        transaction.setAmount(Money.ofCents(Math.abs(cents)));
+        return transaction;
+    }
+
+    private static String field(List<String> fields, int column, String name) {
+        if (column >= fields.size()) {
+            throw new IllegalArgumentException("Spalte " + name + " fehlt");
+        }
+        return fields.get(column);
+    }
+
+    private List<String> splitFields(String line) {
+        char delimiter = settings.getDelimiter();
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static TransactionType parseType(String text) {
+        return switch (text.trim().toUpperCase()) {
+            case "INCOME", "EINNAHME", "EINNAHMEN" -> TransactionType.INCOME;
+            case "EXPENSE", "AUSGABE", "AUSGABEN" -> TransactionType.EXPENSE;
+            default -> throw new IllegalArgumentException("Unbekannter Typ: " + text);
+        };
+    }
+
+    /**
+     * Writes a batch of parsed transactions
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(List<Transaction> transactions) throws SQLException;
+    }
+
+    /**
+     * Receives progress updates while a file is imported
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(long bytesRead, long totalBytes, long imported, long failed);
+    }
+
+    /**
+     * A line that could not be imported
+     */
+    public record ImportError(long lineNumber, String message) {
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public record ImportResult(long lines, long imported, long failed, List<ImportError> errors, boolean cancelled) {
+    }
+}
@@ -0,0 +1,96 @@
+package dev.zanex.mvc.controller;
+
+/**
+ * Sums of amounts in cents per day, stored in a Fenwick tree so that adding to a day and
+ * summing an arbitrary range of days both take O(log n). The covered day range grows on demand.
+ */
+public class DailyTotals {
+    private static final int INITIAL_DAYS = 366;
+
+    private long firstDay;
+    private long[] daily = new long[0];
+    private long[] tree = new long[1];
+
+    /**
+     * Adds an amount to a day
+     *
+     * @param epochDay The day as epoch day
+     * @param cents Amount in cents, negative to subtract
+     */
+    public void add(long epochDay, long cents) {
+        ensureCovered(epochDay);
+
+        int index = (int) (epochDay - firstDay);
+        daily[index] += cents;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += cents;
+        }
+    }
+
+    /**
+     * Sums all amounts between two days, both inclusive
+     *
+     * @param fromEpochDay First day
+     * @param toEpochDay Last day
+     * @return Sum in cents
+     */
+    public long sum(long fromEpochDay, long toEpochDay) {
+        if (fromEpochDay > toEpochDay) {
+            return 0;
+        }
+        return prefix(toEpochDay) - prefix(fromEpochDay - 1);
+    }
+
+    // Sum of all days up to and including the given day
+    private long prefix(long epochDay) {
+        if (daily.length == 0 || epochDay < firstDay) {
+            return 0;
+        }
+
+        int end = (int) Math.min(epochDay - firstDay + 1, daily.length);
+        long sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void ensureCovered(long epochDay) {
+        if (daily.length == 0) {
+            firstDay = epochDay - INITIAL_DAYS / 2;
+            resize(firstDay, INITIAL_DAYS);
+            return;
+        }
+
+        long lastDay = firstDay + daily.length - 1;
+        if (epochDay >= firstDay && epochDay <= lastDay) {
+            return;
+        }
+
+        // Grow by doubling towards the missing day so repeated extensions stay amortized O(1)
+        long newFirst = Math.min(firstDay, epochDay < firstDay ? epochDay - daily.length : firstDay);
+        long newLast = Math.max(lastDay, epochDay > lastDay ? epochDay + daily.length : lastDay);
+        resize(newFirst, (int) (newLast - newFirst + 1));
+    }
+
+    private void resize(long newFirstDay, int days) {
+        long[] newDaily = new long[days];
+        if (daily.length > 0) {
+            System.arraycopy(daily, 0, newDaily, (int) (firstDay - newFirstDay), daily.length);
+        }
+
+        firstDay = newFirstDay;
+        daily = newDaily;
+
+        // Linear-time Fenwick construction
+        tree = new long[days + 1];
+        System.arraycopy(daily, 0, tree, 1, days);
+        for (int i = 1; i <= days; i++) {
+            int parent = i + (i & -i);
+            if (parent <= days) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+}
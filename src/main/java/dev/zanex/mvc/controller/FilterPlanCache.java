@@ -0,0 +1,78 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.Main;
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.FilterPlan;
+import dev.zanex.mvc.model.TransactionFilter;
+import dev.zanex.utils.Metrics;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiled FilterPlans by the criteria of a filter, so paging, counting and summing one filter, switching
+ * between presets or moving the date range compile nothing. Plans resolve types into category ids, so all
+ * of them are dropped once the CategoryRegistry has loaded new categories.
+ */
+public class FilterPlanCache {
+    private static final int MAX_PLANS = 64;
+
+    private static final LongAdder HITS = Metrics.counter("filter.plans.hits");
+    private static final LongAdder MISSES = Metrics.counter("filter.plans.misses");
+
+    private final CategoryRegistry categories;
+    private final Map<TransactionFilter, FilterPlan> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TransactionFilter, FilterPlan> eldest) {
+            return size() > MAX_PLANS;
+        }
+    };
+    // The registry hands out a new list after every reload, the plans belong to this one
+    private List<Category> compiledFor;
+
+    public FilterPlanCache(CategoryRegistry categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Returns the plan for the criteria of a filter, compiling it on first use
+     *
+     * @param filter The filter, its date range is ignored
+     * @return The plan
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public FilterPlan get(TransactionFilter filter) throws SQLException {
+        if (filter.isRangeOnly()) {
+            return FilterPlan.NONE;
+        }
+
+        List<Category> all = categories.getAll();
+        TransactionFilter criteria = filter.criteria();
+        synchronized (plans) {
+            if (all != compiledFor) {
+                plans.clear();
+                compiledFor = all;
+            }
+
+            FilterPlan plan = plans.get(criteria);
+            if (plan != null) {
+                HITS.increment();
+                return plan;
+            }
+        }
+
+        MISSES.increment();
+        FilterPlan plan = FilterPlan.compile(criteria, all);
+        Main.getLogger().log("DEBUG", () -> "Compiled filter plan for " + criteria + ": " + plan.sqlCondition());
+        synchronized (plans) {
+            if (all == compiledFor) {
+                plans.put(criteria, plan);
+            }
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,173 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.Main;
+import dev.zanex.mvc.model.TransactionFilter;
+import dev.zanex.mvc.model.TransactionType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Named filter criteria the user saved to apply them again, kept in a properties file as
+ * preset.N.name, .min and .max in cents, .type, .categories as comma separated ids and .text.
+ * A preset has no date range, it is applied to the range currently shown.
+ */
+public class FilterPresets {
+    private final Path file;
+    private final List<Preset> presets = new ArrayList<>();
+
+    private FilterPresets(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the presets of a file. A missing or unreadable file gives no presets.
+     *
+     * @param file The presets file
+     * @return The presets
+     */
+    public static FilterPresets read(Path file) {
+        FilterPresets presets = new FilterPresets(file);
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return presets;
+        } catch (IOException | IllegalArgumentException e) {
+            Main.getLogger().log("WARN", () -> "Filter presets " + file + " cannot be read: " + e);
+            return presets;
+        }
+
+        for (int i = 0; properties.containsKey("preset." + i + ".name"); i++) {
+            String prefix = "preset." + i + ".";
+            try {
+                Set<Integer> categoryIds = new HashSet<>();
+                for (String id : properties.getProperty(prefix + "categories", "").split(",")) {
+                    if (!id.isBlank()) {
+                        categoryIds.add(Integer.parseInt(id.strip()));
+                    }
+                }
+                String type = properties.getProperty(prefix + "type", "");
+                presets.presets.add(new Preset(properties.getProperty(prefix + "name"), new TransactionFilter(null, null,
+                        parseCents(properties.getProperty(prefix + "min")),
+                        parseCents(properties.getProperty(prefix + "max")),
+                        type.isBlank() ? null : TransactionType.valueOf(type.strip()),
+                        categoryIds,
+                        properties.getProperty(prefix + "text"))));
+            } catch (IllegalArgumentException e) {
+                Main.getLogger().log("WARN", () -> "Skipping invalid filter preset " + prefix + "name: " + e.getMessage());
+            }
+        }
+        return presets;
+    }
+
+    /**
+     * Returns the presets in the order they were saved
+     *
+     * @return Unmodifiable list of presets
+     */
+    public synchronized List<Preset> getAll() {
+        return List.copyOf(presets);
+    }
+
+    /**
+     * Saves the criteria of a filter under a name, replacing a preset with the same name, and writes the file
+     *
+     * @param name The name
+     * @param filter The filter, its date range is not saved
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save(String name, TransactionFilter filter) throws IOException {
+        Preset preset = new Preset(name.strip(), filter.criteria());
+        int index = indexOf(preset.name());
+        if (index >= 0) {
+            presets.set(index, preset);
+        } else {
+            presets.add(preset);
+        }
+        write();
+    }
+
+    /**
+     * Removes a preset and writes the file
+     *
+     * @param name The name
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void remove(String name) throws IOException {
+        int index = indexOf(name);
+        if (index >= 0) {
+            presets.remove(index);
+            write();
+        }
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < presets.size(); i++) {
+            if (presets.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Written to a temporary file and moved over the old one, like the startup snapshot
+    private void write() throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i < presets.size(); i++) {
+            String prefix = "preset." + i + ".";
+            TransactionFilter criteria = presets.get(i).criteria();
+            properties.setProperty(prefix + "name", presets.get(i).name());
+            if (criteria.minCents() != null) {
+                properties.setProperty(prefix + "min", Long.toString(criteria.minCents()));
+            }
+            if (criteria.maxCents() != null) {
+                properties.setProperty(prefix + "max", Long.toString(criteria.maxCents()));
+            }
+            if (criteria.type() != null) {
+                properties.setProperty(prefix + "type", criteria.type().name());
+            }
+            if (!criteria.categoryIds().isEmpty()) {
+                properties.setProperty(prefix + "categories", String.join(",",
+                        criteria.categoryIds().stream().sorted().map(String::valueOf).toList()));
+            }
+            if (criteria.text() != null) {
+                properties.setProperty(prefix + "text", criteria.text());
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(out, "Filter presets");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Long parseCents(String value) {
+        return value == null || value.isBlank() ? null : Long.parseLong(value.strip());
+    }
+
+    /**
+     * A saved filter
+     *
+     * @param name Name shown to the user
+     * @param criteria The criteria, without a date range
+     */
+    public record Preset(String name, TransactionFilter criteria) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.Money;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full text index over transaction descriptions and category names for search-as-you-type.
+ * Descriptions repeat a lot, so every distinct description is indexed once: a trigram maps to the sorted
+ * codes of the descriptions containing it, and every description code to the rows using it. A query
+ * term of three or more characters only verifies the descriptions sharing all its trigrams, shorter
+ * terms check every distinct description.
+ * <p>
+ * Every term of a query has to occur in the description or the category name of a row. Rows are ranked
+ * by how well the terms match (start of the description, start of a word, anywhere, category only)
+ * and then newest first.
+ */
+public class SearchIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int PREFIX_SCORE = 3;
+    private static final int WORD_START_SCORE = 2;
+    private static final int SUBSTRING_SCORE = 1;
+    private static final int CATEGORY_SCORE = 1;
+    private static final int FREE_SLOT = -1;
+    private static final int MAX_TERMS = 8;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CategoryRegistry categories;
+
+    // Row columns by slot, slots of removed rows are reused
+    private int slotCount = 0;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private long[] amountCents = new long[INITIAL_CAPACITY];
+    private int[] categoryIds = new int[INITIAL_CAPACITY];
+    private int[] descriptionCodes = new int[INITIAL_CAPACITY];
+    // Position of the slot in the row list of its description
+    private int[] descriptionPositions = new int[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[16];
+    private int freeCount = 0;
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+
+    // Distinct descriptions, their lower case form and the slots using them
+    private final List<String> descriptions = new ArrayList<>();
+    private final List<String> normalized = new ArrayList<>();
+    private final Map<String, Integer> descriptionIndex = new HashMap<>();
+    private int[][] descriptionRows = new int[INITIAL_CAPACITY][];
+    private int[] descriptionRowCounts = new int[INITIAL_CAPACITY];
+
+    // Trigram of the lower case description -> ascending description codes
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+
+    public SearchIndex(CategoryRegistry categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Adds a transaction or replaces the indexed row with the same id
+     *
+     * @param id Transaction id
+     * @param date Transaction date
+     * @param cents Amount in cents
+     * @param categoryId Category id
+     * @param description Description
+     */
+    public void put(int id, LocalDate date, long cents, int categoryId, String description) {
+        lock.writeLock().lock();
+        try {
+            removeRow(id);
+
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+            ensureCapacity(slotCount);
+            int code = encode(description != null ? description : "");
+
+            ids[slot] = id;
+            epochDays[slot] = (int) date.toEpochDay();
+            amountCents[slot] = cents;
+            categoryIds[slot] = categoryId;
+            descriptionCodes[slot] = code;
+
+            int[] rows = descriptionRows[code];
+            int count = descriptionRowCounts[code];
+            if (rows == null) {
+                rows = descriptionRows[code] = new int[4];
+            } else if (count == rows.length) {
+                rows = descriptionRows[code] = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count] = slot;
+            descriptionPositions[slot] = count;
+            descriptionRowCounts[code] = count + 1;
+            slotById.put(id, slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a transaction from the index
+     *
+     * @param id Transaction id
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeRow(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed transactions
+     *
+     * @return Number of rows
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the transactions matching every term of the query, best matches and newest first
+     *
+     * @param query Terms separated by whitespace, case is ignored
+     * @param limit Maximum number of returned rows
+     * @return The best rows and the number of all matching rows
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public Result search(String query, int limit) throws SQLException {
+        String[] terms = Arrays.stream(normalize(query).trim().split("\\s+"))
+                .filter(term -> !term.isEmpty()).distinct().limit(MAX_TERMS).toArray(String[]::new);
+        if (terms.length == 0) {
+            return new Result(List.of(), 0);
+        }
+
+        // Category names are matched outside the lock, there are only a few of them. A term that matches
+        // a category name is optional in the description, the others have to be in it.
+        List<Category> allCategories = categories.getAll();
+        List<String> requiredTerms = new ArrayList<>();
+        List<String> optionalTerms = new ArrayList<>();
+        List<BitSet> optionalCategories = new ArrayList<>();
+        for (String term : terms) {
+            BitSet matches = new BitSet();
+            for (Category category : allCategories) {
+                if (category.getName() != null && normalize(category.getName()).contains(term)) {
+                    matches.set(category.getId());
+                }
+            }
+            if (matches.isEmpty()) {
+                requiredTerms.add(term);
+            } else {
+                optionalTerms.add(term);
+                optionalCategories.add(matches);
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            TopRows top = new TopRows(limit);
+            if (requiredTerms.isEmpty()) {
+                // Every row may match through its category, so every row is checked
+                scanAll(scoreOptionalTerms(optionalTerms, null), categoryTable(optionalCategories), top);
+            } else {
+                // Only rows of descriptions containing every required term can match
+                int[] codes = candidates(requiredTerms);
+                int[] scores = new int[codes.length];
+                int matching = 0;
+                for (int code : codes) {
+                    int score = descriptionRowCounts[code] > 0 ? descriptionScore(code, requiredTerms) : 0;
+                    if (score > 0) {
+                        codes[matching] = code;
+                        scores[matching++] = score;
+                    }
+                }
+
+                int[][] optionalScores = scoreOptionalTerms(optionalTerms, Arrays.copyOf(codes, matching));
+                for (int i = 0; i < matching; i++) {
+                    int[] rows = descriptionRows[codes[i]];
+                    for (int j = 0; j < descriptionRowCounts[codes[i]]; j++) {
+                        int slot = rows[j];
+                        int score = optionalTerms.isEmpty() ? 0
+                                : optionalScore(codes[i], categoryIds[slot], optionalScores, optionalCategories);
+                        if (optionalTerms.isEmpty() || score > 0) {
+                            top.offer(scores[i] + score, epochDays[slot], ids[slot]);
+                        }
+                    }
+                }
+            }
+
+            List<AppController.Transaction> rows = new ArrayList<>();
+            for (int id : top.idsDescending()) {
+                rows.add(toTransaction(slotById.get(id)));
+            }
+            return new Result(rows, top.total());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Kept apart from search() so the loop over all rows is compiled on its own
+    private void scanAll(int[][] scores, boolean[][] categoryMatches, TopRows top) {
+        int terms = scores.length;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int code = descriptionCodes[slot];
+            if (code == FREE_SLOT) {
+                continue;
+            }
+
+            int categoryId = categoryIds[slot];
+            int score = 0;
+            for (int t = 0; t < terms; t++) {
+                int termScore = scores[t][code];
+                if (termScore == 0) {
+                    boolean[] categories = categoryMatches[t];
+                    if (categoryId < 0 || categoryId >= categories.length || !categories[categoryId]) {
+                        score = 0;
+                        break;
+                    }
+                    termScore = CATEGORY_SCORE;
+                }
+                score += termScore;
+            }
+            if (score > 0) {
+                top.offer(score, epochDays[slot], ids[slot]);
+            }
+        }
+    }
+
+    // Category ids matching each term as a lookup table
+    private static boolean[][] categoryTable(List<BitSet> categoryMatches) {
+        boolean[][] table = new boolean[categoryMatches.size()][];
+        for (int t = 0; t < table.length; t++) {
+            BitSet matches = categoryMatches.get(t);
+            table[t] = new boolean[matches.length()];
+            for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                table[t][id] = true;
+            }
+        }
+        return table;
+    }
+
+    // Codes of the descriptions that may contain all terms: those sharing every trigram of the terms, or all
+    // descriptions if every term is shorter than a trigram
+    private int[] candidates(List<String> terms) {
+        List<Postings> lists = new ArrayList<>();
+        for (String term : terms) {
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                Postings postings = trigrams.get(trigram(term, i));
+                if (postings == null) {
+                    return new int[0];
+                }
+                lists.add(postings);
+            }
+        }
+        if (lists.isEmpty()) {
+            int[] all = new int[descriptions.size()];
+            Arrays.setAll(all, code -> code);
+            return all;
+        }
+
+        // Intersect starting with the shortest list, so the candidates only shrink
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        int[] result = Arrays.copyOf(lists.get(0).codes, lists.get(0).size);
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = intersect(result, size, lists.get(i));
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Keeps the codes also found in the postings, both are ascending. Galloping makes a short list cheap against a long one.
+    private static int intersect(int[] codes, int size, Postings postings) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < size && from < postings.size; i++) {
+            int code = codes[i];
+            int step = 1;
+            int to = from;
+            while (to < postings.size && postings.codes[to] < code) {
+                from = to + 1;
+                to += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(postings.codes, from, Math.min(to + 1, postings.size), code);
+            if (index >= 0) {
+                codes[kept++] = code;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+        }
+        return kept;
+    }
+
+    // Sum of the term scores of a description, 0 if a term is missing
+    private int descriptionScore(int code, List<String> terms) {
+        String description = normalized.get(code);
+        int score = 0;
+        for (String term : terms) {
+            int termScore = termScore(description, term);
+            if (termScore == 0) {
+                return 0;
+            }
+            score += termScore;
+        }
+        return score;
+    }
+
+    // Score of every optional term per description code, only filled for the given codes or the descriptions
+    // that may contain the term if codes is null
+    private int[][] scoreOptionalTerms(List<String> terms, int[] codes) {
+        int[][] scores = new int[terms.size()][];
+        for (int t = 0; t < terms.size(); t++) {
+            String term = terms.get(t);
+            scores[t] = new int[descriptions.size()];
+            for (int code : codes != null ? codes : candidates(List.of(term))) {
+                scores[t][code] = termScore(normalized.get(code), term);
+            }
+        }
+        return scores;
+    }
+
+    // Sum of the optional term scores of a row, a term missing in the description counts if it matches the category
+    private static int optionalScore(int code, int categoryId, int[][] scores, List<BitSet> categoryMatches) {
+        int score = 0;
+        for (int t = 0; t < scores.length; t++) {
+            int termScore = scores[t][code];
+            if (termScore == 0 && categoryMatches.get(t).get(categoryId)) {
+                termScore = CATEGORY_SCORE;
+            }
+            if (termScore == 0) {
+                return 0;
+            }
+            score += termScore;
+        }
+        return score;
+    }
+
+    private static int termScore(String description, String term) {
+        int index = description.indexOf(term);
+        if (index < 0) {
+            return 0;
+        }
+        if (index == 0) {
+            return PREFIX_SCORE;
+        }
+
+        // Prefer a match at the start of any word over one inside a word
+        for (; index > 0; index = description.indexOf(term, index + 1)) {
+            if (!Character.isLetterOrDigit(description.charAt(index - 1))) {
+                return WORD_START_SCORE;
+            }
+        }
+        return SUBSTRING_SCORE;
+    }
+
+    private void removeRow(int id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return;
+        }
+
+        // Move the last row of the description into the gap
+        int code = descriptionCodes[slot];
+        int[] rows = descriptionRows[code];
+        int last = --descriptionRowCounts[code];
+        int position = descriptionPositions[slot];
+        rows[position] = rows[last];
+        descriptionPositions[rows[position]] = position;
+
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        descriptionCodes[slot] = FREE_SLOT;
+    }
+
+    private int encode(String description) {
+        Integer code = descriptionIndex.get(description);
+        if (code != null) {
+            return code;
+        }
+
+        code = descriptions.size();
+        String lowerCase = normalize(description);
+        descriptions.add(description);
+        normalized.add(lowerCase);
+        descriptionIndex.put(description, code);
+        if (code == descriptionRowCounts.length) {
+            descriptionRows = Arrays.copyOf(descriptionRows, code * 2);
+            descriptionRowCounts = Arrays.copyOf(descriptionRowCounts, code * 2);
+        }
+
+        // New codes are the largest so far, so the postings stay sorted and a repeated trigram is the last entry
+        for (int i = 0; i + 3 <= lowerCase.length(); i++) {
+            Postings postings = trigrams.computeIfAbsent(trigram(lowerCase, i), key -> new Postings());
+            if (postings.size == 0 || postings.codes[postings.size - 1] != code) {
+                postings.add(code);
+            }
+        }
+        return code;
+    }
+
+    private AppController.Transaction toTransaction(int slot) throws SQLException {
+        Category category = categories.get(categoryIds[slot]);
+        return new AppController.Transaction(
+                ids[slot],
+                LocalDate.ofEpochDay(epochDays[slot]),
+                descriptions.get(descriptionCodes[slot]),
+                Money.ofCents(amountCents[slot]),
+                category != null ? category.getName() : null,
+                category != null ? category.getType() : null
+        );
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        amountCents = Arrays.copyOf(amountCents, newCapacity);
+        categoryIds = Arrays.copyOf(categoryIds, newCapacity);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, newCapacity);
+        descriptionPositions = Arrays.copyOf(descriptionPositions, newCapacity);
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    /**
+     * Result of a search
+     *
+     * @param rows The best matching rows, best and newest first
+     * @param total Number of all matching rows
+     */
+    public record Result(List<AppController.Transaction> rows, int total) {
+    }
+
+    // Growable list of ascending description codes
+    private static final class Postings {
+        private int[] codes = new int[4];
+        private int size;
+
+        private void add(int code) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            codes[size++] = code;
+        }
+    }
+
+    // Keeps the best rows in a min-heap of keys made of score, day and id, so matching rows are never sorted as a whole
+    private static final class TopRows {
+        private final long[] heap;
+        private int size;
+        private int total;
+
+        private TopRows(int limit) {
+            heap = new long[Math.max(0, limit)];
+        }
+
+        private void offer(int score, int epochDay, int id) {
+            total++;
+            // Score in the top bits, then the day (dates before 1970 rank as 1970) and the id
+            long key = ((long) score << 56) | ((long) Math.max(0, epochDay) << 31) | (id & 0x7FFFFFFFL);
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(size++);
+            } else if (size > 0 && key > heap[0]) {
+                heap[0] = key;
+                siftDown(0);
+            }
+        }
+
+        private int total() {
+            return total;
+        }
+
+        private int[] idsDescending() {
+            long[] keys = Arrays.copyOf(heap, size);
+            Arrays.sort(keys);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = (int) (keys[size - 1 - i] & 0x7FFFFFFFL);
+            }
+            return result;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (heap[parent] <= heap[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && heap[left] < heap[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && heap[right] < heap[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(smallest, index);
+                index = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long temp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = temp;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.Main;
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.TransactionType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the main window showed when the application was closed: the date range, its row count and
+ * first page, the totals and the categories. Written to a small binary file on exit and memory-mapped
+ * on the next start, so the window can be painted before the database answers.
+ *
+ * @param from First day of the displayed range
+ * @param to Last day of the displayed range
+ * @param count Number of rows in the range
+ * @param income Income total of the range
+ * @param expenses Expense total of the range
+ * @param firstPage The first page of the range as displayed
+ * @param categories All categories
+ */
+public record StartupSnapshot(LocalDate from, LocalDate to, int count, Money income, Money expenses,
+                              List<AppController.Transaction> firstPage, List<Category> categories) {
+    private static final int MAGIC = 0x49544C53; // "ITLS"
+    private static final int VERSION = 1;
+
+    /**
+     * Creates a snapshot of an empty range, shown while the first rows are loaded when there is no
+     * snapshot of the last session
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @return The snapshot
+     */
+    public static StartupSnapshot empty(LocalDate from, LocalDate to) {
+        return new StartupSnapshot(from, to, 0, Money.ZERO, Money.ZERO, List.of(), List.of());
+    }
+
+    /**
+     * Returns a copy with the given categories
+     *
+     * @param categories All categories
+     * @return The snapshot
+     */
+    public StartupSnapshot withCategories(List<Category> categories) {
+        return new StartupSnapshot(from, to, count, income, expenses, firstPage, categories);
+    }
+
+    /**
+     * Reads a snapshot
+     *
+     * @param file The snapshot file
+     * @return The snapshot or null if the file does not exist or cannot be read
+     */
+    public static StartupSnapshot read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                Main.getLogger().log("WARN", () -> "Ignoring startup snapshot " + file + " of an unknown format");
+                return null;
+            }
+
+            LocalDate from = LocalDate.ofEpochDay(in.getInt());
+            LocalDate to = LocalDate.ofEpochDay(in.getInt());
+            int count = in.getInt();
+            Money income = Money.ofCents(in.getLong());
+            Money expenses = Money.ofCents(in.getLong());
+
+            int categoryCount = in.getInt();
+            List<Category> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                int id = in.getInt();
+                TransactionType type = TransactionType.values()[in.get()];
+                categories.add(new Category(id, readString(in), type));
+            }
+
+            int rowCount = in.getInt();
+            List<AppController.Transaction> firstPage = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                int id = in.getInt();
+                LocalDate date = LocalDate.ofEpochDay(in.getInt());
+                Money amount = Money.ofCents(in.getLong());
+                byte type = in.get();
+                String description = readString(in);
+                String category = readString(in);
+                firstPage.add(new AppController.Transaction(id, date, description, amount, category,
+                        type >= 0 ? TransactionType.values()[type] : null));
+            }
+
+            return new StartupSnapshot(from, to, count, income, expenses, firstPage, categories);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            Main.getLogger().log("WARN", () -> "Startup snapshot " + file + " cannot be read: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and moves it over the target, so a crash never leaves
+     * a half written snapshot behind
+     *
+     * @param file The snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt((int) from.toEpochDay());
+            out.writeInt((int) to.toEpochDay());
+            out.writeInt(count);
+            out.writeLong(income.cents());
+            out.writeLong(expenses.cents());
+
+            out.writeInt(categories.size());
+            for (Category category : categories) {
+                out.writeInt(category.getId());
+                out.writeByte(category.getType().ordinal());
+                writeString(out, category.getName());
+            }
+
+            out.writeInt(firstPage.size());
+            for (AppController.Transaction transaction : firstPage) {
+                out.writeInt(transaction.getId());
+                out.writeInt((int) transaction.getDate().toEpochDay());
+                out.writeLong(transaction.getAmount().cents());
+                out.writeByte(transaction.getType() != null ? transaction.getType().ordinal() : -1);
+                writeString(out, transaction.getDescription());
+                writeString(out, transaction.getCategory());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Strings are stored as byte length (-1 for null) followed by UTF-8 bytes
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.TransactionStore;
+import dev.zanex.mvc.model.TransactionType;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Keeps income and expense totals per day and answers range sums in O(log n).
+ * Loaded once from the daily totals of the store, afterwards AppController feeds it the deltas of its writes
+ * and has the days other instances wrote to read again.
+ */
+public class SummaryService {
+    private final Map<TransactionType, DailyTotals> totals = new EnumMap<>(TransactionType.class);
+
+    public SummaryService() {
+        for (TransactionType type : TransactionType.values()) {
+            totals.put(type, new DailyTotals());
+        }
+    }
+
+    /**
+     * Builds the daily totals from the store
+     *
+     * @param store The store to read from
+     * @param categories Resolves the type of each category
+     * @return The filled service
+     * @throws SQLException if the totals cannot be read
+     */
+    public static SummaryService load(TransactionStore store, CategoryRegistry categories) throws SQLException {
+        SummaryService service = new SummaryService();
+
+        store.forEachDailyTotal((date, categoryId, cents) -> service.add(categories.getType(categoryId), date, cents));
+
+        return service;
+    }
+
+    /**
+     * Adds an amount to the totals, e.g. for an inserted transaction
+     *
+     * @param type Transaction type
+     * @param date Transaction date
+     * @param cents Amount in cents
+     */
+    public synchronized void add(TransactionType type, LocalDate date, long cents) {
+        totals.get(type).add(date.toEpochDay(), cents);
+    }
+
+    /**
+     * Removes an amount from the totals, e.g. for a deleted transaction
+     *
+     * @param type Transaction type
+     * @param date Transaction date
+     * @param cents Amount in cents
+     */
+    public synchronized void remove(TransactionType type, LocalDate date, long cents) {
+        totals.get(type).add(date.toEpochDay(), -cents);
+    }
+
+    /**
+     * Replaces the totals of single days with the sums read from the store, e.g. after another instance wrote to them
+     *
+     * @param store The store to read from
+     * @param categories Resolves the type of each category
+     * @param days The days to read again
+     * @throws SQLException if the sums cannot be read, days read before keep their new totals
+     */
+    public void reload(TransactionStore store, CategoryRegistry categories, Collection<LocalDate> days) throws SQLException {
+        for (LocalDate day : days) {
+            Map<TransactionType, Long> read = new EnumMap<>(TransactionType.class);
+            for (Map.Entry<Integer, Long> sum : store.sumByCategory(day, day).entrySet()) {
+                read.merge(categories.getType(sum.getKey()), sum.getValue(), Long::sum);
+            }
+
+            synchronized (this) {
+                long epochDay = day.toEpochDay();
+                for (TransactionType type : TransactionType.values()) {
+                    DailyTotals daily = totals.get(type);
+                    daily.add(epochDay, read.getOrDefault(type, 0L) - daily.sum(epochDay, epochDay));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sums the amounts of one type in a date range
+     *
+     * @param type Transaction type
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @return Sum in cents
+     */
+    public synchronized long sum(TransactionType type, LocalDate from, LocalDate to) {
+        return totals.get(type).sum(from.toEpochDay(), to.toEpochDay());
+    }
+}
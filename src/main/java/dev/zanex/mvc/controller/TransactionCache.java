@@ -0,0 +1,497 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.FilterPlan;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.TransactionStore;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process columnar copy of the transactions table. Rows are kept sorted by (transaction_date, id)
+ * in parallel primitive arrays, so a date range is found with two binary searches and read without
+ * touching the database. Writes made through AppController are applied here as well.
+ * Category names and types are resolved through the CategoryRegistry.
+ * <p>
+ * Filtered reads test the criteria of a FilterPlan column by column on blocks of the range instead of
+ * row by row, see select().
+ */
+public class TransactionCache {
+    private static final int INITIAL_CAPACITY = 1024;
+    // Rows a filter tests per pass, the selection vector of a block stays in the L1 cache
+    private static final int BLOCK_SIZE = 1024;
+    private static final byte TEXT_MATCH = 1;
+    private static final byte TEXT_MISMATCH = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CategoryRegistry categories;
+
+    // Row columns, sorted by (epochDays, ids)
+    private int size = 0;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private long[] amountCents = new long[INITIAL_CAPACITY];
+    private int[] categoryIds = new int[INITIAL_CAPACITY];
+    private int[] descriptionCodes = new int[INITIAL_CAPACITY];
+
+    // Dictionary for descriptions, which repeat a lot (rent, salary, groceries)
+    private final List<String> descriptions = new ArrayList<>();
+    private final Map<String, Integer> descriptionIndex = new HashMap<>();
+
+    // Secondary lookup
+    private final Map<Integer, Integer> epochDayById = new HashMap<>();
+
+    public TransactionCache(CategoryRegistry categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Loads all transactions into a new cache, streaming the rows
+     *
+     * @param store The store to read from
+     * @param categories Resolves category names and types of cached rows
+     * @return The filled cache
+     * @throws SQLException if the rows cannot be read
+     */
+    public static TransactionCache load(TransactionStore store, CategoryRegistry categories) throws SQLException {
+        TransactionCache cache = new TransactionCache(categories);
+
+        // Rows arrive in key order, so they are appended without searching
+        store.forEach(null, null, row -> cache.append(
+                row.id(),
+                (int) row.date().toEpochDay(),
+                row.cents(),
+                row.categoryId(),
+                row.description()));
+
+        return cache;
+    }
+
+    /**
+     * Counts the transactions in a date range
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @return Number of transactions
+     */
+    public int count(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            return upperBound(to) - lowerBound(from);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a page of the range ordered by date and id descending, continuing after the given row
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param after Last row of the previous page, or null for the first page
+     * @param limit Maximum number of rows
+     * @return The transactions of the page
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public List<AppController.Transaction> page(LocalDate from, LocalDate to, AppController.Transaction after, int limit) throws SQLException {
+        lock.readLock().lock();
+        try {
+            int low = lowerBound(from);
+            int high = upperBound(to);
+            if (after != null) {
+                high = Math.min(high, position((int) after.getDate().toEpochDay(), after.getId()));
+            }
+            return collectDescending(low, high, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a page of the range ordered by date and id descending, starting at the given position
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param offset Position of the first row
+     * @param limit Maximum number of rows
+     * @return The transactions of the page
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public List<AppController.Transaction> page(LocalDate from, LocalDate to, int offset, int limit) throws SQLException {
+        lock.readLock().lock();
+        try {
+            int low = lowerBound(from);
+            int high = upperBound(to) - offset;
+            return collectDescending(low, high, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the transactions in a date range that meet the criteria of a plan
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan The compiled criteria
+     * @return Number of matching transactions
+     */
+    public int count(LocalDate from, LocalDate to, FilterPlan plan) {
+        if (plan.isEmpty()) {
+            return count(from, to);
+        }
+
+        lock.readLock().lock();
+        try {
+            int high = upperBound(to);
+            int[] selection = new int[BLOCK_SIZE];
+            byte[] textMatches = new byte[descriptions.size()];
+            int count = 0;
+            for (int start = lowerBound(from); start < high; start += BLOCK_SIZE) {
+                count += select(plan, textMatches, start, Math.min(start + BLOCK_SIZE, high), selection);
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a page of the matching rows of a range ordered by date and id descending, continuing after the given row
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan The compiled criteria
+     * @param after Last row of the previous page, or null for the first page
+     * @param limit Maximum number of rows
+     * @return The transactions of the page
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public List<AppController.Transaction> page(LocalDate from, LocalDate to, FilterPlan plan, AppController.Transaction after,
+                                                int limit) throws SQLException {
+        if (plan.isEmpty()) {
+            return page(from, to, after, limit);
+        }
+
+        lock.readLock().lock();
+        try {
+            int high = upperBound(to);
+            if (after != null) {
+                high = Math.min(high, position((int) after.getDate().toEpochDay(), after.getId()));
+            }
+            return collectDescending(plan, lowerBound(from), high, 0, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a page of the matching rows of a range ordered by date and id descending, starting at the given position
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan The compiled criteria
+     * @param offset Position of the first row among the matching ones
+     * @param limit Maximum number of rows
+     * @return The transactions of the page
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public List<AppController.Transaction> page(LocalDate from, LocalDate to, FilterPlan plan, int offset, int limit) throws SQLException {
+        if (plan.isEmpty()) {
+            return page(from, to, offset, limit);
+        }
+
+        lock.readLock().lock();
+        try {
+            return collectDescending(plan, lowerBound(from), upperBound(to), offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sums the amounts of the matching rows of a date range per category
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan The compiled criteria
+     * @return Sum in cents by category id
+     */
+    public Map<Integer, Long> sumByCategory(LocalDate from, LocalDate to, FilterPlan plan) {
+        lock.readLock().lock();
+        try {
+            int high = upperBound(to);
+            int[] selection = new int[BLOCK_SIZE];
+            byte[] textMatches = new byte[descriptions.size()];
+            Map<Integer, Long> sums = new HashMap<>();
+            for (int start = lowerBound(from); start < high; start += BLOCK_SIZE) {
+                int selected = select(plan, textMatches, start, Math.min(start + BLOCK_SIZE, high), selection);
+                for (int k = 0; k < selected; k++) {
+                    sums.merge(categoryIds[selection[k]], amountCents[selection[k]], Long::sum);
+                }
+            }
+            return sums;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a transaction or replaces the cached row with the same id
+     *
+     * @param id Transaction id
+     * @param date Transaction date
+     * @param cents Amount in cents
+     * @param categoryId Category id
+     * @param description Description
+     */
+    public void put(int id, LocalDate date, long cents, int categoryId, String description) {
+        lock.writeLock().lock();
+        try {
+            removeRow(id);
+
+            int epochDay = (int) date.toEpochDay();
+            int index = position(epochDay, id);
+            ensureCapacity(size + 1);
+
+            int moved = size - index;
+            System.arraycopy(ids, index, ids, index + 1, moved);
+            System.arraycopy(epochDays, index, epochDays, index + 1, moved);
+            System.arraycopy(amountCents, index, amountCents, index + 1, moved);
+            System.arraycopy(categoryIds, index, categoryIds, index + 1, moved);
+            System.arraycopy(descriptionCodes, index, descriptionCodes, index + 1, moved);
+
+            setRow(index, id, epochDay, cents, categoryId, description);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a transaction from the cache
+     *
+     * @param id Transaction id
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeRow(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the category id of a cached transaction
+     *
+     * @param id Transaction id
+     * @return The category id or 0 if the transaction is not cached
+     */
+    public int getCategoryId(int id) {
+        lock.readLock().lock();
+        try {
+            int index = indexOf(id);
+            return index < 0 ? 0 : categoryIds[index];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of cached transactions
+     *
+     * @return Number of rows
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(int id, int epochDay, long cents, int categoryId, String description) {
+        ensureCapacity(size + 1);
+        setRow(size, id, epochDay, cents, categoryId, description);
+        size++;
+    }
+
+    private void setRow(int index, int id, int epochDay, long cents, int categoryId, String description) {
+        ids[index] = id;
+        epochDays[index] = epochDay;
+        amountCents[index] = cents;
+        categoryIds[index] = categoryId;
+        descriptionCodes[index] = encode(description);
+        epochDayById.put(id, epochDay);
+    }
+
+    private void removeRow(int id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return;
+        }
+
+        int moved = size - index - 1;
+        System.arraycopy(ids, index + 1, ids, index, moved);
+        System.arraycopy(epochDays, index + 1, epochDays, index, moved);
+        System.arraycopy(amountCents, index + 1, amountCents, index, moved);
+        System.arraycopy(categoryIds, index + 1, categoryIds, index, moved);
+        System.arraycopy(descriptionCodes, index + 1, descriptionCodes, index, moved);
+        size--;
+        epochDayById.remove(id);
+    }
+
+    private int indexOf(int id) {
+        Integer epochDay = epochDayById.get(id);
+        if (epochDay == null) {
+            return -1;
+        }
+
+        int index = position(epochDay, id);
+        return index < size && ids[index] == id ? index : -1;
+    }
+
+    private List<AppController.Transaction> collectDescending(int low, int high, int limit) throws SQLException {
+        List<AppController.Transaction> result = new ArrayList<>(Math.max(0, Math.min(limit, high - low)));
+        for (int i = high - 1; i >= low && result.size() < limit; i--) {
+            result.add(toTransaction(i));
+        }
+        return result;
+    }
+
+    // Walks the range in blocks from the newest row, skipping the first offset matching rows
+    private List<AppController.Transaction> collectDescending(FilterPlan plan, int low, int high, int offset, int limit)
+            throws SQLException {
+        List<AppController.Transaction> result = new ArrayList<>(Math.max(0, Math.min(limit, BLOCK_SIZE)));
+        int[] selection = new int[BLOCK_SIZE];
+        byte[] textMatches = new byte[descriptions.size()];
+        int skip = offset;
+        for (int end = high; end > low && result.size() < limit; end -= BLOCK_SIZE) {
+            int selected = select(plan, textMatches, Math.max(low, end - BLOCK_SIZE), end, selection);
+            if (selected <= skip) {
+                skip -= selected;
+                continue;
+            }
+            for (int k = selected - 1 - skip; k >= 0 && result.size() < limit; k--) {
+                result.add(toTransaction(selection[k]));
+            }
+            skip = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Writes the matching indexes of [start, end) into the selection vector, ascending, and returns how many there are.
+     * Every criterion narrows the selection of the previous one in its own tight loop over one column. The text
+     * is tested once per distinct description, textMatches remembers the result by description code.
+     */
+    private int select(FilterPlan plan, byte[] textMatches, int start, int end, int[] selection) {
+        int selected = 0;
+        if (plan.hasAmountCriterion()) {
+            for (int i = start; i < end; i++) {
+                selection[selected] = i;
+                selected += plan.matchesAmount(amountCents[i]) ? 1 : 0;
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                selection[selected++] = i;
+            }
+        }
+
+        if (plan.hasCategoryCriterion()) {
+            int kept = 0;
+            for (int k = 0; k < selected; k++) {
+                int i = selection[k];
+                selection[kept] = i;
+                kept += plan.matchesCategory(categoryIds[i]) ? 1 : 0;
+            }
+            selected = kept;
+        }
+
+        if (plan.hasTextCriterion()) {
+            int kept = 0;
+            for (int k = 0; k < selected; k++) {
+                int i = selection[k];
+                int code = descriptionCodes[i];
+                if (textMatches[code] == 0) {
+                    textMatches[code] = plan.matchesText(descriptions.get(code)) ? TEXT_MATCH : TEXT_MISMATCH;
+                }
+                selection[kept] = i;
+                kept += textMatches[code] == TEXT_MATCH ? 1 : 0;
+            }
+            selected = kept;
+        }
+        return selected;
+    }
+
+    private AppController.Transaction toTransaction(int index) throws SQLException {
+        Category category = categories.get(categoryIds[index]);
+        return new AppController.Transaction(
+                ids[index],
+                LocalDate.ofEpochDay(epochDays[index]),
+                descriptions.get(descriptionCodes[index]),
+                Money.ofCents(amountCents[index]),
+                category != null ? category.getName() : null,
+                category != null ? category.getType() : null
+        );
+    }
+
+    private int encode(String description) {
+        Integer code = descriptionIndex.get(description);
+        if (code == null) {
+            code = descriptions.size();
+            descriptions.add(description);
+            descriptionIndex.put(description, code);
+        }
+        return code;
+    }
+
+    // First index whose date is on or after the given day
+    private int lowerBound(LocalDate date) {
+        return position((int) date.toEpochDay(), Integer.MIN_VALUE);
+    }
+
+    // First index whose date is after the given day
+    private int upperBound(LocalDate date) {
+        return position((int) date.toEpochDay(), Integer.MAX_VALUE);
+    }
+
+    // First index whose key is greater than or equal to (epochDay, id)
+    private int position(int epochDay, int id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay || (epochDays[mid] == epochDay && ids[mid] < id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        amountCents = Arrays.copyOf(amountCents, newCapacity);
+        categoryIds = Arrays.copyOf(categoryIds, newCapacity);
+        descriptionCodes = Arrays.copyOf(descriptionCodes, newCapacity);
+    }
+}
@@ -0,0 +1,390 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.FilterPlan;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.TransactionStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports a date range of transactions with their categories as CSV or XLSX. Rows are streamed
+ * from the TransactionStore and written straight to the file through one reused character encoder and
+ * byte buffer, so the heap stays flat no matter how many rows are exported.
+ */
+public class TransactionExporter {
+    private static final String[] HEADER = {"ID", "Datum", "Kategorie", "Typ", "Beschreibung", "Betrag"};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private final TransactionStore store;
+    private final CategoryRegistry categories;
+    private volatile boolean cancelled = false;
+
+    public TransactionExporter(TransactionStore store, CategoryRegistry categories) {
+        this.store = store;
+        this.categories = categories;
+    }
+
+    /**
+     * Stops a running export after the current row. The partially written file is left in place.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Exports a range as semicolon separated CSV with German number and date formats, as Excel expects
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan Criteria the exported rows have to meet
+     * @param file Target file, replaced if it exists
+     * @param listener Receives the number of written rows every few thousand rows, may be null
+     * @return Number of exported rows
+     * @throws IOException if the file cannot be written
+     * @throws SQLException if the query fails
+     */
+    public long exportCsv(LocalDate from, LocalDate to, FilterPlan plan, Path file, ProgressListener listener) throws IOException, SQLException {
+        try (FileChannel channel = openChannel(file)) {
+            ChannelWriter out = new ChannelWriter(channel);
+            out.write('\uFEFF'); // BOM so Excel detects UTF-8
+
+            for (int i = 0; i < HEADER.length; i++) {
+                if (i > 0) {
+                    out.write(';');
+                }
+                out.write(HEADER[i]);
+            }
+            out.write("\r\n");
+
+            long rows = streamRows(from, to, plan, listener, (id, date, category, type, description, amount) -> {
+                out.writeInt(id);
+                out.write(';');
+                writeGermanDate(out, date);
+                out.write(';');
+                writeCsvText(out, category);
+                out.write(';');
+                writeCsvText(out, type);
+                out.write(';');
+                writeCsvText(out, description);
+                out.write(';');
+                out.write(amount.toPlainString().replace('.', ','));
+                out.write("\r\n");
+            });
+
+            out.flush();
+            return rows;
+        }
+    }
+
+    /**
+     * Exports a range as a single-sheet XLSX workbook. The sheet XML is streamed into the zip entry
+     * with inline strings, so no shared string table has to be kept in memory.
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan Criteria the exported rows have to meet
+     * @param file Target file, replaced if it exists
+     * @param listener Receives the number of written rows every few thousand rows, may be null
+     * @return Number of exported rows
+     * @throws IOException if the file cannot be written
+     * @throws SQLException if the query fails
+     */
+    public long exportXlsx(LocalDate from, LocalDate to, FilterPlan plan, Path file, ProgressListener listener) throws IOException, SQLException {
+        try (FileChannel channel = openChannel(file);
+             ZipOutputStream zip = new ZipOutputStream(Channels.newOutputStream(channel), StandardCharsets.UTF_8)) {
+
+            writeZipEntry(zip, "[Content_Types].xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                    "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+                    "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+                    "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+                    "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" +
+                    "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" +
+                    "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>" +
+                    "</Types>");
+            writeZipEntry(zip, "_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                    "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+                    "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+                    "</Relationships>");
+            writeZipEntry(zip, "xl/workbook.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                    "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" " +
+                    "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" +
+                    "<sheets><sheet name=\"Transaktionen\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+            writeZipEntry(zip, "xl/_rels/workbook.xml.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                    "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+                    "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>" +
+                    "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>" +
+                    "</Relationships>");
+            // Style 1 formats dates as dd.mm.yyyy, style 2 formats amounts with two decimals
+            writeZipEntry(zip, "xl/styles.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                    "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" +
+                    "<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"dd.mm.yyyy\"/></numFmts>" +
+                    "<fonts count=\"1\"><font/></fonts><fills count=\"1\"><fill/></fills><borders count=\"1\"><border/></borders>" +
+                    "<cellStyleXfs count=\"1\"><xf/></cellStyleXfs>" +
+                    "<cellXfs count=\"3\"><xf/><xf numFmtId=\"164\" applyNumberFormat=\"1\"/><xf numFmtId=\"4\" applyNumberFormat=\"1\"/></cellXfs>" +
+                    "</styleSheet>");
+
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            ChannelWriter out = new ChannelWriter(zip);
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                    "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData><row>");
+            for (String title : HEADER) {
+                writeXlsxText(out, title);
+            }
+            out.write("</row>");
+
+            long rows = streamRows(from, to, plan, listener, (id, date, category, type, description, amount) -> {
+                out.write("<row><c><v>");
+                out.writeInt(id);
+                out.write("</v></c><c s=\"1\"><v>");
+                out.writeLong(toExcelSerial(date));
+                out.write("</v></c>");
+                writeXlsxText(out, category);
+                writeXlsxText(out, type);
+                writeXlsxText(out, description);
+                out.write("<c s=\"2\"><v>");
+                out.write(amount.toPlainString());
+                out.write("</v></c></row>");
+            });
+
+            out.write("</sheetData></worksheet>");
+            out.flush();
+            zip.closeEntry();
+            return rows;
+        }
+    }
+
+    private long streamRows(LocalDate from, LocalDate to, FilterPlan plan, ProgressListener listener, RowWriter writer) throws IOException, SQLException {
+        cancelled = false;
+        long[] count = {0};
+
+        try {
+            store.forEach(from, to, plan, row -> {
+                if (cancelled) {
+                    throw new SQLException("Export cancelled");
+                }
+
+                Category category = categories.get(row.categoryId());
+                writer.write(row.id(), row.date(),
+                        category != null ? category.getName() : null,
+                        category != null ? category.getType().name() : null,
+                        row.description(), Money.ofCents(row.cents()).toBigDecimal());
+
+                if (++count[0] % PROGRESS_INTERVAL == 0 && listener != null) {
+                    listener.progress(count[0]);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (SQLException e) {
+            if (!cancelled) {
+                throw e;
+            }
+        }
+
+        if (listener != null) {
+            listener.progress(count[0]);
+        }
+        return count[0];
+    }
+
+    private static FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static void writeZipEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static void writeGermanDate(ChannelWriter out, LocalDate date) {
+        writeTwoDigits(out, date.getDayOfMonth());
+        out.write('.');
+        writeTwoDigits(out, date.getMonthValue());
+        out.write('.');
+        out.writeInt(date.getYear());
+    }
+
+    private static void writeTwoDigits(ChannelWriter out, int value) {
+        out.write((char) ('0' + value / 10));
+        out.write((char) ('0' + value % 10));
+    }
+
+    private static void writeCsvText(ChannelWriter out, String text) {
+        if (text == null) {
+            return;
+        }
+
+        boolean needsQuotes = false;
+        for (int i = 0; i < text.length() && !needsQuotes; i++) {
+            char c = text.charAt(i);
+            needsQuotes = c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!needsQuotes) {
+            out.write(text);
+            return;
+        }
+
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static void writeXlsxText(ChannelWriter out, String text) {
+        out.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '<' -> out.write("&lt;");
+                    case '>' -> out.write("&gt;");
+                    case '&' -> out.write("&amp;");
+                    case '"' -> out.write("&quot;");
+                    default -> {
+                        // Control characters other than tab and line breaks are not allowed in XML
+                        if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                            out.write(c);
+                        }
+                    }
+                }
+            }
+        }
+        out.write("</t></is></c>");
+    }
+
+    // Days since 1899-12-30, the day Excel counts from
+    private static long toExcelSerial(LocalDate date) {
+        return date.toEpochDay() + 25569;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(int id, LocalDate date, String category, String type, String description, BigDecimal amount);
+    }
+
+    /**
+     * Receives the number of exported rows while an export is running
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(long rows);
+    }
+
+    /**
+     * Encodes characters into a reused byte buffer and writes it to a channel or stream when full
+     */
+    private static class ChannelWriter {
+        private final FileChannel channel;
+        private final OutputStream stream;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        private final ByteBuffer bytes;
+
+        private ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+            this.stream = null;
+            this.bytes = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        }
+
+        private ChannelWriter(OutputStream stream) {
+            this.channel = null;
+            this.stream = stream;
+            this.bytes = ByteBuffer.allocate(BUFFER_SIZE * 4);
+        }
+
+        private void write(char c) {
+            if (!chars.hasRemaining()) {
+                drainChars();
+            }
+            chars.put(c);
+        }
+
+        private void write(String text) {
+            for (int offset = 0; offset < text.length(); ) {
+                if (!chars.hasRemaining()) {
+                    drainChars();
+                }
+                int length = Math.min(chars.remaining(), text.length() - offset);
+                chars.put(text, offset, offset + length);
+                offset += length;
+            }
+        }
+
+        private void writeInt(int value) {
+            writeLong(value);
+        }
+
+        private void writeLong(long value) {
+            if (value < 0) {
+                write('-');
+                value = -value;
+            }
+            if (value >= 10) {
+                writeLong(value / 10);
+            }
+            write((char) ('0' + value % 10));
+        }
+
+        private void flush() {
+            drainChars();
+            writeBytes();
+        }
+
+        private void drainChars() {
+            chars.flip();
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, false);
+                if (result.isOverflow()) {
+                    writeBytes();
+                } else {
+                    break;
+                }
+            }
+            // Keeps an unfinished surrogate pair for the next round
+            chars.compact();
+        }
+
+        private void writeBytes() {
+            bytes.flip();
+            try {
+                if (channel != null) {
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                } else {
+                    stream.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+                    bytes.position(bytes.limit());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            bytes.clear();
+        }
+    }
+}
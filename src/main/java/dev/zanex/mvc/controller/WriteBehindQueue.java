@@ -0,0 +1,301 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.Main;
+import dev.zanex.mvc.model.StoredTransaction;
+import dev.zanex.mvc.model.Transaction;
+import dev.zanex.mvc.model.TransactionStore;
+import dev.zanex.mvc.model.TransactionType;
+
+import java.io.IOException;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects new transactions and inserts them in batches. All transactions pending at flush time are
+ * written with one TransactionStore.insert() call (group commit).
+ * A flush happens once batchSize rows are pending, maxDelayMillis after the first pending row,
+ * when flush() is called and when the queue is closed.
+ * A batch the store rejects because of its data is split in halves until the offending rows are found,
+ * those are dropped and reported, the others are written. Any other failure keeps the rows queued.
+ */
+public class WriteBehindQueue {
+    // MySQL reports values it cannot convert, like characters outside the column charset, with the generic state HY000
+    private static final int MYSQL_INCORRECT_VALUE = 1366;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final TransactionStore store;
+    private final CategoryLookup categoryLookup;
+    private final FlushListener listener;
+    private final RejectListener rejectListener;
+    private final int batchSize;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService flusher;
+
+    private List<Transaction> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Creates a write-behind queue
+     *
+     * @param store The store the rows are inserted into
+     * @param categoryLookup Resolves the category of new transactions, called once per type and flush
+     * @param listener Notified for every row after its batch was committed
+     * @param rejectListener Notified of the rows the store refused, they are not retried
+     * @param batchSize Number of pending rows that triggers a flush
+     * @param maxDelayMillis Maximum time a row waits before it is flushed
+     */
+    public WriteBehindQueue(TransactionStore store, CategoryLookup categoryLookup, FlushListener listener,
+                            RejectListener rejectListener, int batchSize, long maxDelayMillis) {
+        this.store = store;
+        this.categoryLookup = categoryLookup;
+        this.listener = listener;
+        this.rejectListener = rejectListener;
+        this.batchSize = batchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a new transaction. Its id is set once the row has been flushed.
+     *
+     * @param transaction The transaction to insert
+     */
+    public synchronized void enqueue(Transaction transaction) {
+        pending.add(transaction);
+
+        if (pending.size() >= batchSize) {
+            flusher.execute(this::flushInBackground);
+        } else if (scheduledFlush == null) {
+            scheduledFlush = flusher.schedule(this::flushInBackground, maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the number of transactions waiting to be written
+     *
+     * @return Number of pending rows
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Writes all pending transactions and waits until they are committed. Rows the store rejected
+     * do not make it fail, they are dropped and passed to the RejectListener.
+     *
+     * @throws SQLException if the rows could not be written, they stay queued in that case
+     */
+    public void flush() throws SQLException {
+        // Flushes always run on the flusher thread so they never inherit a transaction or cancellation of the caller.
+        // Queuing behind a running background flush also waits for its batch, which is no longer counted as pending.
+        Future<?> result = flusher.submit(() -> {
+            writePending();
+            return null;
+        });
+
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while flushing pending transactions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Flushing pending transactions failed", e.getCause());
+        }
+    }
+
+    /**
+     * Flushes the remaining transactions and stops the flusher thread
+     *
+     * @return The transactions that could not be written, empty if all were committed
+     */
+    public List<Transaction> close() {
+        if (!flusher.isShutdown()) {
+            try {
+                flush();
+            } catch (SQLException e) {
+                Main.getLogger().log("ERROR", () -> "Pending transactions could not be written on shutdown: " + e.getMessage());
+            }
+            flusher.shutdown();
+        }
+        try {
+            // A batch still running may fail and requeue its rows, they are only collected once it is done
+            if (!flusher.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                Main.getLogger().log("WARN", "Write-behind flusher did not stop in time, rows still being written are not saved");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            List<Transaction> unwritten = pending;
+            pending = new ArrayList<>();
+            return unwritten;
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            writePending();
+        } catch (SQLException e) {
+            Main.getLogger().log("ERROR", () -> "Write-behind flush failed, " + getPendingCount() + " transactions stay queued: " + e.getMessage());
+        }
+    }
+
+    // Only ever runs on the flusher thread
+    private void writePending() throws SQLException {
+        List<Transaction> batch;
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        List<Transaction> rejected = new ArrayList<>();
+        SQLException rejection = null;
+        ArrayDeque<List<Transaction>> parts = new ArrayDeque<>();
+        parts.push(batch);
+        while (!parts.isEmpty()) {
+            List<Transaction> part = parts.pop();
+            try {
+                insert(part);
+            } catch (SQLException e) {
+                if (isRejection(e) && part.size() > 1) {
+                    // Halves that insert cleanly are committed, the rejected rows end up alone
+                    parts.push(part.subList(part.size() / 2, part.size()));
+                    parts.push(part.subList(0, part.size() / 2));
+                    continue;
+                }
+                if (isRejection(e)) {
+                    rejected.add(part.get(0));
+                    rejection = e;
+                    continue;
+                }
+                requeue(part, parts);
+                reportRejected(rejected, rejection);
+                throw e;
+            } catch (RuntimeException e) {
+                requeue(part, parts);
+                reportRejected(rejected, rejection);
+                throw e;
+            }
+        }
+        reportRejected(rejected, rejection);
+    }
+
+    // Puts the rows not written yet back in front of anything queued meanwhile so the next flush retries them in order
+    private void requeue(List<Transaction> part, ArrayDeque<List<Transaction>> remainingParts) {
+        List<Transaction> unwritten = new ArrayList<>(part);
+        for (List<Transaction> remaining : remainingParts) {
+            unwritten.addAll(remaining);
+        }
+        synchronized (this) {
+            unwritten.addAll(pending);
+            pending = unwritten;
+        }
+    }
+
+    private void reportRejected(List<Transaction> rejected, SQLException cause) {
+        if (!rejected.isEmpty()) {
+            Main.getLogger().log("ERROR", () -> "Store rejected " + rejected.size() + " queued transactions, dropping them: " + cause.getMessage());
+            rejectListener.rejected(List.copyOf(rejected), cause);
+        }
+    }
+
+    // Errors about the values of a row, as opposed to connection and I/O failures that every row would hit alike
+    private static boolean isRejection(SQLException e) {
+        if (e.getCause() instanceof IOException) {
+            return false;
+        }
+        String state = e.getSQLState();
+        return e instanceof SQLDataException || e instanceof SQLIntegrityConstraintViolationException
+                || state != null && (state.startsWith("22") || state.startsWith("23"))
+                || e.getErrorCode() == MYSQL_INCORRECT_VALUE;
+    }
+
+    /**
+     * Inserts the given transactions right away on the calling thread, bypassing the queue.
+     * Used by bulk writers that already produce batches of their own.
+     *
+     * @param transactions The transactions to insert
+     * @throws SQLException if the rows could not be written, nothing is committed in that case
+     */
+    public void writeNow(List<Transaction> transactions) throws SQLException {
+        if (!transactions.isEmpty()) {
+            insert(transactions);
+        }
+    }
+
+    // Writes the rows in one store call and notifies the listener after the commit
+    private void insert(List<Transaction> batch) throws SQLException {
+        Map<TransactionType, Integer> categoryIds = new EnumMap<>(TransactionType.class);
+        for (Transaction transaction : batch) {
+            if (!categoryIds.containsKey(transaction.getType())) {
+                categoryIds.put(transaction.getType(), categoryLookup.defaultCategoryId(transaction.getType()));
+            }
+        }
+
+        List<StoredTransaction> rows = new ArrayList<>(batch.size());
+        for (Transaction transaction : batch) {
+            rows.add(new StoredTransaction(0, transaction.getDate(), transaction.getAmount().cents(),
+                    categoryIds.get(transaction.getType()), transaction.getDescription()));
+        }
+
+        int[] ids = store.insert(rows);
+
+        for (int i = 0; i < batch.size(); i++) {
+            Transaction transaction = batch.get(i);
+            transaction.setId(ids[i]);
+            listener.flushed(transaction, categoryIds.get(transaction.getType()));
+        }
+        Main.getLogger().log("DEBUG", () -> "Inserted batch of " + batch.size() + " transactions");
+    }
+
+    /**
+     * Resolves the category new transactions of a type are stored under
+     */
+    @FunctionalInterface
+    public interface CategoryLookup {
+        int defaultCategoryId(TransactionType type) throws SQLException;
+    }
+
+    /**
+     * Receives the transactions the store refused to write, called on the flusher thread
+     */
+    @FunctionalInterface
+    public interface RejectListener {
+        void rejected(List<Transaction> transactions, SQLException cause);
+    }
+
+    /**
+     * Receives every transaction once it is committed
+     */
+    @FunctionalInterface
+    public interface FlushListener {
+        void flushed(Transaction transaction, int categoryId);
+    }
+}
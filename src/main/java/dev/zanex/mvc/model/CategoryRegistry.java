@@ -0,0 +1,152 @@
+package dev.zanex.mvc.model;
+
+import dev.zanex.Main;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps all categories in memory so transactions can be written and displayed without looking up
+ * or joining the categories table. Categories are loaded on first use into an array indexed by id,
+ * together with the category new transactions of each type are stored under. After categories
+ * have been changed, invalidate() makes the next access reload them.
+ */
+public class CategoryRegistry {
+    private final TransactionStore store;
+    private volatile Snapshot snapshot;
+
+    public CategoryRegistry(TransactionStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Uses the given categories until the next invalidate() unless categories were already loaded,
+     * e.g. the categories of a startup snapshot while the store is still being opened
+     *
+     * @param categories The categories
+     */
+    public void seed(List<Category> categories) {
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = build(categories);
+            }
+        }
+    }
+
+    /**
+     * Returns a category by id
+     *
+     * @param id Category id
+     * @return The category or null if no category has this id
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public Category get(int id) throws SQLException {
+        Category[] byId = snapshot().byId();
+        return id >= 0 && id < byId.length ? byId[id] : null;
+    }
+
+    /**
+     * Returns the name of a category
+     *
+     * @param id Category id
+     * @return The name or null if no category has this id
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public String getName(int id) throws SQLException {
+        Category category = get(id);
+        return category != null ? category.getName() : null;
+    }
+
+    /**
+     * Returns the transaction type of a category
+     *
+     * @param id Category id
+     * @return The type
+     * @throws SQLException if no category has this id or the categories cannot be loaded
+     */
+    public TransactionType getType(int id) throws SQLException {
+        Category category = get(id);
+        if (category == null) {
+            throw new SQLException("Unknown category ID " + id);
+        }
+        return category.getType();
+    }
+
+    /**
+     * Returns the id of the category new transactions of a type are stored under, which is
+     * the category with the lowest id of that type
+     *
+     * @param type Transaction type
+     * @return The category id, 1 if no category of the type exists
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public int getDefaultId(TransactionType type) throws SQLException {
+        Category category = snapshot().defaults().get(type);
+        if (category == null) {
+            Main.getLogger().log("WARN", () -> "No default category found for type " + type + ", using ID 1");
+            return 1;
+        }
+        return category.getId();
+    }
+
+    /**
+     * Returns all categories ordered by id
+     *
+     * @return Unmodifiable list of categories
+     * @throws SQLException if the categories have to be loaded and the query fails
+     */
+    public List<Category> getAll() throws SQLException {
+        return snapshot().all();
+    }
+
+    /**
+     * Drops the loaded categories, the next access reads them again. Call this after categories were
+     * added, renamed or deleted.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot snapshot() throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() throws SQLException {
+        List<Category> categories = store.loadCategories();
+        Main.getLogger().log("DEBUG", () -> "Loaded " + categories.size() + " categories");
+        return build(categories);
+    }
+
+    private static Snapshot build(List<Category> categories) {
+        int maxId = 0;
+        for (Category category : categories) {
+            maxId = Math.max(maxId, category.getId());
+        }
+
+        Category[] byId = new Category[maxId + 1];
+        Map<TransactionType, Category> defaults = new EnumMap<>(TransactionType.class);
+        for (Category category : categories) {
+            byId[category.getId()] = category;
+            defaults.putIfAbsent(category.getType(), category);
+        }
+
+        return new Snapshot(byId, defaults, Collections.unmodifiableList(new ArrayList<>(categories)));
+    }
+
+    private record Snapshot(Category[] byId, Map<TransactionType, Category> defaults, List<Category> all) {
+    }
+}
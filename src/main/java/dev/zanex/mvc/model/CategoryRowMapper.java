@@ -0,0 +1,28 @@
+package dev.zanex.mvc.model;
+
+import dev.zanex.utils.ColumnIndex;
+import dev.zanex.utils.CompiledRowMapper;
+import dev.zanex.utils.RowMapper;
+import dev.zanex.utils.StringDictionary;
+
+import java.sql.SQLException;
+
+/**
+ * Maps rows with the columns id, name and type of the categories table
+ */
+public class CategoryRowMapper extends CompiledRowMapper<Category> {
+    private final StringDictionary names = new StringDictionary();
+
+    @Override
+    protected RowMapper<Category> compile(ColumnIndex columns) throws SQLException {
+        int idColumn = columns.require("id");
+        int nameColumn = columns.require("name");
+        int typeColumn = columns.require("type");
+
+        return resultSet -> new Category(
+                resultSet.getInt(idColumn),
+                names.intern(resultSet.getString(nameColumn)),
+                TransactionType.valueOf(resultSet.getString(typeColumn))
+        );
+    }
+}
@@ -0,0 +1,158 @@
+package dev.zanex.mvc.model;
+
+import dev.zanex.utils.CancellationToken;
+import dev.zanex.utils.MySQLHandler;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Stands in for a store that is still being opened, so the UI can be built while the database
+ * connects. Every call waits until complete() or fail() was called and then goes to the real store.
+ */
+public class DeferredTransactionStore implements TransactionStore {
+    private final CompletableFuture<TransactionStore> target = new CompletableFuture<>();
+
+    /**
+     * Hands over the opened store and releases all waiting calls
+     *
+     * @param store The real store
+     */
+    public void complete(TransactionStore store) {
+        target.complete(store);
+    }
+
+    /**
+     * Makes all waiting and future calls fail, e.g. when the database cannot be reached
+     *
+     * @param cause Why the store could not be opened
+     */
+    public void fail(Throwable cause) {
+        target.completeExceptionally(cause);
+    }
+
+    public boolean isReady() {
+        return target.isDone() && !target.isCompletedExceptionally();
+    }
+
+    @Override
+    public List<Category> loadCategories() throws SQLException {
+        return target().loadCategories();
+    }
+
+    @Override
+    public int count(LocalDate from, LocalDate to) throws SQLException {
+        return target().count(from, to);
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, LocalDate afterDate, int afterId, int limit) throws SQLException {
+        return target().page(from, to, afterDate, afterId, limit);
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, int offset, int limit) throws SQLException {
+        return target().page(from, to, offset, limit);
+    }
+
+    @Override
+    public long forEach(LocalDate from, LocalDate to, TransactionCallback callback) throws SQLException {
+        return target().forEach(from, to, callback);
+    }
+
+    @Override
+    public void forEachDailyTotal(DailyTotalCallback callback) throws SQLException {
+        target().forEachDailyTotal(callback);
+    }
+
+    @Override
+    public Map<Integer, Long> sumByCategory(LocalDate from, LocalDate to) throws SQLException {
+        return target().sumByCategory(from, to);
+    }
+
+    @Override
+    public StoredTransaction get(int id) throws SQLException {
+        return target().get(id);
+    }
+
+    @Override
+    public int[] insert(List<StoredTransaction> transactions) throws SQLException {
+        return target().insert(transactions);
+    }
+
+    @Override
+    public boolean update(StoredTransaction transaction) throws SQLException {
+        return target().update(transaction);
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        return target().delete(id);
+    }
+
+    @Override
+    public long watermark() throws SQLException {
+        return target().watermark();
+    }
+
+    @Override
+    public TransactionChanges changesSince(long watermark, int limit) throws SQLException {
+        return target().changesSince(watermark, limit);
+    }
+
+    @Override
+    public int count(LocalDate from, LocalDate to, FilterPlan plan) throws SQLException {
+        return target().count(from, to, plan);
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, FilterPlan plan, LocalDate afterDate, int afterId,
+                                        int limit) throws SQLException {
+        return target().page(from, to, plan, afterDate, afterId, limit);
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, FilterPlan plan, int offset, int limit) throws SQLException {
+        return target().page(from, to, plan, offset, limit);
+    }
+
+    @Override
+    public long forEach(LocalDate from, LocalDate to, FilterPlan plan, TransactionCallback callback) throws SQLException {
+        return target().forEach(from, to, plan, callback);
+    }
+
+    @Override
+    public Map<Integer, Long> sumByCategory(LocalDate from, LocalDate to, FilterPlan plan) throws SQLException {
+        return target().sumByCategory(from, to, plan);
+    }
+
+    @Override
+    public <T> T runCancellable(CancellationToken token, MySQLHandler.CancellableWork<T> work) throws SQLException {
+        return target().runCancellable(token, work);
+    }
+
+    @Override
+    public void close() {
+        if (isReady()) {
+            target.join().close();
+        }
+    }
+
+    private TransactionStore target() throws SQLException {
+        try {
+            return target.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the transaction store", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw new SQLException("Transaction store is not available: " + sqlException.getMessage(), sqlException);
+            }
+            throw new SQLException("Transaction store is not available", e.getCause());
+        }
+    }
+}
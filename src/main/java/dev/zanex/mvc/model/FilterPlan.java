@@ -0,0 +1,160 @@
+package dev.zanex.mvc.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The criteria of a TransactionFilter compiled once for both ways they are evaluated: as a parameterized
+ * SQL condition that MySQL runs behind the date range, and as lookup tables that in-memory stores test
+ * column by column. The date range is not part of the plan, so filters that only differ in their
+ * range share it. The type is resolved into category ids, a plan has to be compiled again once the
+ * categories change.
+ */
+public final class FilterPlan {
+    /**
+     * Plan of a filter that has no criteria besides the date range
+     */
+    public static final FilterPlan NONE = new FilterPlan(Long.MIN_VALUE, Long.MAX_VALUE, null, null, "", new Object[0]);
+
+    private final long minCents;
+    private final long maxCents;
+    // Allowed category ids by id, null if every category is allowed
+    private final boolean[] categories;
+    private final String text;
+    private final String sqlCondition;
+    private final Object[] sqlParameters;
+
+    private FilterPlan(long minCents, long maxCents, boolean[] categories, String text, String sqlCondition, Object[] sqlParameters) {
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+        this.categories = categories;
+        this.text = text;
+        this.sqlCondition = sqlCondition;
+        this.sqlParameters = sqlParameters;
+    }
+
+    /**
+     * Compiles the criteria of a filter, its date range is ignored
+     *
+     * @param filter The filter
+     * @param allCategories All categories, resolve the type of the filter
+     * @return The plan
+     */
+    public static FilterPlan compile(TransactionFilter filter, List<Category> allCategories) {
+        if (filter.isRangeOnly()) {
+            return NONE;
+        }
+
+        StringBuilder sql = new StringBuilder();
+        List<Object> parameters = new ArrayList<>();
+        // Conditions follow the date range of the query, the most selective index stays the date index
+        if (filter.minCents() != null) {
+            sql.append("AND amount >= ? ");
+            parameters.add(Money.ofCents(filter.minCents()).toBigDecimal());
+        }
+        if (filter.maxCents() != null) {
+            sql.append("AND amount <= ? ");
+            parameters.add(Money.ofCents(filter.maxCents()).toBigDecimal());
+        }
+
+        boolean[] categories = null;
+        if (filter.type() != null || !filter.categoryIds().isEmpty()) {
+            List<Integer> allowed = new ArrayList<>();
+            int maxId = 0;
+            for (Category category : allCategories) {
+                if ((filter.type() == null || category.getType() == filter.type())
+                        && (filter.categoryIds().isEmpty() || filter.categoryIds().contains(category.getId()))) {
+                    allowed.add(category.getId());
+                    maxId = Math.max(maxId, category.getId());
+                }
+            }
+
+            categories = new boolean[maxId + 1];
+            for (int id : allowed) {
+                categories[id] = true;
+            }
+            if (allowed.isEmpty()) {
+                sql.append("AND 1 = 0 ");
+            } else {
+                sql.append("AND category_id IN (").append("?, ".repeat(allowed.size() - 1)).append("?) ");
+                parameters.addAll(allowed);
+            }
+        }
+
+        String text = null;
+        if (filter.text() != null) {
+            text = filter.text().toLowerCase(Locale.ROOT);
+            // Case-insensitive but accent-sensitive like the in-memory match, the default collation would also
+            // let "Muller" find "Müller"
+            sql.append("AND description LIKE ? COLLATE utf8mb4_0900_as_ci ESCAPE '!' ");
+            parameters.add("%" + filter.text().replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+        }
+
+        return new FilterPlan(
+                filter.minCents() != null ? filter.minCents() : Long.MIN_VALUE,
+                filter.maxCents() != null ? filter.maxCents() : Long.MAX_VALUE,
+                categories, text, sql.toString(), parameters.toArray());
+    }
+
+    /**
+     * Returns true if the plan lets every row of the date range through
+     *
+     * @return Whether there are no criteria
+     */
+    public boolean isEmpty() {
+        return this == NONE;
+    }
+
+    /**
+     * Tests a row against the criteria, not against the date range
+     *
+     * @param row The row
+     * @return true if the row meets every criterion
+     */
+    public boolean matches(StoredTransaction row) {
+        return matchesAmount(row.cents()) && matchesCategory(row.categoryId()) && matchesText(row.description());
+    }
+
+    public boolean matchesAmount(long cents) {
+        return cents >= minCents && cents <= maxCents;
+    }
+
+    public boolean matchesCategory(int categoryId) {
+        return categories == null || categoryId >= 0 && categoryId < categories.length && categories[categoryId];
+    }
+
+    public boolean matchesText(String description) {
+        return text == null || description != null && description.toLowerCase(Locale.ROOT).contains(text);
+    }
+
+    public boolean hasAmountCriterion() {
+        return minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE;
+    }
+
+    public boolean hasCategoryCriterion() {
+        return categories != null;
+    }
+
+    public boolean hasTextCriterion() {
+        return text != null;
+    }
+
+    /**
+     * Returns the SQL condition to append behind the date range of a query on the transactions table
+     *
+     * @return Conditions each starting with AND, empty for a plan without criteria
+     */
+    public String sqlCondition() {
+        return sqlCondition;
+    }
+
+    /**
+     * Returns the parameters of sqlCondition() in order
+     *
+     * @return The parameters
+     */
+    public Object[] sqlParameters() {
+        return sqlParameters.clone();
+    }
+}
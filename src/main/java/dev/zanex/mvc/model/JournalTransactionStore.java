@@ -0,0 +1,826 @@
+package dev.zanex.mvc.model;
+
+import dev.zanex.Main;
+import dev.zanex.utils.Histogram;
+import dev.zanex.utils.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * TransactionStore in a single append-only journal file, used to run without a MySQL server.
+ * Every insert, update and delete appends checksummed records to the memory-mapped file and forces
+ * them to disk before returning. On open the journal is replayed into an in-memory index of
+ * (date, id) keys, so counts and pages are binary searches and rows are decoded straight from the
+ * mapping. Updates and deletes leave dead records behind, the journal is rewritten without them once
+ * they take up more space than the live rows.
+ * <p>
+ * Record layout: payload length (int), type (byte), payload, CRC32C of type and payload (int).
+ * A length of 0 marks the end of the journal.
+ * <p>
+ * Watermarks count the writes since the store was opened. The last CHANGE_LOG_SIZE writes are kept in
+ * memory for changesSince(), older watermarks get an incomplete answer.
+ */
+public class JournalTransactionStore implements TransactionStore {
+    private static final int MAGIC = 0x49544C4A; // "ITLJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_OVERHEAD = 9;
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final int FOREACH_CHUNK = 1024;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CATEGORY = 3;
+
+    // Payload offsets of PUT records, relative to the start of the record
+    private static final int ID = 5;
+    private static final int EPOCH_DAY = 9;
+    private static final int CENTS = 13;
+    private static final int CATEGORY_ID = 21;
+    private static final int DESCRIPTION_LENGTH = 25;
+    private static final int DESCRIPTION = 29;
+
+    private static final int CHANGE_LOG_SIZE = 64 * 1024;
+    private static final byte INSERTED = 1;
+    private static final byte UPDATED = 2;
+    private static final byte DELETED = 3;
+
+    private static final long COMPACTION_MIN_DEAD_BYTES = 4L * 1024 * 1024;
+    private static final long COMPACTION_CHECK_MINUTES = 10;
+
+    private static final Histogram WRITE_TIME = Metrics.timer("journal.write");
+    private static final Histogram COMPACT_TIME = Metrics.timer("journal.compact");
+
+    private final Path file;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Category> categories = new TreeMap<>();
+    private final ScheduledExecutorService compactor;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long deadBytes;
+    private int nextId = 1;
+
+    // Offset of the live record of every id, 0 if the id has no live row
+    private int[] offsetById = new int[1024];
+
+    // (epochDay, id) of all live rows, sorted, see key()
+    private long[] keys = new long[1024];
+    private int size;
+
+    // The most recent writes as (epochDay, id) key and kind, the first entry has the watermark changeBase
+    private final long[] changeKeys = new long[CHANGE_LOG_SIZE];
+    private final byte[] changeKinds = new byte[CHANGE_LOG_SIZE];
+    private int changeCount;
+    private long changeBase;
+
+    /**
+     * Opens a journal, creating it with the default categories if the file does not exist
+     *
+     * @param file The journal file
+     * @throws SQLException if the file cannot be opened or is not a journal
+     */
+    public JournalTransactionStore(Path file) throws SQLException {
+        this.file = file;
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            closeChannel();
+            throw new SQLException("Journal " + file + " cannot be opened: " + e.getMessage(), e);
+        }
+
+        Main.getLogger().log("INFO", () -> "Journal " + file + " opened with " + size + " transactions");
+        compactIfWorthwhile();
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfWorthwhile, COMPACTION_CHECK_MINUTES, COMPACTION_CHECK_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public List<Category> loadCategories() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(categories.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            return upperBound(to) - lowerBound(from);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, LocalDate afterDate, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            int high = upperBound(to);
+            if (afterDate != null) {
+                high = Math.min(high, firstAtLeast(key((int) afterDate.toEpochDay(), afterId)));
+            }
+            return collectDescending(lowerBound(from), high, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return collectDescending(lowerBound(from), upperBound(to) - offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Decodes chunks under the read lock and runs the callback outside of it, so slow consumers like exports do not block writers
+    @Override
+    public long forEach(LocalDate from, LocalDate to, TransactionCallback callback) throws SQLException {
+        long lastKey = from != null ? key((int) from.toEpochDay(), 0) - 1 : Long.MIN_VALUE;
+        long endKey = to != null ? key((int) to.toEpochDay() + 1, 0) : Long.MAX_VALUE;
+        List<StoredTransaction> chunk = new ArrayList<>(FOREACH_CHUNK);
+        long count = 0;
+
+        while (true) {
+            chunk.clear();
+            lock.readLock().lock();
+            try {
+                int position = lastKey == Long.MIN_VALUE ? 0 : firstAtLeast(lastKey + 1);
+                while (position < size && keys[position] < endKey && chunk.size() < FOREACH_CHUNK) {
+                    lastKey = keys[position];
+                    chunk.add(decode(offsetById[idOf(lastKey)]));
+                    position++;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            for (StoredTransaction transaction : chunk) {
+                callback.accept(transaction);
+            }
+            count += chunk.size();
+            if (chunk.size() < FOREACH_CHUNK) {
+                return count;
+            }
+        }
+    }
+
+    @Override
+    public void forEachDailyTotal(DailyTotalCallback callback) throws SQLException {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Long> day = new HashMap<>();
+            int currentDay = 0;
+            for (int i = 0; i < size; i++) {
+                int epochDay = epochDayOf(keys[i]);
+                if (epochDay != currentDay && !day.isEmpty()) {
+                    emitDay(currentDay, day, callback);
+                }
+                currentDay = epochDay;
+
+                int offset = offsetById[idOf(keys[i])];
+                day.merge(buffer.getInt(offset + CATEGORY_ID), buffer.getLong(offset + CENTS), Long::sum);
+            }
+            emitDay(currentDay, day, callback);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Integer, Long> sumByCategory(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Long> sums = new HashMap<>();
+            for (int i = lowerBound(from), high = upperBound(to); i < high; i++) {
+                int offset = offsetById[idOf(keys[i])];
+                sums.merge(buffer.getInt(offset + CATEGORY_ID), buffer.getLong(offset + CENTS), Long::sum);
+            }
+            return sums;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public StoredTransaction get(int id) {
+        lock.readLock().lock();
+        try {
+            int offset = liveOffset(id);
+            return offset != 0 ? decode(offset) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int[] insert(List<StoredTransaction> transactions) throws SQLException {
+        if (transactions.isEmpty()) {
+            return new int[0];
+        }
+
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            byte[][] descriptions = new byte[transactions.size()][];
+            long bytes = 0;
+            for (int i = 0; i < descriptions.length; i++) {
+                String description = transactions.get(i).description();
+                descriptions[i] = description != null ? description.getBytes(StandardCharsets.UTF_8) : null;
+                bytes += putRecordSize(descriptions[i]);
+            }
+            ensureCapacity(bytes);
+
+            // The first length is written last, so a crash in between leaves none of the rows in the journal
+            int first = end;
+            int firstLength = 0;
+            int[] ids = new int[descriptions.length];
+            long[] added = new long[descriptions.length];
+            for (int i = 0; i < descriptions.length; i++) {
+                StoredTransaction transaction = transactions.get(i);
+                ids[i] = nextId++;
+                int offset = end;
+                int recordSize = writePut(buffer, offset, ids[i], transaction, descriptions[i], i > 0);
+                if (i == 0) {
+                    firstLength = recordSize - RECORD_OVERHEAD;
+                }
+                end += recordSize;
+                setOffset(ids[i], offset);
+                added[i] = key((int) transaction.date().toEpochDay(), ids[i]);
+            }
+            commit(first, firstLength);
+            for (long key : added) {
+                logChange(INSERTED, key);
+            }
+
+            Arrays.sort(added);
+            mergeKeys(added);
+            return ids;
+        } catch (IOException | UncheckedIOException e) {
+            throw new SQLException("Journal write failed: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+            WRITE_TIME.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean update(StoredTransaction transaction) throws SQLException {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            int previous = liveOffset(transaction.id());
+            if (previous == 0) {
+                return false;
+            }
+
+            byte[] description = transaction.description() != null ? transaction.description().getBytes(StandardCharsets.UTF_8) : null;
+            ensureCapacity(putRecordSize(description));
+            // Growing past the maximum size compacts the journal, which moves the previous record
+            previous = liveOffset(transaction.id());
+            int offset = end;
+            int recordSize = writePut(buffer, offset, transaction.id(), transaction, description, false);
+            end += recordSize;
+            commit(offset, recordSize - RECORD_OVERHEAD);
+
+            removeKey(key(buffer.getInt(previous + EPOCH_DAY), transaction.id()));
+            long key = key((int) transaction.date().toEpochDay(), transaction.id());
+            insertKey(key);
+            logChange(UPDATED, key);
+            deadBytes += recordSize(previous);
+            setOffset(transaction.id(), offset);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            throw new SQLException("Journal write failed: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+            WRITE_TIME.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            int previous = liveOffset(id);
+            if (previous == 0) {
+                return false;
+            }
+
+            ensureCapacity(RECORD_OVERHEAD + 4);
+            // Growing past the maximum size compacts the journal, which moves the previous record
+            previous = liveOffset(id);
+            int offset = end;
+            buffer.putInt(offset + ID, id);
+            end += seal(buffer, offset, DELETE, 4, false);
+            commit(offset, 4);
+
+            long key = key(buffer.getInt(previous + EPOCH_DAY), id);
+            removeKey(key);
+            logChange(DELETED, key);
+            deadBytes += recordSize(previous) + recordSize(offset);
+            offsetById[id] = 0;
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            throw new SQLException("Journal write failed: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+            WRITE_TIME.recordSince(start);
+        }
+    }
+
+    @Override
+    public long watermark() {
+        lock.readLock().lock();
+        try {
+            return changeBase + changeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TransactionChanges changesSince(long watermark, int limit) {
+        lock.readLock().lock();
+        try {
+            long now = changeBase + changeCount;
+            if (watermark < changeBase || watermark > now) {
+                return TransactionChanges.incomplete(now);
+            }
+
+            // Several writes of the same row collapse into one change with its current state
+            Map<Integer, Long> deletedKeys = new HashMap<>();
+            Map<Integer, Boolean> insertedById = new LinkedHashMap<>();
+            for (int i = (int) (watermark - changeBase); i < changeCount; i++) {
+                int id = idOf(changeKeys[i]);
+                insertedById.merge(id, changeKinds[i] == INSERTED, Boolean::logicalOr);
+                if (changeKinds[i] == DELETED) {
+                    deletedKeys.put(id, changeKeys[i]);
+                }
+            }
+            if (insertedById.size() > limit) {
+                return TransactionChanges.incomplete(now);
+            }
+
+            List<StoredTransaction> inserted = new ArrayList<>();
+            List<StoredTransaction> updated = new ArrayList<>();
+            List<TransactionChanges.Tombstone> deleted = new ArrayList<>();
+            for (Map.Entry<Integer, Boolean> change : insertedById.entrySet()) {
+                int id = change.getKey();
+                int offset = liveOffset(id);
+                if (offset != 0) {
+                    (change.getValue() ? inserted : updated).add(decode(offset));
+                } else if (!change.getValue()) {
+                    // A row inserted and deleted since the watermark was never seen by the caller
+                    deleted.add(new TransactionChanges.Tombstone(id, LocalDate.ofEpochDay(epochDayOf(deletedKeys.get(id)))));
+                }
+            }
+            return new TransactionChanges(now, inserted, updated, deleted, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the journal with only the live records and replaces the file atomically
+     *
+     * @throws SQLException if the new journal cannot be written, the old one stays in use then
+     */
+    public void compact() throws SQLException {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            int before = end;
+            compactLocked();
+            Main.getLogger().log("INFO", () -> "Journal compacted from " + before + " to " + end + " bytes in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException | UncheckedIOException e) {
+            throw new SQLException("Journal compaction failed: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+            COMPACT_TIME.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (channel != null) {
+                buffer.force();
+                // Drops the unused tail of the mapping, the end marker makes this optional
+                channel.truncate(end);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            Main.getLogger().log("WARN", () -> "Journal could not be trimmed on close: " + e.getMessage());
+        } finally {
+            // The mapping reaches past the truncated file, nothing may read it anymore
+            buffer = null;
+            closeChannel();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize > MAX_CAPACITY) {
+            throw new IOException("Journal is larger than " + MAX_CAPACITY + " bytes");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, fileSize));
+
+        if (fileSize < HEADER_SIZE) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            end = HEADER_SIZE;
+            appendCategory(new Category(1, "Einnahmen", TransactionType.INCOME));
+            appendCategory(new Category(2, "Ausgaben", TransactionType.EXPENSE));
+            buffer.force();
+            return;
+        }
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a journal file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported journal version " + buffer.getInt(4));
+        }
+        replay();
+    }
+
+    private void replay() {
+        int position = HEADER_SIZE;
+        while (position + 4 <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || (long) position + length + RECORD_OVERHEAD > buffer.capacity()
+                    || checksum(buffer, position, length) != buffer.getInt(position + 5 + length)) {
+                int corrupt = position;
+                Main.getLogger().log("WARN", () -> "Journal " + file + " has an incomplete record at offset " + corrupt
+                        + ", the rest of the file is ignored");
+                break;
+            }
+
+            apply(position);
+            position += length + RECORD_OVERHEAD;
+        }
+        end = position;
+        // Later appends must not run into the remains of an incomplete record
+        if (end + 4 <= buffer.capacity()) {
+            buffer.putInt(end, 0);
+        }
+
+        for (int id = 1; id < nextId; id++) {
+            if (offsetById[id] != 0) {
+                ensureKeyCapacity(size + 1);
+                keys[size++] = key(buffer.getInt(offsetById[id] + EPOCH_DAY), id);
+            }
+        }
+        Arrays.parallelSort(keys, 0, size);
+    }
+
+    private void apply(int offset) {
+        switch (buffer.get(offset + 4)) {
+            case PUT -> {
+                int id = buffer.getInt(offset + ID);
+                int previous = liveOffset(id);
+                if (previous != 0) {
+                    deadBytes += recordSize(previous);
+                }
+                setOffset(id, offset);
+                nextId = Math.max(nextId, id + 1);
+            }
+            case DELETE -> {
+                int id = buffer.getInt(offset + ID);
+                int previous = liveOffset(id);
+                if (previous != 0) {
+                    deadBytes += recordSize(previous);
+                    offsetById[id] = 0;
+                }
+                deadBytes += recordSize(offset);
+            }
+            case CATEGORY -> {
+                int id = buffer.getInt(offset + ID);
+                TransactionType type = TransactionType.values()[buffer.get(offset + 9)];
+                categories.put(id, new Category(id, readString(buffer, offset + 10), type));
+            }
+            default -> throw new IllegalStateException("Unknown journal record type " + buffer.get(offset + 4));
+        }
+    }
+
+    private void appendCategory(Category category) throws IOException {
+        byte[] name = category.getName().getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(RECORD_OVERHEAD + 9L + name.length);
+        end += writeCategory(buffer, end, category, name);
+        buffer.putInt(end, 0);
+        categories.put(category.getId(), category);
+    }
+
+    // Runs on the compactor thread, failures are only logged
+    private void compactIfWorthwhile() {
+        boolean worthwhile;
+        lock.readLock().lock();
+        try {
+            worthwhile = deadBytes >= COMPACTION_MIN_DEAD_BYTES && deadBytes > end - HEADER_SIZE - deadBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (worthwhile) {
+            try {
+                compact();
+            } catch (SQLException e) {
+                Main.getLogger().log("WARN", () -> e.getMessage());
+            }
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        long liveBytes = end - deadBytes;
+        int[] newOffsets = new int[offsetById.length];
+        int newEnd;
+
+        try (FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = target.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, liveBytes + 4));
+            out.putInt(0, MAGIC);
+            out.putInt(4, VERSION);
+            int position = HEADER_SIZE;
+
+            for (Category category : categories.values()) {
+                position += writeCategory(out, position, category, category.getName().getBytes(StandardCharsets.UTF_8));
+            }
+
+            // Rows are written in key order, so replaying the new journal finds them nearly sorted
+            for (int i = 0; i < size; i++) {
+                int id = idOf(keys[i]);
+                int offset = offsetById[id];
+                int length = recordSize(offset);
+                out.put(position, buffer, offset, length);
+                newOffsets[id] = position;
+                position += length;
+            }
+            out.putInt(position, 0);
+            out.force();
+            target.truncate(position);
+            newEnd = position;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        closeChannel();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, newEnd + 4L));
+        offsetById = newOffsets;
+        end = newEnd;
+        deadBytes = 0;
+    }
+
+    private void ensureCapacity(long bytes) throws IOException {
+        // Room for the end marker behind the new records
+        long needed = end + bytes + 4;
+        if (needed <= buffer.capacity()) {
+            return;
+        }
+        if (needed > MAX_CAPACITY && deadBytes > 0) {
+            compactLocked();
+            needed = end + bytes + 4;
+        }
+        if (needed > MAX_CAPACITY) {
+            throw new IOException("Journal is full");
+        }
+
+        long capacity = Math.min(MAX_CAPACITY, Math.max(needed, 2L * buffer.capacity()));
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    // Publishes the records written since the first one by setting its length, then forces them to disk
+    private void commit(int first, int firstLength) {
+        buffer.putInt(end, 0);
+        buffer.putInt(first, firstLength);
+        buffer.force(first, end + 4 - first);
+    }
+
+    private int putRecordSize(byte[] description) {
+        return RECORD_OVERHEAD + 24 + (description != null ? description.length : 0);
+    }
+
+    private static int writePut(ByteBuffer target, int offset, int id, StoredTransaction transaction, byte[] description, boolean publish) {
+        target.putInt(offset + ID, id);
+        target.putInt(offset + EPOCH_DAY, (int) transaction.date().toEpochDay());
+        target.putLong(offset + CENTS, transaction.cents());
+        target.putInt(offset + CATEGORY_ID, transaction.categoryId());
+        target.putInt(offset + DESCRIPTION_LENGTH, description != null ? description.length : -1);
+        if (description != null) {
+            target.put(offset + DESCRIPTION, description);
+        }
+        return seal(target, offset, PUT, 24 + (description != null ? description.length : 0), publish);
+    }
+
+    private static int writeCategory(ByteBuffer target, int offset, Category category, byte[] name) {
+        target.putInt(offset + ID, category.getId());
+        target.put(offset + 9, (byte) category.getType().ordinal());
+        target.putInt(offset + 10, name.length);
+        target.put(offset + 14, name);
+        return seal(target, offset, CATEGORY, 9 + name.length, true);
+    }
+
+    // Writes type, checksum and, if publish is set, the length of a record whose payload is in place.
+    // Unpublished records end the journal until commit() sets their length.
+    private static int seal(ByteBuffer target, int offset, byte type, int length, boolean publish) {
+        target.put(offset + 4, type);
+        target.putInt(offset + 5 + length, checksum(target, offset, length));
+        target.putInt(offset, publish ? length : 0);
+        return length + RECORD_OVERHEAD;
+    }
+
+    private static int checksum(ByteBuffer source, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(source.slice(offset + 4, length + 1));
+        return (int) crc.getValue();
+    }
+
+    private StoredTransaction decode(int offset) {
+        return new StoredTransaction(
+                buffer.getInt(offset + ID),
+                LocalDate.ofEpochDay(buffer.getInt(offset + EPOCH_DAY)),
+                buffer.getLong(offset + CENTS),
+                buffer.getInt(offset + CATEGORY_ID),
+                readString(buffer, offset + DESCRIPTION_LENGTH));
+    }
+
+    // Reads a string stored as byte length (-1 for null) followed by UTF-8 bytes
+    private static String readString(ByteBuffer source, int offset) {
+        int length = source.getInt(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        source.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int recordSize(int offset) {
+        return buffer.getInt(offset) + RECORD_OVERHEAD;
+    }
+
+    private List<StoredTransaction> collectDescending(int low, int high, int limit) {
+        List<StoredTransaction> rows = new ArrayList<>(Math.max(0, Math.min(limit, high - low)));
+        for (int i = high - 1; i >= low && rows.size() < limit; i--) {
+            rows.add(decode(offsetById[idOf(keys[i])]));
+        }
+        return rows;
+    }
+
+    private static void emitDay(int epochDay, Map<Integer, Long> day, DailyTotalCallback callback) throws SQLException {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        for (Map.Entry<Integer, Long> total : day.entrySet()) {
+            callback.accept(date, total.getKey(), total.getValue());
+        }
+        day.clear();
+    }
+
+    private int liveOffset(int id) {
+        return id > 0 && id < offsetById.length ? offsetById[id] : 0;
+    }
+
+    private void setOffset(int id, int offset) {
+        if (id >= offsetById.length) {
+            offsetById = Arrays.copyOf(offsetById, Math.max(id + 1, offsetById.length * 2));
+        }
+        offsetById[id] = offset;
+    }
+
+    // Ids are positive, so keys sort by date first and id second
+    private static long key(int epochDay, int id) {
+        return ((long) epochDay << 32) | id;
+    }
+
+    private static int epochDayOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int idOf(long key) {
+        return (int) key;
+    }
+
+    private int lowerBound(LocalDate from) {
+        return firstAtLeast(key((int) from.toEpochDay(), 0));
+    }
+
+    private int upperBound(LocalDate to) {
+        return firstAtLeast(key((int) to.toEpochDay() + 1, 0));
+    }
+
+    private int firstAtLeast(long key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void insertKey(long key) {
+        int index = firstAtLeast(key);
+        ensureKeyCapacity(size + 1);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        keys[index] = key;
+        size++;
+    }
+
+    private void removeKey(long key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            size--;
+        }
+    }
+
+    // Merges sorted keys from the back, new rows usually have the latest dates and stay where they land
+    private void mergeKeys(long[] added) {
+        ensureKeyCapacity(size + added.length);
+        int i = size - 1;
+        int j = added.length - 1;
+        int k = size + added.length - 1;
+        while (j >= 0) {
+            keys[k--] = i >= 0 && keys[i] > added[j] ? keys[i--] : added[j--];
+        }
+        size += added.length;
+    }
+
+    // Drops the older half of the log when it is full, watermarks before it become incomplete
+    private void logChange(byte kind, long key) {
+        if (changeCount == CHANGE_LOG_SIZE) {
+            int dropped = CHANGE_LOG_SIZE / 2;
+            System.arraycopy(changeKeys, dropped, changeKeys, 0, changeCount - dropped);
+            System.arraycopy(changeKinds, dropped, changeKinds, 0, changeCount - dropped);
+            changeCount -= dropped;
+            changeBase += dropped;
+        }
+        changeKeys[changeCount] = key;
+        changeKinds[changeCount] = kind;
+        changeCount++;
+    }
+
+    private void ensureKeyCapacity(int capacity) {
+        if (capacity > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(capacity, keys.length * 2));
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+            channel = null;
+        }
+    }
+}
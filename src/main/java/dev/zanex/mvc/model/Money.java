@@ -0,0 +1,174 @@
+package dev.zanex.mvc.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of euros stored as whole cents. Amounts are exact, so sums of many transactions
+ * do not drift the way sums of doubles do.
+ *
+ * @param cents The amount in cents
+ */
+public record Money(long cents) implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    /** Largest amount the DECIMAL(10,2) amount column can store */
+    public static final long MAX_CENTS = 9_999_999_999L;
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Converts a decimal amount, e.g. read from a DECIMAL column
+     *
+     * @param amount The amount in euros, rounded half up to cents
+     * @return The amount, ZERO for null
+     */
+    public static Money of(BigDecimal amount) {
+        return amount == null ? ZERO : ofCents(toCents(amount));
+    }
+
+    /**
+     * Converts a decimal amount to cents, rounded half up
+     *
+     * @param amount The amount in euros
+     * @return The amount in cents
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Parses an amount like "-1.234,56 €" or "1234.56" without going through double.
+     * Grouping separators, spaces, a leading sign and the euro sign are accepted.
+     *
+     * @param text The text to parse
+     * @param decimalComma true if ',' separates the cents (German format), false for '.'
+     * @return The amount
+     * @throws NumberFormatException with a user-facing message if the text is not a valid amount
+     */
+    public static Money parse(String text, boolean decimalComma) {
+        char decimalSeparator = decimalComma ? ',' : '.';
+        char groupingSeparator = decimalComma ? '.' : ',';
+        boolean negative = false;
+        boolean seenDigit = false;
+        boolean inFraction = false;
+        int fractionDigits = 0;
+        long value = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (inFraction && ++fractionDigits > 2) {
+                    throw new NumberFormatException("Betrag hat mehr als zwei Nachkommastellen: " + text);
+                }
+                value = value * 10 + (c - '0');
+                seenDigit = true;
+                // Keeps the value from overflowing, the exact limit is checked once the cents are complete
+                if (value > MAX_CENTS) {
+                    throw new NumberFormatException("Betrag zu groß: " + text);
+                }
+            } else if (c == decimalSeparator && !inFraction) {
+                inFraction = true;
+            } else if (c == '-' && !seenDigit) {
+                negative = true;
+            } else if (c == groupingSeparator && !inFraction
+                    || c == '+' && !seenDigit
+                    || c == ' ' || c == '\u00A0' || c == '€') {
+                // Ignored
+            } else {
+                throw new NumberFormatException("Ungültiger Betrag: " + text);
+            }
+        }
+
+        if (!seenDigit) {
+            throw new NumberFormatException("Ungültiger Betrag: " + text);
+        }
+        for (; fractionDigits < 2; fractionDigits++) {
+            value *= 10;
+        }
+        long cents = negative ? -value : value;
+        if (Math.abs(cents) > MAX_CENTS) {
+            throw new NumberFormatException("Betrag zu groß: " + text);
+        }
+        return ofCents(cents);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money abs() {
+        return cents < 0 ? ofCents(-cents) : this;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    /**
+     * Returns the amount as a decimal with two fraction digits, e.g. for JDBC parameters
+     *
+     * @return The amount in euros
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Formats the amount the way German users expect it, e.g. "-1.234,56 €"
+     *
+     * @return The formatted amount
+     */
+    public String format() {
+        return appendPlain(new StringBuilder(24), ',', '.').append("\u00A0€").toString(); // Non-breaking space like NumberFormat
+    }
+
+    /**
+     * Formats the amount without currency, e.g. "1234,56" for input fields
+     *
+     * @param decimalComma true to separate the cents with ',', false for '.'
+     * @return The formatted amount
+     */
+    public String toPlainString(boolean decimalComma) {
+        return appendPlain(new StringBuilder(16), decimalComma ? ',' : '.', (char) 0).toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString(false);
+    }
+
+    private StringBuilder appendPlain(StringBuilder out, char decimalSeparator, char groupingSeparator) {
+        // Long.MIN_VALUE cannot be negated, but is far outside the column range anyway
+        long value = Math.abs(cents);
+        if (cents < 0) {
+            out.append('-');
+        }
+
+        String euros = Long.toString(value / 100);
+        for (int i = 0; i < euros.length(); i++) {
+            if (groupingSeparator != 0 && i > 0 && (euros.length() - i) % 3 == 0) {
+                out.append(groupingSeparator);
+            }
+            out.append(euros.charAt(i));
+        }
+
+        long fraction = value % 100;
+        return out.append(decimalSeparator).append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+}
@@ -0,0 +1,312 @@
+package dev.zanex.mvc.model;
+
+import dev.zanex.Main;
+import dev.zanex.utils.CancellationToken;
+import dev.zanex.utils.ColumnIndex;
+import dev.zanex.utils.CompiledRowMapper;
+import dev.zanex.utils.MySQLHandler;
+import dev.zanex.utils.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TransactionStore on the MySQL schema. Inserts are written in one database transaction, split into
+ * JDBC batches of BATCH_SIZE rows. Closing the store does not close the handler.
+ * <p>
+ * Watermarks are server timestamps in microseconds. Changes are found through the updated_at column and
+ * the tombstones deletes leave behind. A transaction may commit a row with a timestamp slightly before
+ * the watermark of a concurrent reader, so changesSince() looks back CHANGE_OVERLAP_MICROS further and
+ * reports such rows again.
+ * <p>
+ * Filtered queries append the SQL condition of a FilterPlan behind the date range. The amount and
+ * text conditions are checked on the rows the date index finds, a category condition can use the
+ * (category_id, transaction_date) index instead. The condition only depends on which criteria are
+ * set and how many categories they allow, so cached statements are reused while values change.
+ */
+public class MySQLTransactionStore implements TransactionStore {
+    private static final String COLUMNS = "SELECT id, transaction_date, amount, category_id, description FROM transactions ";
+    private static final String RANGE_QUERY = COLUMNS + "WHERE transaction_date BETWEEN ? AND ? ";
+    private static final String INSERT_QUERY = "INSERT INTO transactions (category_id, amount, description, transaction_date, created_at) " +
+            "VALUES (?, ?, ?, ?, NOW())";
+    private static final String CHANGED_QUERY = "SELECT id, transaction_date, amount, category_id, description, " +
+            "created_at >= FROM_UNIXTIME(?) AS inserted FROM transactions WHERE updated_at >= FROM_UNIXTIME(?) LIMIT ?";
+    private static final String TOMBSTONE_QUERY = "SELECT transaction_id, transaction_date FROM transaction_tombstones " +
+            "WHERE deleted_at >= FROM_UNIXTIME(?) AND (created_at IS NULL OR created_at < FROM_UNIXTIME(?)) LIMIT ?";
+    private static final int BATCH_SIZE = 1000;
+    private static final long CHANGE_OVERLAP_MICROS = 1_000_000;
+    private static final int TOMBSTONE_RETENTION_DAYS = 30;
+    private static final long TOMBSTONE_RETENTION_MICROS = TOMBSTONE_RETENTION_DAYS * 86_400_000_000L;
+    private static final long TOMBSTONE_PURGE_INTERVAL_MILLIS = 3_600_000;
+
+    private final MySQLHandler dbHandler;
+    private volatile long lastTombstonePurge;
+
+    public MySQLTransactionStore(MySQLHandler dbHandler) {
+        this.dbHandler = dbHandler;
+    }
+
+    @Override
+    public List<Category> loadCategories() throws SQLException {
+        return dbHandler.query("SELECT id, name, type FROM categories ORDER BY id", new CategoryRowMapper());
+    }
+
+    @Override
+    public int count(LocalDate from, LocalDate to) throws SQLException {
+        Object count = dbHandler.executeScalar(
+                "SELECT COUNT(*) FROM transactions WHERE transaction_date BETWEEN ? AND ?", from, to);
+        return count == null ? 0 : ((Number) count).intValue();
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, LocalDate afterDate, int afterId, int limit) throws SQLException {
+        if (afterDate == null) {
+            return dbHandler.query(RANGE_QUERY + "ORDER BY transaction_date DESC, id DESC LIMIT ?",
+                    new StoredTransactionMapper(), from, to, limit);
+        }
+
+        return dbHandler.query(RANGE_QUERY + "AND (transaction_date < ? OR (transaction_date = ? AND id < ?)) " +
+                        "ORDER BY transaction_date DESC, id DESC LIMIT ?",
+                new StoredTransactionMapper(), from, to, afterDate, afterDate, afterId, limit);
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, int offset, int limit) throws SQLException {
+        return dbHandler.query(RANGE_QUERY + "ORDER BY transaction_date DESC, id DESC LIMIT ? OFFSET ?",
+                new StoredTransactionMapper(), from, to, limit, offset);
+    }
+
+    @Override
+    public long forEach(LocalDate from, LocalDate to, TransactionCallback callback) throws SQLException {
+        return forEach(from, to, FilterPlan.NONE, callback);
+    }
+
+    @Override
+    public void forEachDailyTotal(DailyTotalCallback callback) throws SQLException {
+        dbHandler.forEachRow("SELECT transaction_date, category_id, SUM(amount) FROM transactions " +
+                "GROUP BY transaction_date, category_id", row -> callback.accept(
+                row.getObject(1, LocalDate.class),
+                row.getInt(2),
+                Money.toCents(row.getBigDecimal(3))));
+    }
+
+    @Override
+    public Map<Integer, Long> sumByCategory(LocalDate from, LocalDate to) throws SQLException {
+        Map<Integer, Long> sums = new HashMap<>();
+        dbHandler.forEachRow("SELECT category_id, SUM(amount) FROM transactions " +
+                "WHERE transaction_date BETWEEN ? AND ? GROUP BY category_id", row -> sums.put(
+                row.getInt(1),
+                Money.toCents(row.getBigDecimal(2))), from, to);
+        return sums;
+    }
+
+    @Override
+    public int count(LocalDate from, LocalDate to, FilterPlan plan) throws SQLException {
+        Object count = dbHandler.executeScalar("SELECT COUNT(*) FROM transactions WHERE transaction_date BETWEEN ? AND ? "
+                + plan.sqlCondition(), parameters(from, to, plan));
+        return count == null ? 0 : ((Number) count).intValue();
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, FilterPlan plan, LocalDate afterDate, int afterId,
+                                        int limit) throws SQLException {
+        if (afterDate == null) {
+            return dbHandler.query(RANGE_QUERY + plan.sqlCondition() + "ORDER BY transaction_date DESC, id DESC LIMIT ?",
+                    new StoredTransactionMapper(), parameters(from, to, plan, limit));
+        }
+
+        return dbHandler.query(RANGE_QUERY + plan.sqlCondition() + "AND (transaction_date < ? OR (transaction_date = ? AND id < ?)) " +
+                        "ORDER BY transaction_date DESC, id DESC LIMIT ?",
+                new StoredTransactionMapper(), parameters(from, to, plan, afterDate, afterDate, afterId, limit));
+    }
+
+    @Override
+    public List<StoredTransaction> page(LocalDate from, LocalDate to, FilterPlan plan, int offset, int limit) throws SQLException {
+        return dbHandler.query(RANGE_QUERY + plan.sqlCondition() + "ORDER BY transaction_date DESC, id DESC LIMIT ? OFFSET ?",
+                new StoredTransactionMapper(), parameters(from, to, plan, limit, offset));
+    }
+
+    @Override
+    public long forEach(LocalDate from, LocalDate to, FilterPlan plan, TransactionCallback callback) throws SQLException {
+        List<Object> params = new ArrayList<>(2);
+        StringBuilder query = new StringBuilder(COLUMNS);
+        if (from != null) {
+            query.append("WHERE transaction_date >= ? ");
+            params.add(from);
+        }
+        if (to != null) {
+            query.append(from != null ? "AND " : "WHERE ").append("transaction_date <= ? ");
+            params.add(to);
+        }
+        if (!plan.isEmpty()) {
+            query.append(params.isEmpty() ? "WHERE 1 = 1 " : "").append(plan.sqlCondition());
+            params.addAll(List.of(plan.sqlParameters()));
+        }
+        query.append("ORDER BY transaction_date, id");
+
+        return dbHandler.forEachRow(query.toString(), new StoredTransactionMapper(),
+                (resultSet, row) -> callback.accept(row), params.toArray());
+    }
+
+    @Override
+    public Map<Integer, Long> sumByCategory(LocalDate from, LocalDate to, FilterPlan plan) throws SQLException {
+        Map<Integer, Long> sums = new HashMap<>();
+        dbHandler.forEachRow("SELECT category_id, SUM(amount) FROM transactions WHERE transaction_date BETWEEN ? AND ? "
+                + plan.sqlCondition() + "GROUP BY category_id", row -> sums.put(
+                row.getInt(1),
+                Money.toCents(row.getBigDecimal(2))), parameters(from, to, plan));
+        return sums;
+    }
+
+    @Override
+    public StoredTransaction get(int id) throws SQLException {
+        List<StoredTransaction> rows = dbHandler.query(COLUMNS + "WHERE id = ?", new StoredTransactionMapper(), id);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    public int[] insert(List<StoredTransaction> transactions) throws SQLException {
+        int[] ids = new int[transactions.size()];
+        dbHandler.beginTransaction();
+        try {
+            for (int start = 0; start < transactions.size(); start += BATCH_SIZE) {
+                List<StoredTransaction> chunk = transactions.subList(start, Math.min(start + BATCH_SIZE, transactions.size()));
+                List<Object[]> params = new ArrayList<>(chunk.size());
+                for (StoredTransaction transaction : chunk) {
+                    params.add(new Object[]{
+                            transaction.categoryId(),
+                            Money.ofCents(transaction.cents()).toBigDecimal(),
+                            transaction.description(),
+                            transaction.date()
+                    });
+                }
+
+                int[] chunkIds = dbHandler.executeBatchReturningKeys(INSERT_QUERY, params);
+                System.arraycopy(chunkIds, 0, ids, start, chunkIds.length);
+            }
+            dbHandler.commitTransaction();
+        } catch (SQLException | RuntimeException e) {
+            dbHandler.rollbackTransaction();
+            throw e;
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean update(StoredTransaction transaction) throws SQLException {
+        return dbHandler.executeUpdate("UPDATE transactions SET category_id = ?, amount = ?, description = ?, " +
+                        "transaction_date = ? WHERE id = ?",
+                transaction.categoryId(), Money.ofCents(transaction.cents()).toBigDecimal(),
+                transaction.description(), transaction.date(), transaction.id()) > 0;
+    }
+
+    // The tombstone is written in the same transaction, so no delete goes unnoticed by changesSince()
+    @Override
+    public boolean delete(int id) throws SQLException {
+        dbHandler.beginTransaction();
+        try {
+            dbHandler.executeUpdate("REPLACE INTO transaction_tombstones (transaction_id, transaction_date, created_at) " +
+                    "SELECT id, transaction_date, created_at FROM transactions WHERE id = ?", id);
+            boolean deleted = dbHandler.executeUpdate("DELETE FROM transactions WHERE id = ?", id) > 0;
+            dbHandler.commitTransaction();
+            return deleted;
+        } catch (SQLException | RuntimeException e) {
+            dbHandler.rollbackTransaction();
+            throw e;
+        }
+    }
+
+    @Override
+    public long watermark() throws SQLException {
+        Object now = dbHandler.executeScalar("SELECT CAST(UNIX_TIMESTAMP(NOW(6)) * 1000000 AS SIGNED)");
+        return ((Number) now).longValue();
+    }
+
+    // Rows created after the watermark are reported as inserted. created_at only has whole seconds, so rows
+    // created in the second of the watermark count as updated, and tombstones of those rows are reported too.
+    @Override
+    public TransactionChanges changesSince(long watermark, int limit) throws SQLException {
+        long now = watermark();
+        purgeTombstones();
+        if (watermark < now - TOMBSTONE_RETENTION_MICROS) {
+            return TransactionChanges.incomplete(now);
+        }
+
+        BigDecimal since = BigDecimal.valueOf(watermark - CHANGE_OVERLAP_MICROS, 6);
+        BigDecimal createdAfter = BigDecimal.valueOf(watermark, 6);
+
+        List<StoredTransaction> inserted = new ArrayList<>();
+        List<StoredTransaction> updated = new ArrayList<>();
+        dbHandler.forEachRow(CHANGED_QUERY, new StoredTransactionMapper(),
+                (resultSet, row) -> (resultSet.getBoolean("inserted") ? inserted : updated).add(row),
+                createdAfter, since, limit + 1);
+
+        List<TransactionChanges.Tombstone> deleted = dbHandler.query(TOMBSTONE_QUERY,
+                row -> new TransactionChanges.Tombstone(row.getInt(1), row.getObject(2, LocalDate.class)),
+                since, createdAfter, limit + 1);
+
+        if (inserted.size() + updated.size() + deleted.size() > limit) {
+            return TransactionChanges.incomplete(now);
+        }
+        return new TransactionChanges(now, inserted, updated, deleted, true);
+    }
+
+    // Parameters of a query on a date range followed by the conditions of the plan and then the given values
+    private static Object[] parameters(LocalDate from, LocalDate to, FilterPlan plan, Object... rest) {
+        Object[] conditions = plan.sqlParameters();
+        Object[] params = new Object[2 + conditions.length + rest.length];
+        params[0] = from;
+        params[1] = to;
+        System.arraycopy(conditions, 0, params, 2, conditions.length);
+        System.arraycopy(rest, 0, params, 2 + conditions.length, rest.length);
+        return params;
+    }
+
+    // Watermarks older than the retention are answered as incomplete, so the purged tombstones are never missed
+    private void purgeTombstones() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastTombstonePurge < TOMBSTONE_PURGE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastTombstonePurge = now;
+        int purged = dbHandler.executeUpdate("DELETE FROM transaction_tombstones WHERE deleted_at < NOW(6) - INTERVAL "
+                + TOMBSTONE_RETENTION_DAYS + " DAY");
+        if (purged > 0) {
+            Main.getLogger().log("DEBUG", () -> "Purged " + purged + " tombstones");
+        }
+    }
+
+    // Statements started by the work are cancelled on the server when the token is
+    @Override
+    public <T> T runCancellable(CancellationToken token, MySQLHandler.CancellableWork<T> work) throws SQLException {
+        return dbHandler.runCancellable(token, work);
+    }
+
+    @Override
+    public void close() {
+        // The handler is owned by the caller
+    }
+
+    private static class StoredTransactionMapper extends CompiledRowMapper<StoredTransaction> {
+        @Override
+        protected RowMapper<StoredTransaction> compile(ColumnIndex columns) throws SQLException {
+            int idColumn = columns.require("id");
+            int dateColumn = columns.require("transaction_date");
+            int amountColumn = columns.require("amount");
+            int categoryColumn = columns.require("category_id");
+            int descriptionColumn = columns.require("description");
+
+            return resultSet -> new StoredTransaction(
+                    resultSet.getInt(idColumn),
+                    resultSet.getObject(dateColumn, LocalDate.class),
+                    Money.toCents(resultSet.getBigDecimal(amountColumn)),
+                    resultSet.getInt(categoryColumn),
+                    resultSet.getString(descriptionColumn));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package dev.zanex.mvc.model;
+
+import java.time.LocalDate;
+
+/**
+ * A transaction as it is kept by a TransactionStore: the amount in cents and the category by id
+ *
+ * @param id Transaction id, 0 for rows that have not been inserted yet
+ * @param date Transaction date
+ * @param cents Positive amount in cents, the direction comes from the type of the category
+ * @param categoryId Category id
+ * @param description Description, may be null
+ */
+public record StoredTransaction(int id, LocalDate date, long cents, int categoryId, String description) {
+}
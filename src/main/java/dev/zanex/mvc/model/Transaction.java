@@ -6,7 +6,7 @@ import java.time.LocalDateTime;
 public class Transaction {
     private int id;
     private TransactionType type;
-    private double amount;
+    private Money amount = Money.ZERO;
     private String description;
     private LocalDate date;
     private LocalDateTime createdAt;
@@ -15,7 +15,7 @@ public class Transaction {
         this.createdAt = LocalDateTime.now();
     }
 
-    public Transaction(int id, TransactionType type, double amount, String description, LocalDate date) {
+    public Transaction(int id, TransactionType type, Money amount, String description, LocalDate date) {
         this.id = id;
         this.type = type;
         this.amount = amount;
@@ -40,11 +40,11 @@ public class Transaction {
         this.type = type;
     }
 
-    public double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -74,7 +74,7 @@ public class Transaction {
 
     @Override
     public String toString() {
-        return String.format("%s: %.2f€ - %s (%s)",
-                type, amount, description, date);
+        return String.format("%s: %s - %s (%s)",
+                type, amount.format(), description, date);
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package dev.zanex.mvc.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The rows written and deleted since a watermark, see TransactionStore.changesSince(). A change may be
+ * reported again by the next call, applying it twice has to give the same result.
+ *
+ * @param watermark Pass this to the next changesSince() call
+ * @param inserted Rows created after the watermark, with their current values
+ * @param updated Rows that may have existed at the watermark and were written since, with their current values
+ * @param deleted Rows deleted since the watermark
+ * @param complete false if the store cannot tell all changes since the watermark, e.g. because there are more
+ *                 than requested or the tombstones were already purged. The caller has to reload everything then.
+ */
+public record TransactionChanges(long watermark, List<StoredTransaction> inserted, List<StoredTransaction> updated,
+                                 List<Tombstone> deleted, boolean complete) {
+    /**
+     * Creates a result that makes the caller reload everything
+     *
+     * @param watermark The current watermark of the store
+     * @return The changes
+     */
+    public static TransactionChanges incomplete(long watermark) {
+        return new TransactionChanges(watermark, List.of(), List.of(), List.of(), false);
+    }
+
+    public boolean isEmpty() {
+        return inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+    }
+
+    /**
+     * A deleted transaction
+     *
+     * @param id Transaction id
+     * @param date Date of the transaction when it was deleted
+     */
+    public record Tombstone(int id, LocalDate date) {
+    }
+}
@@ -0,0 +1,57 @@
+package dev.zanex.mvc.model;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * What the transaction table shows: a date range and optional criteria that every row has to meet.
+ * Criteria that are null or empty do not filter. Compiled into a FilterPlan before it is run.
+ *
+ * @param from First day of the range
+ * @param to Last day of the range
+ * @param minCents Smallest amount in cents, or null
+ * @param maxCents Largest amount in cents, or null
+ * @param type Only income or only expenses, or null for both
+ * @param categoryIds Only these categories, empty for all
+ * @param text Text the description has to contain, case is ignored but accents are not, or null
+ */
+public record TransactionFilter(LocalDate from, LocalDate to, Long minCents, Long maxCents, TransactionType type,
+                                Set<Integer> categoryIds, String text) {
+    public TransactionFilter {
+        categoryIds = categoryIds == null ? Set.of() : Set.copyOf(categoryIds);
+        text = text == null || text.isBlank() ? null : text.strip();
+    }
+
+    /**
+     * Creates a filter for a date range without further criteria
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @return The filter
+     */
+    public static TransactionFilter range(LocalDate from, LocalDate to) {
+        return new TransactionFilter(from, to, null, null, null, Set.of(), null);
+    }
+
+    public TransactionFilter withRange(LocalDate from, LocalDate to) {
+        return new TransactionFilter(from, to, minCents, maxCents, type, categoryIds, text);
+    }
+
+    /**
+     * Returns the criteria without the date range. Filters with the same criteria share one compiled plan.
+     *
+     * @return The filter without from and to
+     */
+    public TransactionFilter criteria() {
+        return withRange(null, null);
+    }
+
+    /**
+     * Returns true if only the date range filters
+     *
+     * @return Whether there are no further criteria
+     */
+    public boolean isRangeOnly() {
+        return minCents == null && maxCents == null && type == null && categoryIds.isEmpty() && text == null;
+    }
+}
@@ -0,0 +1,48 @@
+package dev.zanex.mvc.model;
+
+import dev.zanex.utils.ColumnIndex;
+import dev.zanex.utils.CompiledRowMapper;
+import dev.zanex.utils.RowMapper;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Maps rows with the columns id, category_id, amount, description, transaction_date and optionally created_at.
+ * The transaction type is resolved from the category through the registry.
+ */
+public class TransactionRowMapper extends CompiledRowMapper<Transaction> {
+    private final CategoryRegistry categories;
+
+    public TransactionRowMapper(CategoryRegistry categories) {
+        this.categories = categories;
+    }
+
+    @Override
+    protected RowMapper<Transaction> compile(ColumnIndex columns) throws SQLException {
+        int idColumn = columns.require("id");
+        int categoryColumn = columns.require("category_id");
+        int amountColumn = columns.require("amount");
+        int descriptionColumn = columns.require("description");
+        int dateColumn = columns.require("transaction_date");
+        int createdAtColumn = columns.find("created_at");
+
+        return resultSet -> {
+            Transaction transaction = new Transaction();
+            transaction.setId(resultSet.getInt(idColumn));
+            transaction.setType(categories.getType(resultSet.getInt(categoryColumn)));
+            transaction.setAmount(Money.of(resultSet.getBigDecimal(amountColumn)));
+            transaction.setDescription(resultSet.getString(descriptionColumn));
+            transaction.setDate(resultSet.getObject(dateColumn, LocalDate.class));
+
+            if (createdAtColumn > 0) {
+                Timestamp createdAt = resultSet.getTimestamp(createdAtColumn);
+                transaction.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+            }
+
+            return transaction;
+        };
+    }
+
+}
@@ -0,0 +1,323 @@
+package dev.zanex.mvc.model;
+
+import dev.zanex.utils.CancellationToken;
+import dev.zanex.utils.MySQLHandler;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage backend for transactions and their categories. Rows are ordered by date and id, pages are
+ * returned newest first. Backends that are not a database report I/O errors as SQLException, so
+ * callers handle every backend the same way.
+ */
+public interface TransactionStore extends AutoCloseable {
+    /**
+     * Loads all categories
+     *
+     * @return Categories ordered by id
+     * @throws SQLException if the categories cannot be read
+     */
+    List<Category> loadCategories() throws SQLException;
+
+    /**
+     * Counts the transactions in a date range
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @return Number of transactions
+     * @throws SQLException if the rows cannot be read
+     */
+    int count(LocalDate from, LocalDate to) throws SQLException;
+
+    /**
+     * Returns one page of a range ordered by date and id descending, continuing after the given
+     * row (keyset pagination)
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param afterDate Date of the last row of the previous page, or null for the first page
+     * @param afterId Id of the last row of the previous page
+     * @param limit Maximum number of rows
+     * @return The rows of the page
+     * @throws SQLException if the rows cannot be read
+     */
+    List<StoredTransaction> page(LocalDate from, LocalDate to, LocalDate afterDate, int afterId, int limit) throws SQLException;
+
+    /**
+     * Returns one page of a range ordered by date and id descending, starting at a position
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param offset Position of the first row
+     * @param limit Maximum number of rows
+     * @return The rows of the page
+     * @throws SQLException if the rows cannot be read
+     */
+    List<StoredTransaction> page(LocalDate from, LocalDate to, int offset, int limit) throws SQLException;
+
+    /**
+     * Passes every transaction of a range to the callback, ordered by date and id ascending,
+     * without collecting them
+     *
+     * @param from First day of the range, or null for no lower bound
+     * @param to Last day of the range, or null for no upper bound
+     * @param callback Receives the rows
+     * @return Number of rows
+     * @throws SQLException if the rows cannot be read or the callback fails
+     */
+    long forEach(LocalDate from, LocalDate to, TransactionCallback callback) throws SQLException;
+
+    /**
+     * Passes the sum of every category on every day that has transactions to the callback
+     *
+     * @param callback Receives the daily totals
+     * @throws SQLException if the rows cannot be read
+     */
+    void forEachDailyTotal(DailyTotalCallback callback) throws SQLException;
+
+    /**
+     * Sums the amounts of a date range per category
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @return Sum in cents by category id
+     * @throws SQLException if the rows cannot be read
+     */
+    Map<Integer, Long> sumByCategory(LocalDate from, LocalDate to) throws SQLException;
+
+    /**
+     * Returns a transaction by id
+     *
+     * @param id Transaction id
+     * @return The transaction or null if it does not exist
+     * @throws SQLException if the row cannot be read
+     */
+    StoredTransaction get(int id) throws SQLException;
+
+    /**
+     * Inserts transactions, either all or none of them. The ids of the given rows are ignored.
+     *
+     * @param transactions The rows to insert
+     * @return The assigned ids in the order of the rows
+     * @throws SQLException if the rows cannot be written
+     */
+    int[] insert(List<StoredTransaction> transactions) throws SQLException;
+
+    /**
+     * Replaces date, amount, category and description of an existing transaction
+     *
+     * @param transaction The new values, identified by id
+     * @return false if no transaction has this id
+     * @throws SQLException if the row cannot be written
+     */
+    boolean update(StoredTransaction transaction) throws SQLException;
+
+    /**
+     * Deletes a transaction
+     *
+     * @param id Transaction id
+     * @return false if no transaction has this id
+     * @throws SQLException if the row cannot be deleted
+     */
+    boolean delete(int id) throws SQLException;
+
+    /**
+     * Returns the current position in the store's history of writes. Take it before reading rows,
+     * changesSince() with it then reports everything written after those reads.
+     *
+     * @return The watermark, only meaningful to this store
+     * @throws SQLException if the store cannot be read
+     */
+    long watermark() throws SQLException;
+
+    /**
+     * Returns the rows inserted, updated and deleted since a watermark, so a view of the rows can be
+     * patched instead of reloaded
+     *
+     * @param watermark A watermark of this store from watermark() or an earlier call
+     * @param limit Maximum number of changes, more make the result incomplete
+     * @return The changes and the watermark to continue from
+     * @throws SQLException if the changes cannot be read
+     */
+    TransactionChanges changesSince(long watermark, int limit) throws SQLException;
+
+    /**
+     * Counts the transactions in a date range that meet the criteria of a plan. Backends that cannot
+     * evaluate the plan themselves stream the range and test every row.
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan The compiled criteria
+     * @return Number of matching transactions
+     * @throws SQLException if the rows cannot be read
+     */
+    default int count(LocalDate from, LocalDate to, FilterPlan plan) throws SQLException {
+        if (plan.isEmpty()) {
+            return count(from, to);
+        }
+
+        int[] count = {0};
+        forEach(from, to, row -> {
+            if (plan.matches(row)) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Returns one page of the matching rows of a range, continuing after the given row, see page()
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan The compiled criteria
+     * @param afterDate Date of the last row of the previous page, or null for the first page
+     * @param afterId Id of the last row of the previous page
+     * @param limit Maximum number of rows
+     * @return The rows of the page
+     * @throws SQLException if the rows cannot be read
+     */
+    default List<StoredTransaction> page(LocalDate from, LocalDate to, FilterPlan plan, LocalDate afterDate, int afterId,
+                                         int limit) throws SQLException {
+        if (plan.isEmpty()) {
+            return page(from, to, afterDate, afterId, limit);
+        }
+
+        // Rows arrive ascending, the last matching ones before the anchor form the page
+        return lastMatching(from, afterDate != null && afterDate.isBefore(to) ? afterDate : to, plan,
+                afterDate, afterId, 0, limit);
+    }
+
+    /**
+     * Returns one page of the matching rows of a range, starting at a position, see page()
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan The compiled criteria
+     * @param offset Position of the first row
+     * @param limit Maximum number of rows
+     * @return The rows of the page
+     * @throws SQLException if the rows cannot be read
+     */
+    default List<StoredTransaction> page(LocalDate from, LocalDate to, FilterPlan plan, int offset, int limit) throws SQLException {
+        if (plan.isEmpty()) {
+            return page(from, to, offset, limit);
+        }
+        return lastMatching(from, to, plan, null, 0, offset, limit);
+    }
+
+    /**
+     * Passes every matching transaction of a range to the callback, ordered by date and id ascending
+     *
+     * @param from First day of the range, or null for no lower bound
+     * @param to Last day of the range, or null for no upper bound
+     * @param plan The compiled criteria
+     * @param callback Receives the matching rows
+     * @return Number of matching rows
+     * @throws SQLException if the rows cannot be read or the callback fails
+     */
+    default long forEach(LocalDate from, LocalDate to, FilterPlan plan, TransactionCallback callback) throws SQLException {
+        if (plan.isEmpty()) {
+            return forEach(from, to, callback);
+        }
+
+        long[] count = {0};
+        forEach(from, to, row -> {
+            if (plan.matches(row)) {
+                count[0]++;
+                callback.accept(row);
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Sums the amounts of the matching rows of a date range per category
+     *
+     * @param from First day of the range
+     * @param to Last day of the range
+     * @param plan The compiled criteria
+     * @return Sum in cents by category id
+     * @throws SQLException if the rows cannot be read
+     */
+    default Map<Integer, Long> sumByCategory(LocalDate from, LocalDate to, FilterPlan plan) throws SQLException {
+        if (plan.isEmpty()) {
+            return sumByCategory(from, to);
+        }
+
+        Map<Integer, Long> sums = new HashMap<>();
+        forEach(from, to, plan, row -> sums.merge(row.categoryId(), row.cents(), Long::sum));
+        return sums;
+    }
+
+    /**
+     * Runs reads that another thread may abort through the token. Backends that answer from
+     * memory only check the token before the work starts.
+     *
+     * @param token The token another thread may cancel
+     * @param work The work to run
+     * @return The result of the work
+     * @throws SQLException if the work fails or was cancelled
+     */
+    default <T> T runCancellable(CancellationToken token, MySQLHandler.CancellableWork<T> work) throws SQLException {
+        if (token.isCancelled()) {
+            throw new SQLException("Query was cancelled");
+        }
+        return work.run();
+    }
+
+    /**
+     * Releases the resources of the store
+     */
+    @Override
+    void close();
+
+    // Keeps the last offset + limit matching rows before the anchor and returns them newest first, skipping offset
+    private List<StoredTransaction> lastMatching(LocalDate from, LocalDate to, FilterPlan plan, LocalDate afterDate,
+                                                 int afterId, int offset, int limit) throws SQLException {
+        long window = (long) offset + limit;
+        ArrayDeque<StoredTransaction> last = new ArrayDeque<>();
+        forEach(from, to, row -> {
+            if (afterDate != null && row.date().equals(afterDate) && row.id() >= afterId || !plan.matches(row)) {
+                return;
+            }
+            if (last.size() == window) {
+                last.removeFirst();
+            }
+            last.addLast(row);
+        });
+
+        List<StoredTransaction> page = new ArrayList<>(Math.max(0, Math.min(limit, last.size() - offset)));
+        Iterator<StoredTransaction> newestFirst = last.descendingIterator();
+        for (int i = 0; newestFirst.hasNext() && page.size() < limit; i++) {
+            StoredTransaction row = newestFirst.next();
+            if (i >= offset) {
+                page.add(row);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Receives the rows of forEach()
+     */
+    @FunctionalInterface
+    interface TransactionCallback {
+        void accept(StoredTransaction transaction) throws SQLException;
+    }
+
+    /**
+     * Receives the results of forEachDailyTotal()
+     */
+    @FunctionalInterface
+    interface DailyTotalCallback {
+        void accept(LocalDate date, int categoryId, long cents) throws SQLException;
+    }
+}
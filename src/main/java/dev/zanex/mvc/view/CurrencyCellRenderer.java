@@ -0,0 +1,38 @@
+package dev.zanex.mvc.view;
+
+import dev.zanex.mvc.model.Money;
+
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.Color;
+import java.awt.Component;
+
+/**
+ * Renders Money cells right-aligned in euros, negative amounts red and positive amounts green
+ */
+public class CurrencyCellRenderer extends DefaultTableCellRenderer {
+    private static final Color NEGATIVE_COLOR = new Color(192, 0, 0);
+    private static final Color POSITIVE_COLOR = new Color(0, 128, 0);
+
+    public CurrencyCellRenderer() {
+        setHorizontalAlignment(SwingConstants.RIGHT);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(
+            JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+        super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+
+        if (value instanceof Money amount) {
+            setText(amount.format());
+
+            // Color positive/negative values
+            if (!isSelected) {
+                setForeground(amount.isNegative() ? NEGATIVE_COLOR : POSITIVE_COLOR);
+            }
+        }
+
+        return this;
+    }
+}
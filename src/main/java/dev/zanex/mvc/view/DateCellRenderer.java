@@ -0,0 +1,26 @@
+package dev.zanex.mvc.view;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.Component;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Renders LocalDate cells as dd.MM.yyyy
+ */
+public class DateCellRenderer extends DefaultTableCellRenderer {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    @Override
+    public Component getTableCellRendererComponent(
+            JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+        super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+
+        if (value instanceof LocalDate date) {
+            setText(DATE_FORMAT.format(date));
+        }
+
+        return this;
+    }
+}
@@ -1,16 +1,29 @@
 package dev.zanex.mvc.view;
 
+import dev.zanex.Main;
 import dev.zanex.mvc.controller.AppController;
+import dev.zanex.mvc.controller.FilterPresets;
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.TransactionFilter;
+import dev.zanex.mvc.model.TransactionType;
+import dev.zanex.utils.ErrorHandler;
 import org.jdesktop.swingx.JXDatePicker;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
 public class FilterPanel extends JPanel {
     private AppController controller;
@@ -19,12 +32,21 @@ public class FilterPanel extends JPanel {
     private JXDatePicker toDatePicker;
     private JButton applyFilterButton;
     private JButton resetFilterButton;
+    private JTextField minAmountField;
+    private JTextField maxAmountField;
+    private JComboBox<String> typeComboBox;
+    private JComboBox<CategoryChoice> categoryComboBox;
+    private JTextField textField;
+    private JComboBox<FilterPresets.Preset> presetComboBox;
+    private boolean updatingPresets = false;
+    private JTextField searchField;
+    private JLabel searchResultLabel;
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
     public FilterPanel(AppController controller) {
         this.controller = controller;
 
-        setBorder(BorderFactory.createTitledBorder("Zeitraum Filter"));
+        setBorder(BorderFactory.createTitledBorder("Filter"));
         setLayout(new GridBagLayout());
 
         initComponents();
@@ -45,7 +67,7 @@ public class FilterPanel extends JPanel {
         gbc.gridy = 0;
         gbc.weightx = 1.0;
         fromDatePicker = new JXDatePicker();
-        fromDatePicker.setDate(Date.from(LocalDate.now().withDayOfMonth(1)
+        fromDatePicker.setDate(Date.from(controller.getFromDate()
                 .atStartOfDay(ZoneId.systemDefault()).toInstant()));
         fromDatePicker.setFormats(new java.text.SimpleDateFormat("dd.MM.yyyy"));
         add(fromDatePicker, gbc);
@@ -60,7 +82,7 @@ public class FilterPanel extends JPanel {
         gbc.gridy = 0;
         gbc.weightx = 1.0;
         toDatePicker = new JXDatePicker();
-        toDatePicker.setDate(Date.from(LocalDate.now()
+        toDatePicker.setDate(Date.from(controller.getToDate()
                 .atStartOfDay(ZoneId.systemDefault()).toInstant()));
         toDatePicker.setFormats(new java.text.SimpleDateFormat("dd.MM.yyyy"));
         add(toDatePicker, gbc);
@@ -81,20 +103,152 @@ public class FilterPanel extends JPanel {
         buttonPanel.add(resetFilterButton);
 
         add(buttonPanel, gbc);
+
+        // Criteria, applied together with the date range
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.gridwidth = 5;
+        gbc.weightx = 1.0;
+        add(createCriteriaPanel(), gbc);
+
+        // Saved criteria
+        gbc.gridy = 2;
+        add(createPresetPanel(), gbc);
+
+        // Search, filters the table on every keystroke
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.gridwidth = 1;
+        gbc.weightx = 0.0;
+        add(new JLabel("Suche:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.gridwidth = 3;
+        gbc.weightx = 1.0;
+        searchField = new JTextField();
+        searchField.setToolTipText("Beschreibung oder Kategorie, über alle Zeiträume");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchChanged();
+            }
+        });
+        add(searchField, gbc);
+
+        gbc.gridx = 4;
+        gbc.gridwidth = 1;
+        gbc.weightx = 0.0;
+        searchResultLabel = new JLabel();
+        add(searchResultLabel, gbc);
     }
 
-    private void applyFilter(ActionEvent e) {
-        try {
-            LocalDate fromDate = fromDatePicker.getDate().toInstant()
-                    .atZone(ZoneId.systemDefault()).toLocalDate();
-            LocalDate toDate = toDatePicker.getDate().toInstant()
-                    .atZone(ZoneId.systemDefault()).toLocalDate();
+    private JPanel createCriteriaPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+
+        panel.add(new JLabel("Betrag von:"));
+        minAmountField = new JTextField(7);
+        panel.add(minAmountField);
+
+        panel.add(new JLabel("bis:"));
+        maxAmountField = new JTextField(7);
+        panel.add(maxAmountField);
+
+        panel.add(new JLabel("Typ:"));
+        typeComboBox = new JComboBox<>(new String[]{"Alle", "Einnahmen", "Ausgaben"});
+        panel.add(typeComboBox);
 
-            if (fromDate.isAfter(toDate)) {
-                throw new IllegalArgumentException("Das Von-Datum muss vor dem Bis-Datum liegen.");
+        panel.add(new JLabel("Kategorie:"));
+        categoryComboBox = new JComboBox<>();
+        categoryComboBox.addItem(CategoryChoice.ALL);
+        panel.add(categoryComboBox);
+
+        panel.add(new JLabel("Text:"));
+        textField = new JTextField(12);
+        textField.setToolTipText("Beschreibung enthält, im gewählten Zeitraum");
+        textField.addActionListener(this::applyFilter);
+        panel.add(textField);
+
+        // Categories come from the store, which may still be opening
+        Thread.ofVirtual().name("filter-categories").start(() -> {
+            try {
+                List<Category> categories = controller.getCategories();
+                SwingUtilities.invokeLater(() -> {
+                    for (Category category : categories) {
+                        categoryComboBox.addItem(new CategoryChoice(category.getName(), Set.of(category.getId())));
+                    }
+                });
+            } catch (SQLException e) {
+                Main.getLogger().log("WARN", () -> "Categories for the filter could not be loaded: " + e.getMessage());
             }
+        });
+        return panel;
+    }
+
+    private JPanel createPresetPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        FilterPresets presets = controller.getFilterPresets();
+
+        panel.add(new JLabel("Vorlage:"));
+        presetComboBox = new JComboBox<>();
+        presetComboBox.setPrototypeDisplayValue(new FilterPresets.Preset("Eine lange Vorlage", null));
+        presetComboBox.addActionListener(this::applyPreset);
+        panel.add(presetComboBox);
+
+        JButton savePresetButton = new JButton("Speichern");
+        savePresetButton.addActionListener(this::savePreset);
+        panel.add(savePresetButton);
+
+        JButton deletePresetButton = new JButton("Löschen");
+        deletePresetButton.addActionListener(this::deletePreset);
+        panel.add(deletePresetButton);
 
-            controller.setDateFilter(fromDate, toDate);
+        if (presets == null) {
+            presetComboBox.setEnabled(false);
+            savePresetButton.setEnabled(false);
+            deletePresetButton.setEnabled(false);
+        } else {
+            showPresets(null);
+        }
+        return panel;
+    }
+
+    /**
+     * Shows how many transactions match the search
+     *
+     * @param count Number of matches, negative to clear the label
+     */
+    public void showSearchResultCount(int count) {
+        if (count < 0) {
+            searchResultLabel.setText("");
+        } else if (count == 1) {
+            searchResultLabel.setText("1 Treffer");
+        } else {
+            searchResultLabel.setText(String.format("%,d Treffer", count));
+        }
+    }
+
+    private void searchChanged() {
+        MainFrame frame = findMainFrame();
+        if (frame != null) {
+            frame.search(searchField.getText());
+        }
+    }
+
+    private void applyFilter(ActionEvent e) {
+        try {
+            controller.setFilter(readFilter());
+            // A filter shows its rows again instead of the search results
+            searchField.setText("");
 
             // Refresh parent frame
             refreshParentFrame();
@@ -112,27 +266,173 @@ public class FilterPanel extends JPanel {
         }
     }
 
+    // Reads the date range and the criteria, the messages of the thrown exceptions are shown to the user
+    private TransactionFilter readFilter() {
+        LocalDate fromDate = fromDatePicker.getDate().toInstant()
+                .atZone(ZoneId.systemDefault()).toLocalDate();
+        LocalDate toDate = toDatePicker.getDate().toInstant()
+                .atZone(ZoneId.systemDefault()).toLocalDate();
+        if (fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("Das Von-Datum muss vor dem Bis-Datum liegen.");
+        }
+
+        Long minCents = parseAmount(minAmountField.getText());
+        Long maxCents = parseAmount(maxAmountField.getText());
+        if (minCents != null && maxCents != null && minCents > maxCents) {
+            throw new IllegalArgumentException("Der Mindestbetrag darf nicht über dem Höchstbetrag liegen.");
+        }
+
+        TransactionType type = switch (typeComboBox.getSelectedIndex()) {
+            case 1 -> TransactionType.INCOME;
+            case 2 -> TransactionType.EXPENSE;
+            default -> null;
+        };
+        CategoryChoice category = (CategoryChoice) categoryComboBox.getSelectedItem();
+        return new TransactionFilter(fromDate, toDate, minCents, maxCents, type,
+                category != null ? category.ids() : Set.of(), textField.getText());
+    }
+
+    private static Long parseAmount(String text) {
+        String amountText = text.trim();
+        if (amountText.isEmpty()) {
+            return null;
+        }
+        return Money.parse(amountText, amountText.indexOf(',') >= 0).cents();
+    }
+
+    private static String formatAmount(Long cents) {
+        return cents != null ? Money.ofCents(cents).toBigDecimal().toPlainString().replace('.', ',') : "";
+    }
+
+    // Shows the criteria of a filter in the fields, the date range stays as it is
+    private void showCriteria(TransactionFilter criteria) {
+        minAmountField.setText(formatAmount(criteria.minCents()));
+        maxAmountField.setText(formatAmount(criteria.maxCents()));
+        typeComboBox.setSelectedIndex(criteria.type() == TransactionType.INCOME ? 1 : criteria.type() == TransactionType.EXPENSE ? 2 : 0);
+        textField.setText(criteria.text() != null ? criteria.text() : "");
+
+        CategoryChoice choice = null;
+        for (int i = 0; i < categoryComboBox.getItemCount() && choice == null; i++) {
+            if (categoryComboBox.getItemAt(i).ids().equals(criteria.categoryIds())) {
+                choice = categoryComboBox.getItemAt(i);
+            }
+        }
+        if (choice == null) {
+            // Presets edited in the file may name several categories, the list only offers one at a time
+            choice = new CategoryChoice(criteria.categoryIds().size() + " Kategorien", criteria.categoryIds());
+            categoryComboBox.addItem(choice);
+        }
+        categoryComboBox.setSelectedItem(choice);
+    }
+
+    private void applyPreset(ActionEvent e) {
+        FilterPresets.Preset preset = (FilterPresets.Preset) presetComboBox.getSelectedItem();
+        if (updatingPresets || preset == null) {
+            return;
+        }
+
+        showCriteria(preset.criteria());
+        applyFilter(e);
+    }
+
+    private void savePreset(ActionEvent e) {
+        TransactionFilter filter;
+        try {
+            filter = readFilter();
+        } catch (NullPointerException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Bitte wählen Sie gültige Datumsangaben aus.",
+                    "Eingabefehler",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this,
+                    ex.getMessage(),
+                    "Eingabefehler",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        FilterPresets.Preset selected = (FilterPresets.Preset) presetComboBox.getSelectedItem();
+        String name = (String) JOptionPane.showInputDialog(this,
+                "Name der Vorlage:",
+                "Vorlage speichern",
+                JOptionPane.QUESTION_MESSAGE,
+                null, null, selected != null ? selected.name() : "");
+        if (name == null || name.isBlank()) {
+            return;
+        }
+
+        try {
+            controller.getFilterPresets().save(name, filter);
+            showPresets(name.strip());
+        } catch (IOException ex) {
+            ErrorHandler.showError(this, "Vorlage konnte nicht gespeichert werden", ex);
+        }
+    }
+
+    private void deletePreset(ActionEvent e) {
+        FilterPresets.Preset selected = (FilterPresets.Preset) presetComboBox.getSelectedItem();
+        if (selected == null) {
+            return;
+        }
+
+        try {
+            controller.getFilterPresets().remove(selected.name());
+            showPresets(null);
+        } catch (IOException ex) {
+            ErrorHandler.showError(this, "Vorlage konnte nicht gelöscht werden", ex);
+        }
+    }
+
+    // Refills the preset list without applying a preset
+    private void showPresets(String selectedName) {
+        updatingPresets = true;
+        try {
+            presetComboBox.removeAllItems();
+            for (FilterPresets.Preset preset : controller.getFilterPresets().getAll()) {
+                presetComboBox.addItem(preset);
+                if (preset.name().equals(selectedName)) {
+                    presetComboBox.setSelectedItem(preset);
+                }
+            }
+            if (selectedName == null) {
+                presetComboBox.setSelectedIndex(-1);
+            }
+        } finally {
+            updatingPresets = false;
+        }
+    }
+
     private void resetFilter(ActionEvent e) {
         fromDatePicker.setDate(Date.from(LocalDate.now().withDayOfMonth(1)
                 .atStartOfDay(ZoneId.systemDefault()).toInstant()));
         toDatePicker.setDate(Date.from(LocalDate.now()
                 .atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        showCriteria(TransactionFilter.range(null, null));
+        if (controller.getFilterPresets() != null) {
+            showPresets(null);
+        }
         controller.resetDateFilter();
+        searchField.setText("");
 
         // Refresh parent frame
         refreshParentFrame();
     }
 
     private void refreshParentFrame() {
-        // Find the parent MainFrame and refresh it
+        MainFrame frame = findMainFrame();
+        if (frame != null) {
+            frame.refreshTransactions();
+        }
+    }
+
+    private MainFrame findMainFrame() {
         Container parent = getParent();
         while (parent != null && !(parent instanceof MainFrame)) {
             parent = parent.getParent();
         }
-
-        if (parent instanceof MainFrame) {
-            ((MainFrame) parent).refreshTransactions();
-        }
+        return (MainFrame) parent;
     }
 
     public LocalDate getFromDate() {
@@ -152,4 +452,14 @@ public class FilterPanel extends JPanel {
             return LocalDate.now();
         }
     }
+
+    // An entry of the category list, "Alle" allows every category
+    private record CategoryChoice(String label, Set<Integer> ids) {
+        static final CategoryChoice ALL = new CategoryChoice("Alle", Set.of());
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
 }
\ No newline at end of file
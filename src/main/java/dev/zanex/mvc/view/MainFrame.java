@@ -2,32 +2,60 @@ package dev.zanex.mvc.view;
 
 import dev.zanex.Main;
 import dev.zanex.mvc.controller.AppController;
+import dev.zanex.mvc.controller.CsvImportSettings;
+import dev.zanex.mvc.controller.CsvImporter;
+import dev.zanex.mvc.controller.StartupSnapshot;
+import dev.zanex.mvc.controller.TransactionExporter;
+import dev.zanex.mvc.model.Money;
 import dev.zanex.mvc.model.Transaction;
-import dev.zanex.mvc.model.TransactionType;
+import dev.zanex.mvc.model.TransactionFilter;
 import dev.zanex.utils.ErrorHandler;
+import dev.zanex.utils.Histogram;
+import dev.zanex.utils.Metrics;
 
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
-import javax.swing.table.AbstractTableModel;
-import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.text.NumberFormat;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MainFrame extends JFrame {
+    private static final Histogram REFRESH_TIME = Metrics.timer("ui.refreshTransactions");
+    private static final Histogram REFRESH_CHANGES_TIME = Metrics.timer("ui.refreshChanges");
+    private static final Histogram SEARCH_TIME = Metrics.timer("ui.search");
+    private static final int MAX_SEARCH_RESULTS = 500;
+
     private final AppController controller;
     private JTable transactionsTable;
     private TransactionTableModel tableModel;
+    private TransactionRefresher refresher;
     private FilterPanel filterPanel;
     private TransactionFormPanel transactionFormPanel;
-    private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.GERMANY);
+    private SummaryPanel summaryPanel;
+    private volatile StartupSnapshot lastView;
+    // While not empty the table shows the search results instead of the date range
+    private String searchQuery = "";
+    // Changes of other instances arriving while a refresh is queued are covered by that refresh
+    private final AtomicBoolean remoteRefreshQueued = new AtomicBoolean();
+    private final AtomicBoolean remoteReloadPending = new AtomicBoolean();
 
     public MainFrame(AppController controller) {
+        this(controller, null);
+    }
+
+    /**
+     * Creates the main window. With a snapshot the table and totals show the snapshot right away,
+     * otherwise they start empty. Nothing is queried, the caller refreshes once the store is available.
+     *
+     * @param controller The controller
+     * @param snapshot What the window showed when the application was last closed, may be null
+     */
+    public MainFrame(AppController controller, StartupSnapshot snapshot) {
         this.controller = controller;
 
         setTitle("Transaktionsverwaltung");
@@ -41,10 +69,11 @@ public class MainFrame extends JFrame {
             setResizable(false);
         }
 
-        initComponents();
+        initComponents(snapshot);
+        controller.setRemoteChangeListener(this::onRemoteChange);
     }
 
-    private void initComponents() {
+    private void initComponents(StartupSnapshot snapshot) {
         // Create main layout
         setLayout(new BorderLayout());
 
@@ -52,17 +81,22 @@ public class MainFrame extends JFrame {
         filterPanel = new FilterPanel(controller);
         add(filterPanel, BorderLayout.NORTH);
 
-        // Create transaction form panel (right side)
+        // Create transaction form panel with the summary below it (right side)
         transactionFormPanel = new TransactionFormPanel(controller);
+        summaryPanel = new SummaryPanel(controller);
+        JPanel rightPanel = new JPanel(new BorderLayout());
+        rightPanel.add(transactionFormPanel, BorderLayout.CENTER);
+        rightPanel.add(summaryPanel, BorderLayout.SOUTH);
 
         // Create table model and table for transactions
-        tableModel = new TransactionTableModel();
+        tableModel = new TransactionTableModel(controller);
+        refresher = new TransactionRefresher(controller, tableModel, this);
         transactionsTable = new JTable(tableModel);
         setupTable();
 
         // Create a split pane with table and form
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
-                new JScrollPane(transactionsTable), transactionFormPanel);
+                new JScrollPane(transactionsTable), rightPanel);
         splitPane.setDividerLocation(650);
         add(splitPane, BorderLayout.CENTER);
 
@@ -70,8 +104,24 @@ public class MainFrame extends JFrame {
         JPanel buttonPanel = createButtonPanel();
         add(buttonPanel, BorderLayout.SOUTH);
 
-        // Load initial data
-        refreshTransactions();
+        // A snapshot is shown as is until the caller refreshes, without one the window starts empty
+        if (snapshot != null) {
+            tableModel.setRange(TransactionFilter.range(snapshot.from(), snapshot.to()), snapshot.count(), snapshot.firstPage(),
+                    TransactionTableModel.NO_WATERMARK);
+            summaryPanel.updateSummary(snapshot.income(), snapshot.expenses(), snapshot.from(), snapshot.to());
+            lastView = snapshot;
+        } else {
+            summaryPanel.updateSummary(Money.ZERO, Money.ZERO, controller.getFromDate(), controller.getToDate());
+        }
+    }
+
+    /**
+     * Returns what the window showed after the last completed refresh, without categories
+     *
+     * @return The snapshot or null if nothing was loaded yet
+     */
+    public StartupSnapshot getLastView() {
+        return lastView;
     }
 
     private void setupTable() {
@@ -103,8 +153,20 @@ public class MainFrame extends JFrame {
         deleteButton.addActionListener(this::deleteSelectedTransaction);
         buttonPanel.add(deleteButton);
 
+        JButton importButton = new JButton("Importieren");
+        importButton.addActionListener(this::importCsv);
+        buttonPanel.add(importButton);
+
+        JButton exportButton = new JButton("Exportieren");
+        exportButton.addActionListener(this::exportTransactions);
+        buttonPanel.add(exportButton);
+
         JButton refreshButton = new JButton("Aktualisieren");
-        refreshButton.addActionListener(e -> refreshTransactions());
+        refreshButton.addActionListener(e -> {
+            // A manual refresh also picks up categories changed outside the application
+            controller.invalidateCategories();
+            refreshTransactions();
+        });
         buttonPanel.add(refreshButton);
 
         return buttonPanel;
@@ -117,6 +179,9 @@ public class MainFrame extends JFrame {
                 // Convert to model index in case of sorting
                 int modelRow = transactionsTable.convertRowIndexToModel(selectedRow);
                 AppController.Transaction selectedTransaction = tableModel.getTransactionAt(modelRow);
+                if (selectedTransaction == null) {
+                    return; // Row is still loading
+                }
 
                 // Convert controller transaction to model transaction for editing
                 Transaction modelTransaction = convertToModelTransaction(selectedTransaction);
@@ -131,13 +196,7 @@ public class MainFrame extends JFrame {
         transaction.setDate(ctrlTransaction.getDate());
         transaction.setDescription(ctrlTransaction.getDescription());
         transaction.setAmount(ctrlTransaction.getAmount());
-
-        // Determine transaction type from category or amount
-        if (ctrlTransaction.getAmount() > 0) {
-            transaction.setType(TransactionType.INCOME);
-        } else {
-            transaction.setType(TransactionType.EXPENSE);
-        }
+        transaction.setType(ctrlTransaction.getType());
 
         return transaction;
     }
@@ -149,9 +208,10 @@ public class MainFrame extends JFrame {
 
     private void editSelectedTransaction(ActionEvent e) {
         int selectedRow = transactionsTable.getSelectedRow();
-        if (selectedRow >= 0) {
-            int modelRow = transactionsTable.convertRowIndexToModel(selectedRow);
-            AppController.Transaction selectedTransaction = tableModel.getTransactionAt(modelRow);
+        AppController.Transaction selectedTransaction = selectedRow >= 0
+                ? tableModel.getTransactionAt(transactionsTable.convertRowIndexToModel(selectedRow))
+                : null;
+        if (selectedTransaction != null) {
             Transaction modelTransaction = convertToModelTransaction(selectedTransaction);
             transactionFormPanel.setTransaction(modelTransaction);
         } else {
@@ -164,9 +224,10 @@ public class MainFrame extends JFrame {
 
     private void deleteSelectedTransaction(ActionEvent e) {
         int selectedRow = transactionsTable.getSelectedRow();
-        if (selectedRow >= 0) {
-            int modelRow = transactionsTable.convertRowIndexToModel(selectedRow);
-            AppController.Transaction transaction = tableModel.getTransactionAt(modelRow);
+        AppController.Transaction transaction = selectedRow >= 0
+                ? tableModel.getTransactionAt(transactionsTable.convertRowIndexToModel(selectedRow))
+                : null;
+        if (transaction != null) {
 
             int confirm = JOptionPane.showConfirmDialog(this,
                     "Möchten Sie die Transaktion '" + transaction.getDescription() + "' wirklich löschen?",
@@ -177,22 +238,22 @@ public class MainFrame extends JFrame {
                 try {
                     // Delete transaction using controller
                     controller.deleteTransaction(transaction.getId());
-                    Main.getLogger().log("INFO", "Transaction deleted: ID " + transaction.getId());
+                    Main.getLogger().log("INFO", () -> "Transaction deleted: ID " + transaction.getId());
 
                     // Clear the form if the deleted transaction was being edited
                     if (transactionFormPanel.isCurrentTransaction(transaction.getId())) {
                         transactionFormPanel.setTransaction(null);
                     }
 
-                    // Refresh the transaction table
-                    refreshTransactions();
+                    // Only the deleted row has to leave the table
+                    refreshChanges();
 
                     JOptionPane.showMessageDialog(this,
                             "Transaktion erfolgreich gelöscht.",
                             "Information",
                             JOptionPane.INFORMATION_MESSAGE);
                 } catch (Exception ex) {
-                    Main.getLogger().log("ERROR", "Failed to delete transaction: " + ex.getMessage());
+                    Main.getLogger().log("ERROR", () -> "Failed to delete transaction: " + ex.getMessage());
                     ErrorHandler.showError(this, "Fehler beim Löschen der Transaktion", ex);
                 }
             }
@@ -204,113 +265,201 @@ public class MainFrame extends JFrame {
         }
     }
 
-    public void refreshTransactions() {
-        try {
-            Main.getLogger().log("INFO", "Refreshing transaction display");
-            // Fetch transactions using controller and update table model
-            List<AppController.Transaction> transactions = controller.getTransactions();
-            tableModel.setTransactions(transactions);
-            Main.getLogger().log("SUCCESS", "Transaction display updated with " + transactions.size() + " records");
-        } catch (Exception e) {
-            ErrorHandler.showError(this, "Failed to refresh transactions", e);
+    private void importCsv(ActionEvent e) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV-Dateien", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
-    }
-
-    // Inner class for the table model
-    private static class TransactionTableModel extends AbstractTableModel {
-        private List<AppController.Transaction> transactions;
-        private final String[] columnNames = {"ID", "Datum", "Beschreibung", "Betrag", "Kategorie"};
 
-        public void setTransactions(List<AppController.Transaction> transactions) {
-            this.transactions = transactions;
-            fireTableDataChanged();
-        }
+        Path file = chooser.getSelectedFile().toPath();
+        CsvImporter importer = controller.newCsvImporter(new CsvImportSettings());
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importiere " + file.getFileName(), "", 0, 1000);
+
+        // The import runs in the background, progress is published back to the EDT
+        Thread.ofVirtual().name("csv-import").start(() -> {
+            try {
+                CsvImporter.ImportResult result = controller.importCsv(importer, file, (bytesRead, totalBytes, imported, failed) ->
+                        SwingUtilities.invokeLater(() -> {
+                            if (monitor.isCanceled()) {
+                                importer.cancel();
+                            }
+                            monitor.setProgress(totalBytes == 0 ? 1000 : (int) (bytesRead * 1000 / totalBytes));
+                            monitor.setNote(imported + " importiert, " + failed + " fehlerhaft");
+                        }));
+
+                SwingUtilities.invokeLater(() -> {
+                    monitor.close();
+                    showImportResult(result);
+                    refreshChanges();
+                });
+            } catch (IOException | SQLException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    monitor.close();
+                    ErrorHandler.showError(this, "Fehler beim Importieren der Datei", ex);
+                    refreshChanges();
+                });
+            }
+        });
+    }
 
-        public AppController.Transaction getTransactionAt(int row) {
-            return transactions.get(row);
+    private void exportTransactions(ActionEvent e) {
+        JFileChooser chooser = new JFileChooser();
+        FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV-Dateien", "csv");
+        FileNameExtensionFilter xlsxFilter = new FileNameExtensionFilter("Excel-Arbeitsmappen", "xlsx");
+        chooser.addChoosableFileFilter(csvFilter);
+        chooser.addChoosableFileFilter(xlsxFilter);
+        chooser.setFileFilter(csvFilter);
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
 
-        @Override
-        public int getRowCount() {
-            return transactions == null ? 0 : transactions.size();
-        }
+        Path selected = chooser.getSelectedFile().toPath();
+        String name = selected.getFileName().toString().toLowerCase();
+        Path file = name.endsWith(".csv") || name.endsWith(".xlsx")
+                ? selected
+                : selected.resolveSibling(selected.getFileName() + (chooser.getFileFilter() == xlsxFilter ? ".xlsx" : ".csv"));
+
+        TransactionExporter exporter = controller.newExporter();
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exportiere nach " + file.getFileName(), "", 0, 1);
+        monitor.setMillisToDecideToPopup(200);
+
+        // The row count is unknown while streaming, so the monitor only shows the number of written rows
+        Thread.ofVirtual().name("transaction-export").start(() -> {
+            try {
+                long rows = controller.exportTransactions(exporter, file, written ->
+                        SwingUtilities.invokeLater(() -> {
+                            if (monitor.isCanceled()) {
+                                exporter.cancel();
+                            }
+                            monitor.setNote(written + " Transaktionen geschrieben");
+                        }));
+
+                SwingUtilities.invokeLater(() -> {
+                    boolean cancelled = monitor.isCanceled();
+                    monitor.close();
+                    JOptionPane.showMessageDialog(this,
+                            rows + " Transaktionen nach " + file.getFileName() + " exportiert."
+                                    + (cancelled ? "\nDer Export wurde abgebrochen." : ""),
+                            "Export abgeschlossen",
+                            JOptionPane.INFORMATION_MESSAGE);
+                });
+            } catch (IOException | SQLException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    monitor.close();
+                    ErrorHandler.showError(this, "Fehler beim Exportieren der Transaktionen", ex);
+                });
+            }
+        });
+    }
 
-        @Override
-        public int getColumnCount() {
-            return columnNames.length;
+    private void showImportResult(CsvImporter.ImportResult result) {
+        StringBuilder message = new StringBuilder();
+        message.append(result.imported()).append(" von ").append(result.lines()).append(" Zeilen importiert.");
+        if (result.cancelled()) {
+            message.append("\nDer Import wurde abgebrochen.");
         }
-
-        @Override
-        public String getColumnName(int column) {
-            return columnNames[column];
+        if (result.failed() > 0) {
+            message.append("\n").append(result.failed()).append(" Zeilen fehlerhaft:");
+            result.errors().stream().limit(10).forEach(error ->
+                    message.append("\nZeile ").append(error.lineNumber()).append(": ").append(error.message()));
         }
 
-        @Override
-        public Class<?> getColumnClass(int columnIndex) {
-            if (transactions == null || transactions.isEmpty()) {
-                return Object.class;
-            }
+        JOptionPane.showMessageDialog(this,
+                message.toString(),
+                "Import abgeschlossen",
+                result.failed() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+    }
 
-            return switch (columnIndex) {
-                case 0 -> Integer.class;
-                case 1 -> LocalDate.class;
-                case 3 -> Double.class;
-                default -> String.class;
-            };
+    public void refreshTransactions() {
+        Main.getLogger().log("INFO", "Refreshing transaction display");
+        long start = System.nanoTime();
+
+        // Totals of a date range are maintained incrementally and show immediately, others arrive with the rows
+        showLoadedSummary();
+        if (!searchQuery.isEmpty()) {
+            search(searchQuery);
+            return;
         }
 
-        @Override
-        public Object getValueAt(int rowIndex, int columnIndex) {
-            if (transactions == null || rowIndex >= transactions.size()) {
-                return null;
-            }
-
-            AppController.Transaction transaction = transactions.get(rowIndex);
+        // Query runs in the background, the table model is updated on the EDT when the result arrives
+        refresher.requestRefresh(controller.getFilter(), onRefreshed(REFRESH_TIME, start));
+    }
 
-            return switch (columnIndex) {
-                case 0 -> transaction.getId();
-                case 1 -> transaction.getDate();
-                case 2 -> transaction.getDescription();
-                case 3 -> transaction.getAmount();
-                case 4 -> transaction.getCategory();
-                default -> null;
-            };
+    /**
+     * Patches the table with the transactions written and deleted since the last refresh, used after
+     * saving, deleting and importing. Falls back to refreshTransactions() when the changes cannot be patched.
+     */
+    public void refreshChanges() {
+        long start = System.nanoTime();
+
+        showLoadedSummary();
+        if (!searchQuery.isEmpty()) {
+            search(searchQuery);
+            return;
         }
+
+        refresher.requestChanges(controller.getFilter(), onRefreshed(REFRESH_CHANGES_TIME, start));
     }
 
-    // Custom renderer for date cells
-    private class DateCellRenderer extends DefaultTableCellRenderer {
-        @Override
-        public Component getTableCellRendererComponent(
-                JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+    /**
+     * Shows the transactions whose description or category matches the query across all dates, best matches
+     * first. An empty query shows the date range again.
+     *
+     * @param query The search terms
+     */
+    public void search(String query) {
+        searchQuery = query.trim();
+        if (searchQuery.isEmpty()) {
+            filterPanel.showSearchResultCount(-1);
+            refreshTransactions();
+            return;
+        }
 
-            if (value instanceof LocalDate date) {
-                setText(dateFormatter.format(date));
-            }
+        long start = System.nanoTime();
+        refresher.requestSearch(searchQuery, MAX_SEARCH_RESULTS, total -> {
+            SEARCH_TIME.recordSince(start);
+            filterPanel.showSearchResultCount(total);
+        });
+    }
 
-            return this;
+    // Called on the change bus thread when another instance wrote to the database
+    private void onRemoteChange(boolean reload) {
+        if (reload) {
+            remoteReloadPending.set(true);
+        }
+        if (!remoteRefreshQueued.getAndSet(true)) {
+            SwingUtilities.invokeLater(() -> {
+                remoteRefreshQueued.set(false);
+                if (remoteReloadPending.getAndSet(false)) {
+                    refreshTransactions();
+                } else {
+                    refreshChanges();
+                }
+            });
         }
     }
 
-    // Custom renderer for currency cells
-    private class CurrencyCellRenderer extends DefaultTableCellRenderer {
-        @Override
-        public Component getTableCellRendererComponent(
-                JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-
-            if (value instanceof Double amount) {
-                setText(currencyFormat.format(amount));
+    private void showLoadedSummary() {
+        AppController.Summary summary = controller.getLoadedSummary(controller.getFilter());
+        if (summary != null) {
+            summaryPanel.updateSummary(summary.income(), summary.expenses(), summary.from(), summary.to());
+        }
+    }
 
-                // Color positive/negative values
-                if (!isSelected) {
-                    setForeground(amount >= 0 ? new Color(0, 128, 0) : new Color(192, 0, 0));
-                }
+    // Measured until the table shows the new rows, a refresh superseded by a newer one is not recorded.
+    // The snapshot only keeps the date range, so the rows of a filter with criteria are not kept for the next start.
+    // The totals were computed after the queued writes were committed, together with the rows.
+    private TransactionRefresher.LoadListener onRefreshed(Histogram timer, long start) {
+        boolean rangeOnly = controller.getFilter().isRangeOnly();
+        return (count, summary) -> {
+            timer.recordSince(start);
+            summaryPanel.updateSummary(summary.income(), summary.expenses(), summary.from(), summary.to());
+            if (rangeOnly) {
+                lastView = new StartupSnapshot(summary.from(), summary.to(), count, summary.income(), summary.expenses(),
+                        tableModel.getFirstPage(), List.of());
             }
-
-            setHorizontalAlignment(SwingConstants.RIGHT);
-            return this;
-        }
+            Main.getLogger().log("SUCCESS", () -> "Transaction display updated with " + count + " records");
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,13 @@
 package dev.zanex.mvc.view;
 
 import dev.zanex.mvc.controller.AppController;
+import dev.zanex.mvc.model.Money;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
-import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Locale;
 
 public class SummaryPanel extends JPanel {
     private final AppController controller;
@@ -16,12 +15,10 @@ public class SummaryPanel extends JPanel {
     private final JLabel incomeValueLabel;
     private final JLabel expensesValueLabel;
     private final JLabel balanceValueLabel;
-    private final NumberFormat currencyFormatter;
     private final DateTimeFormatter dateFormatter;
 
     public SummaryPanel(AppController controller) {
         this.controller = controller;
-        this.currencyFormatter = NumberFormat.getCurrencyInstance(Locale.GERMANY);
         this.dateFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
         setLayout(new BorderLayout());
@@ -75,20 +72,20 @@ public class SummaryPanel extends JPanel {
         add(summaryGrid, BorderLayout.CENTER);
     }
 
-    public void updateSummary(double income, double expenses, LocalDate fromDate, LocalDate toDate) {
+    public void updateSummary(Money income, Money expenses, LocalDate fromDate, LocalDate toDate) {
         // Update period label
         String periodText = dateFormatter.format(fromDate) + " - " + dateFormatter.format(toDate);
         periodLabel.setText(periodText);
 
         // Update financial values
-        incomeValueLabel.setText(currencyFormatter.format(income));
-        expensesValueLabel.setText(currencyFormatter.format(expenses));
+        incomeValueLabel.setText(income.format());
+        expensesValueLabel.setText(expenses.format());
 
-        double balance = income - expenses;
-        balanceValueLabel.setText(currencyFormatter.format(balance));
+        Money balance = income.minus(expenses);
+        balanceValueLabel.setText(balance.format());
 
         // Set balance color based on value
-        if (balance < 0) {
+        if (balance.isNegative()) {
             balanceValueLabel.setForeground(new Color(192, 0, 0)); // Red for negative
         } else {
             balanceValueLabel.setForeground(new Color(0, 128, 0)); // Green for positive or zero
@@ -1,6 +1,7 @@
 package dev.zanex.mvc.view;
 
 import dev.zanex.mvc.controller.AppController;
+import dev.zanex.mvc.model.Money;
 import dev.zanex.mvc.model.Transaction;
 import dev.zanex.mvc.model.TransactionType;
 
@@ -113,7 +114,7 @@ public class TransactionFormPanel extends JPanel {
             typeComboBox.setSelectedItem(transaction.getType());
             dateSpinner.setValue(Date.from(transaction.getDate().atStartOfDay(ZoneId.systemDefault()).toInstant()));
             descriptionField.setText(transaction.getDescription());
-            amountField.setText(String.format("%.2f", transaction.getAmount()));
+            amountField.setText(transaction.getAmount().toPlainString(true));
             saveButton.setText("Aktualisieren");
         } else {
             clearForm();
@@ -127,12 +128,12 @@ public class TransactionFormPanel extends JPanel {
                 throw new IllegalArgumentException("Bitte geben Sie eine Beschreibung ein.");
             }
 
-            double amount;
+            Money amount;
             try {
-                // Replace comma with dot for decimal parsing
-                String amountText = amountField.getText().replace(',', '.');
-                amount = Double.parseDouble(amountText);
-                if (amount <= 0) {
+                // "1.234,56" is read as German format, "12.50" without a comma as decimal point
+                String amountText = amountField.getText().trim();
+                amount = Money.parse(amountText, amountText.indexOf(',') >= 0);
+                if (amount.isNegative() || amount.isZero()) {
                     throw new NumberFormatException();
                 }
             } catch (NumberFormatException ex) {
@@ -196,7 +197,7 @@ public class TransactionFormPanel extends JPanel {
         }
 
         if (parent instanceof MainFrame) {
-            ((MainFrame) parent).refreshTransactions();
+            ((MainFrame) parent).refreshChanges();
         }
     }
 
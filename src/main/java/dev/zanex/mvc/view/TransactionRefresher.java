@@ -0,0 +1,203 @@
+package dev.zanex.mvc.view;
+
+import dev.zanex.Main;
+import dev.zanex.mvc.controller.AppController;
+import dev.zanex.mvc.controller.SearchIndex;
+import dev.zanex.mvc.model.TransactionFilter;
+import dev.zanex.utils.CancellationToken;
+import dev.zanex.utils.ErrorHandler;
+
+import javax.swing.*;
+import java.awt.*;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs table refreshes on virtual threads so the event dispatch thread never waits for the database.
+ * Every request gets a new generation: requests arriving within the coalescing window replace each other,
+ * a newer request cancels the query of an older one, and results of superseded requests are dropped.
+ * A full refresh reloads the rows of the filter, a change refresh only fetches the rows written since the last one.
+ * Both compute the totals of the filter under the same cancellation token as the rows.
+ */
+public class TransactionRefresher {
+    private static final long COALESCE_MILLIS = 75;
+    private static final int MAX_CHANGES = 500;
+
+    private final AppController controller;
+    private final TransactionTableModel tableModel;
+    private final Component parent;
+    private final AtomicLong generation = new AtomicLong();
+    private CancellationToken runningToken;
+    // Generation of the full refresh that has not reached the table yet, a change refresh must not supersede it
+    private final AtomicLong pendingFullRefresh = new AtomicLong();
+
+    public TransactionRefresher(AppController controller, TransactionTableModel tableModel, Component parent) {
+        this.controller = controller;
+        this.tableModel = tableModel;
+        this.parent = parent;
+    }
+
+    /**
+     * Schedules a refresh of the rows of the given filter, superseding any refresh that is still pending or running
+     *
+     * @param filter The filter
+     * @param onLoaded Called on the event dispatch thread with the row count and totals once the table shows the new rows
+     */
+    public void requestRefresh(TransactionFilter filter, LoadListener onLoaded) {
+        long requestGeneration = generation.incrementAndGet();
+        CancellationToken token = replaceRunningToken();
+        pendingFullRefresh.set(requestGeneration);
+
+        Thread.ofVirtual().name("transaction-refresh-" + requestGeneration).start(() -> {
+            boolean handedOver = false;
+            try {
+                // Give rapid filter changes a moment to settle so only the last one hits the database
+                Thread.sleep(COALESCE_MILLIS);
+                if (isSuperseded(requestGeneration)) {
+                    return;
+                }
+
+                long watermark = Main.getTransactionStore().runCancellable(token, controller::getWatermark);
+                int count = Main.getTransactionStore().runCancellable(token,
+                        () -> controller.countTransactions(filter));
+                List<AppController.Transaction> firstPage = Main.getTransactionStore().runCancellable(token,
+                        () -> controller.getTransactionPage(filter, null, TransactionTableModel.PAGE_SIZE));
+                AppController.Summary summary = Main.getTransactionStore().runCancellable(token,
+                        () -> controller.getSummary(filter));
+
+                SwingUtilities.invokeLater(() -> {
+                    pendingFullRefresh.compareAndSet(requestGeneration, 0);
+                    if (isSuperseded(requestGeneration)) {
+                        return;
+                    }
+
+                    tableModel.setRange(filter, count, firstPage, watermark);
+                    onLoaded.loaded(count, summary);
+                });
+                handedOver = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (SQLException e) {
+                if (isSuperseded(requestGeneration) || token.isCancelled()) {
+                    Main.getLogger().log("DEBUG", () -> "Superseded refresh cancelled: " + e.getMessage());
+                    return;
+                }
+
+                SwingUtilities.invokeLater(() -> ErrorHandler.showError(parent, "Failed to refresh transactions", e));
+            } finally {
+                // A failed or discarded refresh never reaches the table, later change refreshes must not wait for it
+                if (!handedOver) {
+                    pendingFullRefresh.compareAndSet(requestGeneration, 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Schedules a refresh that patches the table with the rows written since the last refresh, so its cost
+     * depends on the number of changes and not on the size of the range. Falls back to a full refresh if the
+     * table cannot take the changes or a full refresh is still pending.
+     *
+     * @param filter The filter of the displayed rows
+     * @param onLoaded Called on the event dispatch thread with the row count and totals once the table shows the changes
+     */
+    public void requestChanges(TransactionFilter filter, LoadListener onLoaded) {
+        long watermark = tableModel.getWatermark();
+        if (isFullRefreshPending() || watermark == TransactionTableModel.NO_WATERMARK) {
+            requestRefresh(filter, onLoaded);
+            return;
+        }
+
+        long requestGeneration = generation.incrementAndGet();
+        CancellationToken token = replaceRunningToken();
+
+        Thread.ofVirtual().name("transaction-changes-" + requestGeneration).start(() -> {
+            try {
+                AppController.Changes changes = Main.getTransactionStore().runCancellable(token,
+                        () -> controller.getChangesSince(filter, watermark, MAX_CHANGES));
+                AppController.Summary summary = Main.getTransactionStore().runCancellable(token,
+                        () -> controller.getSummary(filter));
+
+                SwingUtilities.invokeLater(() -> {
+                    if (isSuperseded(requestGeneration)) {
+                        return;
+                    }
+
+                    if (tableModel.applyChanges(filter, changes)) {
+                        onLoaded.loaded(tableModel.getRowCount(), summary);
+                    } else {
+                        Main.getLogger().log("DEBUG", "Changes cannot be patched into the table, reloading the range");
+                        requestRefresh(filter, onLoaded);
+                    }
+                });
+            } catch (SQLException e) {
+                if (isSuperseded(requestGeneration) || token.isCancelled()) {
+                    Main.getLogger().log("DEBUG", () -> "Superseded change refresh cancelled: " + e.getMessage());
+                    return;
+                }
+
+                SwingUtilities.invokeLater(() -> ErrorHandler.showError(parent, "Failed to refresh transactions", e));
+            }
+        });
+    }
+
+    /**
+     * Schedules a search whose results replace the displayed range, superseding any pending refresh.
+     * The search is answered from memory, so it runs without the coalescing delay.
+     *
+     * @param query The search terms
+     * @param limit Maximum number of shown rows
+     * @param onLoaded Called on the event dispatch thread with the number of matching rows once the table shows them
+     */
+    public void requestSearch(String query, int limit, IntConsumer onLoaded) {
+        long requestGeneration = generation.incrementAndGet();
+        replaceRunningToken();
+
+        Thread.ofVirtual().name("transaction-search-" + requestGeneration).start(() -> {
+            SearchIndex.Result result;
+            try {
+                result = controller.search(query, limit);
+            } catch (SQLException e) {
+                Main.getLogger().log("WARN", () -> "Search failed: " + e.getMessage());
+                result = new SearchIndex.Result(List.of(), 0);
+            }
+
+            SearchIndex.Result found = result;
+            SwingUtilities.invokeLater(() -> {
+                if (isSuperseded(requestGeneration)) {
+                    return;
+                }
+
+                tableModel.showRows(found.rows());
+                onLoaded.accept(found.total());
+            });
+        });
+    }
+
+    /**
+     * Receives the result of a refresh on the event dispatch thread
+     */
+    public interface LoadListener {
+        void loaded(int count, AppController.Summary summary);
+    }
+
+    // A newer request cancels the query of the running one
+    private synchronized CancellationToken replaceRunningToken() {
+        if (runningToken != null) {
+            runningToken.cancel();
+        }
+        runningToken = new CancellationToken();
+        return runningToken;
+    }
+
+    // Only the latest request counts, a full refresh superseded by a search or another refresh is not pending anymore
+    private boolean isFullRefreshPending() {
+        return pendingFullRefresh.get() == generation.get();
+    }
+
+    private boolean isSuperseded(long requestGeneration) {
+        return generation.get() != requestGeneration;
+    }
+}
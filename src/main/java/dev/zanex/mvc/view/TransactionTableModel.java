@@ -0,0 +1,523 @@
+package dev.zanex.mvc.view;
+
+import dev.zanex.Main;
+import dev.zanex.mvc.controller.AppController;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.TransactionChanges;
+import dev.zanex.mvc.model.TransactionFilter;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Table model that only holds the pages of the current filter the user has looked at.
+ * Pages are fetched in the background with keyset pagination on (transaction_date, id) and
+ * the least recently used pages are dropped once too many are cached.
+ * <p>
+ * After writes the model is patched with the changes since its watermark instead of being reloaded,
+ * see applyChanges().
+ */
+public class TransactionTableModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 100;
+    private static final int PREFETCH_PAGES = 1;
+    private static final int MAX_CACHED_PAGES = 50;
+    public static final long NO_WATERMARK = Long.MIN_VALUE;
+
+    private final AppController controller;
+    private final String[] columnNames = {"ID", "Datum", "Beschreibung", "Betrag", "Kategorie"};
+    private final ExecutorService pageLoader = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("transaction-page-loader-", 0).factory());
+
+    // All fields below are only touched on the event dispatch thread
+    private final Map<Integer, List<AppController.Transaction>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<AppController.Transaction>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, AppController.Transaction> pageAnchors = new HashMap<>();
+    private final Set<Integer> pendingPages = new HashSet<>();
+    // Pages whose load failed, not requested again before the rows are replaced or patched, so rendering does not retry in a loop
+    private final Set<Integer> failedPages = new HashSet<>();
+    // Rows of the last applied changes by id, null for deleted ones, so changes reported again are skipped
+    private Map<Integer, AppController.Transaction> lastChanges = Map.of();
+    // Filter of the displayed rows, null while fixed rows are shown
+    private TransactionFilter filter;
+    private int rowCount = 0;
+    private int generation = 0;
+    private long watermark = NO_WATERMARK;
+    private boolean applyingChanges = false;
+    private int firstChangedPage = Integer.MAX_VALUE;
+
+    public TransactionTableModel(AppController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Replaces the displayed rows with the already loaded row count and first page of a filter
+     *
+     * @param filter The filter
+     * @param count Number of rows the filter shows
+     * @param firstPage The first page of the range
+     * @param watermark Watermark taken before count and page were read, NO_WATERMARK if unknown
+     */
+    public void setRange(TransactionFilter filter, int count, List<AppController.Transaction> firstPage, long watermark) {
+        generation++;
+        pages.clear();
+        pageAnchors.clear();
+        pendingPages.clear();
+        failedPages.clear();
+        lastChanges = Map.of();
+
+        this.filter = filter;
+        this.rowCount = count;
+        this.watermark = watermark;
+        storePage(0, firstPage);
+
+        fireTableDataChanged();
+    }
+
+    /**
+     * Replaces the displayed range with a fixed list of rows, e.g. search results. No pages are loaded
+     * and no changes are applied until the next setRange().
+     *
+     * @param rows The rows to show, at most PAGE_SIZE * MAX_CACHED_PAGES
+     */
+    public void showRows(List<AppController.Transaction> rows) {
+        generation++;
+        pages.clear();
+        pageAnchors.clear();
+        pendingPages.clear();
+        failedPages.clear();
+        lastChanges = Map.of();
+
+        this.filter = null;
+        this.rowCount = Math.min(rows.size(), PAGE_SIZE * MAX_CACHED_PAGES);
+        this.watermark = NO_WATERMARK;
+        for (int page = 0; page * PAGE_SIZE < rowCount; page++) {
+            storePage(page, rows.subList(page * PAGE_SIZE, Math.min((page + 1) * PAGE_SIZE, rowCount)));
+        }
+
+        fireTableDataChanged();
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Patches the displayed range with the changes since the watermark of the model. Every moved, inserted
+     * and deleted row fires its own event, loaded pages behind a change are shifted, and pages whose
+     * rows can no longer be told are dropped and loaded again when they are shown.
+     * <p>
+     * Nothing is changed if a change cannot be placed exactly, e.g. a row deleted in a part of the range
+     * that is not loaded, since it is unknown whether the row was counted. The caller reloads the range then.
+     *
+     * @param filter The filter the changes were fetched for
+     * @param changes The changes since getWatermark()
+     * @return true if the changes were applied
+     */
+    public boolean applyChanges(TransactionFilter filter, AppController.Changes changes) {
+        if (!changes.complete() || watermark == NO_WATERMARK || !filter.equals(this.filter)) {
+            return false;
+        }
+
+        Map<Integer, Integer> loaded = loadedPositions();
+        List<AppController.Transaction> written = new ArrayList<>(changes.inserted().size() + changes.updated().size());
+        written.addAll(changes.inserted());
+        written.addAll(changes.updated());
+
+        // Check first that every change can be placed, so an unplaceable one leaves the model untouched
+        for (TransactionChanges.Tombstone tombstone : changes.deleted()) {
+            if (!loaded.containsKey(tombstone.id()) && !isRepeated(tombstone.id(), null) && inRange(tombstone.date())
+                    && !locate(tombstone.date(), tombstone.id()).exact()) {
+                return false;
+            }
+        }
+        for (AppController.Transaction transaction : changes.updated()) {
+            if (!loaded.containsKey(transaction.getId()) && !isRepeated(transaction.getId(), transaction)) {
+                return false; // It may have been counted somewhere in the range before
+            }
+        }
+        for (int id : changes.excluded()) {
+            if (!loaded.containsKey(id) && !isRepeated(id, null)) {
+                return false;
+            }
+        }
+
+        generation++; // Pages still loading were requested for the old positions
+        pendingPages.clear();
+        failedPages.clear();
+        applyingChanges = true;
+        try {
+            // Rows leave their positions first, removals keep every other loaded row loaded
+            List<AppController.Transaction> toInsert = new ArrayList<>();
+            for (TransactionChanges.Tombstone tombstone : changes.deleted()) {
+                Integer position = loadedPositions().get(tombstone.id());
+                if (position != null) {
+                    removeRow(position);
+                }
+            }
+            for (int id : changes.excluded()) {
+                Integer position = loadedPositions().get(id);
+                if (position != null) {
+                    removeRow(position);
+                }
+            }
+
+            for (AppController.Transaction transaction : written) {
+                Integer position = loadedPositions().get(transaction.getId());
+                if (position != null) {
+                    AppController.Transaction shown = getLoadedRow(position);
+                    if (sameValues(shown, transaction)) {
+                        continue;
+                    }
+                    if (inRange(transaction.getDate()) && compare(shown, transaction) == 0) {
+                        setLoadedRow(position, transaction);
+                        fireTableRowsUpdated(position, position);
+                        continue;
+                    }
+                    removeRow(position);
+                } else if (isRepeated(transaction.getId(), transaction)) {
+                    continue;
+                }
+
+                if (inRange(transaction.getDate())) {
+                    toInsert.add(transaction);
+                }
+            }
+
+            for (AppController.Transaction transaction : toInsert) {
+                insertRow(locate(transaction.getDate(), transaction.getId()), transaction);
+            }
+            prunePages();
+        } finally {
+            applyingChanges = false;
+        }
+
+        Map<Integer, AppController.Transaction> applied = new HashMap<>();
+        for (TransactionChanges.Tombstone tombstone : changes.deleted()) {
+            applied.put(tombstone.id(), null);
+        }
+        for (int id : changes.excluded()) {
+            applied.put(id, null);
+        }
+        for (AppController.Transaction transaction : written) {
+            applied.put(transaction.getId(), transaction);
+        }
+        lastChanges = applied;
+        watermark = changes.watermark();
+        return true;
+    }
+
+    /**
+     * Returns the first page of the displayed range
+     *
+     * @return The rows or null if the page is not loaded
+     */
+    public List<AppController.Transaction> getFirstPage() {
+        return pages.get(0);
+    }
+
+    /**
+     * Returns the transaction in the given row if its page is loaded
+     *
+     * @param row The model row
+     * @return The transaction or null while its page is still loading
+     */
+    public AppController.Transaction getTransactionAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+
+        int page = row / PAGE_SIZE;
+        List<AppController.Transaction> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+
+        // Keep the neighbours warm so scrolling does not hit empty rows
+        for (int i = 1; i <= PREFETCH_PAGES; i++) {
+            requestPage(page + i);
+            requestPage(page - i);
+        }
+
+        int index = row % PAGE_SIZE;
+        return index < rows.size() ? rows.get(index) : null;
+    }
+
+    private void requestPage(int page) {
+        if (applyingChanges || filter == null || page < 0 || page * PAGE_SIZE >= rowCount || pages.containsKey(page)
+                || failedPages.contains(page) || !pendingPages.add(page)) {
+            return;
+        }
+
+        int requestGeneration = generation;
+        TransactionFilter pageFilter = filter;
+        AppController.Transaction anchor = page == 0 ? null : pageAnchors.get(page - 1);
+
+        pageLoader.execute(() -> {
+            try {
+                List<AppController.Transaction> rows = page == 0 || anchor != null
+                        ? controller.getTransactionPage(pageFilter, anchor, PAGE_SIZE)
+                        : controller.getTransactionPage(pageFilter, page * PAGE_SIZE, PAGE_SIZE);
+
+                SwingUtilities.invokeLater(() -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+
+                    pendingPages.remove(page);
+                    storePage(page, rows);
+                    int firstRow = page * PAGE_SIZE;
+                    fireTableRowsUpdated(firstRow, Math.min(firstRow + PAGE_SIZE, rowCount) - 1);
+                });
+            } catch (SQLException e) {
+                Main.getLogger().log("ERROR", () -> "Failed to load transaction page " + page + ": " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    if (requestGeneration == generation) {
+                        pendingPages.remove(page);
+                        failedPages.add(page);
+                    }
+                });
+            }
+        });
+    }
+
+    // Pages are copied, applyChanges() shifts rows between them
+    private void storePage(int page, List<AppController.Transaction> rows) {
+        pages.put(page, new ArrayList<>(rows));
+        if (!rows.isEmpty()) {
+            pageAnchors.put(page, rows.get(rows.size() - 1));
+        }
+    }
+
+    // Positions of all loaded rows by id
+    private Map<Integer, Integer> loadedPositions() {
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (Map.Entry<Integer, List<AppController.Transaction>> page : pages.entrySet()) {
+            List<AppController.Transaction> rows = page.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                positions.put(rows.get(i).getId(), page.getKey() * PAGE_SIZE + i);
+            }
+        }
+        return positions;
+    }
+
+    private AppController.Transaction getLoadedRow(int position) {
+        return pages.get(position / PAGE_SIZE).get(position % PAGE_SIZE);
+    }
+
+    private void setLoadedRow(int position, AppController.Transaction transaction) {
+        pages.get(position / PAGE_SIZE).set(position % PAGE_SIZE, transaction);
+    }
+
+    /**
+     * Finds where a row belongs. The position is exact if the loaded pages around it tell, otherwise it is
+     * the start of the part of the range that is not loaded and would contain the row.
+     */
+    private Slot locate(LocalDate date, int id) {
+        int previousEnd = 0;
+        for (Map.Entry<Integer, List<AppController.Transaction>> page : new TreeMap<>(pages).entrySet()) {
+            List<AppController.Transaction> rows = page.getValue();
+            if (rows.isEmpty()) {
+                continue;
+            }
+
+            int pageStart = page.getKey() * PAGE_SIZE;
+            if (compare(date, id, rows.get(0)) < 0) {
+                return pageStart == previousEnd ? new Slot(pageStart, true) : new Slot(previousEnd, false);
+            }
+            if (compare(date, id, rows.get(rows.size() - 1)) < 0) {
+                int low = 1;
+                int high = rows.size() - 1;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (compare(date, id, rows.get(middle)) < 0) {
+                        high = middle;
+                    } else {
+                        low = middle + 1;
+                    }
+                }
+                return new Slot(pageStart + low, true);
+            }
+            previousEnd = pageStart + rows.size();
+        }
+        return new Slot(previousEnd, previousEnd == rowCount);
+    }
+
+    // Inserts a row and moves the last row of every page to the next one. Loaded pages may only know the
+    // first rows of the page during applyChanges(), prunePages() drops them afterwards. A slot that is not
+    // exact lies in rows that are not known, so only the rows behind it move.
+    private void insertRow(Slot slot, AppController.Transaction transaction) {
+        int position = slot.position();
+        int firstPage = position / PAGE_SIZE;
+        rowCount++;
+        firstChangedPage = Math.min(firstChangedPage, firstPage);
+
+        // The row pushed out of the previous page, null if it is not known
+        AppController.Transaction overflow = null;
+        int previousPage = -1;
+        for (Map.Entry<Integer, List<AppController.Transaction>> page : new TreeMap<>(pages).tailMap(firstPage).entrySet()) {
+            int index = page.getKey();
+            List<AppController.Transaction> rows = page.getValue();
+            if (index == firstPage) {
+                if (slot.exact()) {
+                    rows.add(position % PAGE_SIZE, transaction);
+                }
+            } else if (index == previousPage + 1 && overflow != null) {
+                rows.add(0, overflow);
+            } else {
+                // The row moving in is not known, only the one moving out
+                overflow = rows.size() == PAGE_SIZE ? rows.get(PAGE_SIZE - 1) : null;
+                dropPage(index);
+                previousPage = index;
+                continue;
+            }
+            overflow = rows.size() > PAGE_SIZE ? rows.remove(PAGE_SIZE) : null;
+            previousPage = index;
+        }
+        fireTableRowsInserted(position, position);
+    }
+
+    // Removes a loaded row and moves the first row of every following page to the previous one
+    private void removeRow(int position) {
+        int firstPage = position / PAGE_SIZE;
+        rowCount--;
+        firstChangedPage = Math.min(firstChangedPage, firstPage);
+
+        TreeMap<Integer, List<AppController.Transaction>> loaded = new TreeMap<>(pages);
+        for (Map.Entry<Integer, List<AppController.Transaction>> page : loaded.tailMap(firstPage).entrySet()) {
+            int index = page.getKey();
+            List<AppController.Transaction> rows = page.getValue();
+            if (index == firstPage) {
+                rows.remove(position % PAGE_SIZE);
+            } else if (!rows.isEmpty()) {
+                AppController.Transaction first = rows.remove(0);
+                // Only a previous page that knows all its other rows can take it as its last one
+                List<AppController.Transaction> previous = loaded.get(index - 1);
+                if (previous != null && previous.size() == PAGE_SIZE - 1) {
+                    previous.add(first);
+                }
+            }
+        }
+        fireTableRowsDeleted(position, position);
+    }
+
+    // Drops pages that miss rows after the shifts and anchors of pages whose rows are no longer known
+    private void prunePages() {
+        if (firstChangedPage == Integer.MAX_VALUE) {
+            return;
+        }
+
+        for (Map.Entry<Integer, List<AppController.Transaction>> page : new TreeMap<>(pages).tailMap(firstChangedPage).entrySet()) {
+            if (page.getValue().size() != Math.min(PAGE_SIZE, rowCount - page.getKey() * PAGE_SIZE)) {
+                dropPage(page.getKey());
+            }
+        }
+
+        pageAnchors.keySet().removeIf(page -> page >= firstChangedPage);
+        for (Map.Entry<Integer, List<AppController.Transaction>> page : new TreeMap<>(pages).tailMap(firstChangedPage).entrySet()) {
+            if (!page.getValue().isEmpty()) {
+                pageAnchors.put(page.getKey(), page.getValue().get(page.getValue().size() - 1));
+            }
+        }
+        firstChangedPage = Integer.MAX_VALUE;
+    }
+
+    private void dropPage(int page) {
+        pages.remove(page);
+        pageAnchors.remove(page);
+    }
+
+    private boolean inRange(LocalDate date) {
+        return !date.isBefore(filter.from()) && !date.isAfter(filter.to());
+    }
+
+    // True if the change was already applied with the last changes, the store may report it again
+    private boolean isRepeated(int id, AppController.Transaction transaction) {
+        if (!lastChanges.containsKey(id)) {
+            return false;
+        }
+        AppController.Transaction applied = lastChanges.get(id);
+        return applied == null ? transaction == null : transaction != null && sameValues(applied, transaction);
+    }
+
+    private static boolean sameValues(AppController.Transaction a, AppController.Transaction b) {
+        return a.getId() == b.getId()
+                && Objects.equals(a.getDate(), b.getDate())
+                && Objects.equals(a.getAmount(), b.getAmount())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getCategory(), b.getCategory())
+                && a.getType() == b.getType();
+    }
+
+    // Negative if a row with this date and id is shown before the given row, newest first
+    private static int compare(LocalDate date, int id, AppController.Transaction row) {
+        int byDate = row.getDate().compareTo(date);
+        return byDate != 0 ? byDate : Integer.compare(row.getId(), id);
+    }
+
+    private static int compare(AppController.Transaction a, AppController.Transaction b) {
+        return compare(a.getDate(), a.getId(), b);
+    }
+
+    private record Slot(int position, boolean exact) {
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return switch (columnIndex) {
+            case 0 -> Integer.class;
+            case 1 -> LocalDate.class;
+            case 3 -> Money.class;
+            default -> String.class;
+        };
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        AppController.Transaction transaction = getTransactionAt(rowIndex);
+        if (transaction == null) {
+            return null;
+        }
+
+        return switch (columnIndex) {
+            case 0 -> transaction.getId();
+            case 1 -> transaction.getDate();
+            case 2 -> transaction.getDescription();
+            case 3 -> transaction.getAmount();
+            case 4 -> transaction.getCategory();
+            default -> null;
+        };
+    }
+}
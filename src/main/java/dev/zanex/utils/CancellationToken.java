@@ -0,0 +1,70 @@
+package dev.zanex.utils;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets another thread abort the statements of a unit of work. While the work runs, every statement
+ * it executes through MySQLHandler is registered here, and cancel() calls Statement.cancel() on it.
+ */
+public class CancellationToken {
+    private static final Registration NONE = () -> {
+    };
+
+    private Statement running;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Cancels the work, aborting the statement that is currently executing
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+
+        if (running != null) {
+            try {
+                running.cancel();
+            } catch (SQLException ignored) {
+                // The statement finished or its connection is gone, nothing left to cancel
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers a statement that is about to execute
+     *
+     * @param statement The statement
+     * @return Registration that must be closed once the statement has finished
+     * @throws SQLException if the work has already been cancelled
+     */
+    synchronized Registration register(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query was cancelled");
+        }
+
+        running = statement;
+        return () -> {
+            // Cached statements are reused by other work afterwards, so they must not stay cancellable
+            synchronized (CancellationToken.this) {
+                if (running == statement) {
+                    running = null;
+                }
+            }
+        };
+    }
+
+    static Registration none() {
+        return NONE;
+    }
+
+    /**
+     * Ends the registration of a statement
+     */
+    interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
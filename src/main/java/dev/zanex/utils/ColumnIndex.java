@@ -0,0 +1,52 @@
+package dev.zanex.utils;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class ColumnIndex {
+    private final Map<String, Integer> indexes;
+
+    /**
+     * Resolves the index of every column label of a result set
+     *
+     * @param metaData The metadata of the result set
+     * @throws SQLException if the metadata cannot be read
+     */
+    public ColumnIndex(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        indexes = HashMap.newHashMap(columnCount);
+
+        for (int i = 1; i <= columnCount; i++) {
+            // First occurrence wins, like ResultSet.findColumn
+            indexes.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    /**
+     * Returns the index of a column that must be present
+     *
+     * @param label The column label, case-insensitive
+     * @return The 1-based column index
+     * @throws SQLException if the result set has no such column
+     */
+    public int require(String label) throws SQLException {
+        Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+        if (index == null) {
+            throw new SQLException("Result set has no column '" + label + "'");
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of an optional column
+     *
+     * @param label The column label, case-insensitive
+     * @return The 1-based column index or 0 if the result set has no such column
+     */
+    public int find(String label) {
+        return indexes.getOrDefault(label.toLowerCase(Locale.ROOT), 0);
+    }
+}
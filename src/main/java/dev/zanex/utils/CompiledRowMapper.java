@@ -0,0 +1,34 @@
+package dev.zanex.utils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Row mapper that looks up its column indexes once per query instead of by name for every row.
+ * bind() returns a mapper holding the indexes of one result set, the instance itself keeps no state.
+ *
+ * @param <T> Type of the mapped object
+ */
+public abstract class CompiledRowMapper<T> implements RowMapper<T> {
+
+    @Override
+    public final RowMapper<T> bind(ResultSetMetaData metaData) throws SQLException {
+        return compile(new ColumnIndex(metaData));
+    }
+
+    // Unbound use resolves the columns for the single row, queries bind once before the row loop
+    @Override
+    public final T mapRow(ResultSet resultSet) throws SQLException {
+        return bind(resultSet.getMetaData()).mapRow(resultSet);
+    }
+
+    /**
+     * Resolves the column indexes of a result set
+     *
+     * @param columns Column indexes of the result set
+     * @return Mapper for the rows of that result set
+     * @throws SQLException if a required column is missing
+     */
+    protected abstract RowMapper<T> compile(ColumnIndex columns) throws SQLException;
+}
@@ -0,0 +1,401 @@
+package dev.zanex.utils;
+
+import dev.zanex.Main;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool {
+    private static final Histogram BORROW_WAIT = Metrics.timer("db.pool.wait");
+    private static final LongAdder BORROW_TIMEOUTS = Metrics.counter("db.pool.timeouts");
+    // -Ddb.pool.leakTrace=true records the stack of every borrow, so leak reports name the borrowing code
+    private static final boolean LEAK_TRACE = Boolean.getBoolean("db.pool.leakTrace");
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+    private final StatementCache.Stats statementCacheStats = new StatementCache.Stats();
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Map<PooledConnection, Lease> leased = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a bounded connection pool. The first connection is opened right away, the rest of the
+     * minimum number in the background.
+     *
+     * @param url                 JDBC url of the database
+     * @param username            Database username
+     * @param password            Database password
+     * @param minSize             Number of connections kept open even when idle
+     * @param maxSize             Maximum number of connections handed out at the same time
+     * @param borrowTimeoutMillis How long a borrower waits for a free connection
+     * @param idleTimeoutMillis   How long a connection above minSize may stay idle before it is closed
+     * @param leakThresholdMillis How long a lease may be held before it is reported as a possible leak
+     * @param statementCacheSize  Number of prepared statements cached per connection, 0 disables the cache
+     * @throws SQLException if the first connection cannot be opened
+     */
+    public ConnectionPool(String url, String username, String password, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis,
+                          int statementCacheSize) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        }
+
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Only the first connection is opened up front so a wrong URL fails here, the housekeeper opens the rest
+        if (minSize > 0) {
+            idle.push(openConnection());
+        }
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.execute(this::fillToMinimum);
+        long interval = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool. Closing the returned connection hands it back to the pool.
+     *
+     * @return A leased connection
+     * @throws SQLException if no connection becomes available within the borrow timeout
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                BORROW_TIMEOUTS.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection ("
+                        + leased.size() + "/" + maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidConnection();
+            Lease lease = new Lease(pooled);
+            leased.put(pooled, lease);
+            BORROW_WAIT.recordSince(start);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of connections currently handed out
+     *
+     * @return Number of active leases
+     */
+    public int getActiveCount() {
+        return leased.size();
+    }
+
+    /**
+     * Returns the number of open connections waiting in the pool
+     *
+     * @return Number of idle connections
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Returns the prepared statement cache counters of all pooled connections
+     *
+     * @return Statement cache statistics
+     */
+    public StatementCache.Stats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeper. Leased connections are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        synchronized (this) {
+            while (!idle.isEmpty()) {
+                idle.pop().closeQuietly();
+            }
+        }
+    }
+
+    private PooledConnection takeValidConnection() throws SQLException {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                pooled = idle.poll();
+            }
+
+            if (pooled == null) {
+                return openConnection();
+            }
+
+            // Validate on borrow so a dead socket is replaced instead of handed out
+            if (pooled.isValid()) {
+                return pooled;
+            }
+
+            log("WARN", "Discarding broken pooled connection");
+            pooled.closeQuietly();
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        StatementCache cache = statementCacheSize > 0
+                ? new StatementCache(connection, statementCacheSize, statementCacheStats)
+                : null;
+        return new PooledConnection(connection, cache);
+    }
+
+    private void release(PooledConnection pooled) {
+        if (leased.remove(pooled) == null) {
+            return;
+        }
+
+        try {
+            if (pooled.statementCache != null) {
+                pooled.statementCache.releaseAll();
+            }
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+
+            synchronized (this) {
+                if (closed) {
+                    pooled.closeQuietly();
+                } else {
+                    idle.push(pooled);
+                }
+            }
+        } catch (SQLException e) {
+            log("WARN", "Discarding connection that could not be reset: " + e.getMessage());
+            pooled.closeQuietly();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed) {
+            synchronized (this) {
+                if (idle.size() + leased.size() >= minSize) {
+                    return;
+                }
+            }
+
+            PooledConnection pooled;
+            try {
+                pooled = openConnection();
+            } catch (SQLException e) {
+                log("WARN", "Spare database connection could not be opened: " + e.getMessage());
+                return;
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    pooled.closeQuietly();
+                    return;
+                }
+                idle.push(pooled);
+            }
+        }
+    }
+
+    private void housekeeping() {
+        long now = System.currentTimeMillis();
+
+        // Evict connections above the minimum that have been idle for too long
+        synchronized (this) {
+            Iterator<PooledConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && idle.size() > minSize) {
+                PooledConnection pooled = iterator.next();
+                if (now - pooled.lastUsed > idleTimeoutMillis) {
+                    iterator.remove();
+                    pooled.closeQuietly();
+                }
+            }
+        }
+
+        // Report leases that were held longer than the leak threshold, once per lease
+        for (Lease lease : leased.values()) {
+            if (!lease.reported && now - lease.borrowedAt > leakThresholdMillis) {
+                lease.reported = true;
+                log("WARN", "Possible connection leak, connection borrowed " + (now - lease.borrowedAt)
+                        + " ms ago by thread " + lease.borrowerThread + " at " + lease.borrowSite());
+            }
+        }
+    }
+
+    private static void log(String level, String message) {
+        Logger logger = Main.getLogger();
+        if (logger != null) {
+            logger.log(level, message);
+        }
+    }
+
+    // A physical connection owned by the pool
+    private static class PooledConnection {
+        private final Connection connection;
+        private final StatementCache statementCache;
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(Connection connection, StatementCache statementCache) {
+            this.connection = connection;
+            this.statementCache = statementCache;
+        }
+
+        private boolean isValid() {
+            try {
+                return connection.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Connection is discarded anyway
+            }
+        }
+    }
+
+    // Handle given to a borrower, returns the physical connection to the pool on close()
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final Connection proxy;
+        private final long borrowedAt = System.currentTimeMillis();
+        private final String borrowerThread = Thread.currentThread().getName();
+        // Capturing a stack costs microseconds, too much for every borrow unless a leak is being hunted
+        private final Throwable borrowTrace = LEAK_TRACE ? new Throwable() : null;
+        private volatile boolean returned = false;
+        private volatile boolean reported = false;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.connection.isClosed();
+                }
+                case "prepareStatement" -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+
+                    // Only the plain and generated-keys variants are cached, others go to the driver
+                    if (pooled.statementCache != null && (args.length == 1
+                            || (args.length == 2 && args[1] instanceof Integer))) {
+                        int generatedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return pooled.statementCache.prepare((Connection) proxy, (String) args[0], generatedKeys);
+                    }
+                }
+                case "unwrap" -> {
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Lease[" + pooled.connection + "]";
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                }
+            }
+
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private String borrowSite() {
+            if (borrowTrace == null) {
+                return "unknown location (set -Ddb.pool.leakTrace=true to record it)";
+            }
+            for (StackTraceElement element : borrowTrace.getStackTrace()) {
+                if (!element.getClassName().startsWith(ConnectionPool.class.getName())
+                        && !element.getClassName().startsWith(MySQLHandler.class.getName())
+                        && !element.getClassName().startsWith("jdk.")
+                        && !element.getClassName().startsWith("java.")) {
+                    return element.toString();
+                }
+            }
+            return "unknown";
+        }
+    }
+}
@@ -15,17 +15,11 @@ public class ErrorHandler {
      * @param ex The exception to display and log
      */
     public static void showError(Component parent, Exception ex) {
-        // Get stack trace as string
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        ex.printStackTrace(pw);
-        String stackTrace = sw.toString();
-
         // Log the error
         Logger logger = Main.getLogger();
         if (logger != null) {
             logger.log("ERROR", ex.getMessage());
-            logger.log("DEBUG", stackTrace);
+            logger.log("DEBUG", () -> getStackTrace(ex)); // Only built when debug output is enabled
         }
 
         // Show dialog to user
@@ -45,17 +39,11 @@ public class ErrorHandler {
      * @param ex The exception to log
      */
     public static void showError(Component parent, String message, Exception ex) {
-        // Get stack trace as string
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        ex.printStackTrace(pw);
-        String stackTrace = sw.toString();
-
         // Log the error
         Logger logger = Main.getLogger();
         if (logger != null) {
             logger.log("ERROR", message);
-            logger.log("DEBUG", stackTrace);
+            logger.log("DEBUG", () -> getStackTrace(ex)); // Only built when debug output is enabled
         }
 
         // Show dialog to user
@@ -66,4 +54,11 @@ public class ErrorHandler {
                 JOptionPane.ERROR_MESSAGE
         );
     }
-}
\ No newline at end of file
+
+    private static String getStackTrace(Exception ex) {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        ex.printStackTrace(pw);
+        return sw.toString();
+    }
+}
@@ -1,9 +1,34 @@
 package dev.zanex.utils;
 
-import java.util.List;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
+/**
+ * Asynchronous logger. log() only puts the message into a bounded ring buffer, a background thread
+ * formats it and writes it to the console and optionally to a rolling log file, so logging never
+ * blocks the EDT or a database thread. Messages below the minimum level are dropped before they are
+ * built when the Supplier overload is used. If the buffer is full, messages are dropped and counted.
+ */
 public class Logger {
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
     private static OutputHandler outputHandler;
 
     private final Map<String, String> prefixes = Map.of(
@@ -14,17 +39,270 @@ public class Logger {
             "SUCCESS", "&a(✔) &a» &f"
     );
 
+    // Severity of each level, messages below the minimum severity are dropped
+    private final Map<String, Integer> severities = Map.of(
+            "DEBUG", 0,
+            "INFO", 1,
+            "SUCCESS", 2,
+            "WARN", 3,
+            "ERROR", 4
+    );
+
+    private final RingBuffer<Entry> buffer = new RingBuffer<>(BUFFER_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final PrintStream console = System.out;
+    private final Thread writer;
+    private volatile int minimumSeverity = 0;
+    private volatile boolean running = true;
+
+    // Only touched by the writer thread
+    private final StringBuilder line = new StringBuilder(256);
+    private RollingFile file;
+
     public Logger() {
         outputHandler = new OutputHandler();
-        outputHandler.println(prefixes.get("INFO") + "Logger initialized.");
+        writer = Thread.ofPlatform().daemon().name("logger").start(this::drainLoop);
+        log("INFO", "Logger initialized.");
     }
 
+    /**
+     * Logs a message
+     *
+     * @param level DEBUG, INFO, SUCCESS, WARN or ERROR
+     * @param message The message, may contain color codes
+     */
     public void log(String level, String message) {
-        String prefix = prefixes.getOrDefault(level.toUpperCase(), "&f");
-        outputHandler.println(prefix + message);
+        String normalized = level.toUpperCase();
+        if (isEnabled(normalized)) {
+            enqueue(normalized, message);
+        }
+    }
+
+    /**
+     * Logs a message that is only built if the level is enabled
+     *
+     * @param level DEBUG, INFO, SUCCESS, WARN or ERROR
+     * @param message Builds the message, may contain color codes
+     */
+    public void log(String level, Supplier<String> message) {
+        String normalized = level.toUpperCase();
+        if (isEnabled(normalized)) {
+            enqueue(normalized, message.get());
+        }
+    }
+
+    /**
+     * Returns whether messages of a level are written
+     *
+     * @param level The level
+     * @return true if the level is at or above the minimum level
+     */
+    public boolean isEnabled(String level) {
+        return severities.getOrDefault(level.toUpperCase(), Integer.MAX_VALUE) >= minimumSeverity;
+    }
+
+    /**
+     * Sets the lowest level that is written, e.g. "INFO" drops DEBUG messages
+     *
+     * @param level The minimum level
+     * @throws IllegalArgumentException if the level is unknown
+     */
+    public void setMinimumLevel(String level) {
+        Integer severity = severities.get(level.toUpperCase());
+        if (severity == null) {
+            throw new IllegalArgumentException("Unknown log level: " + level);
+        }
+        minimumSeverity = severity;
+    }
+
+    /**
+     * Additionally writes all messages without color codes to a file that is rolled over when it
+     * reaches maxBytes. Older files are kept as name.1 to name.maxFiles.
+     *
+     * @param path The log file
+     * @param maxBytes Size at which the file is rolled over
+     * @param maxFiles Number of rolled over files to keep
+     * @throws IOException if the file cannot be opened
+     */
+    public void enableFileOutput(Path path, long maxBytes, int maxFiles) throws IOException {
+        RollingFile rollingFile = new RollingFile(path, maxBytes, maxFiles);
+        // The writer thread picks the file up with the next entry
+        enqueue(null, rollingFile);
+    }
+
+    /**
+     * Waits until all queued messages are written, used before the application exits
+     *
+     * @param timeoutMillis Maximum time to wait
+     */
+    public void flush(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!buffer.isEmpty() && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Writes the queued messages and stops the writer thread
+     */
+    public void close() {
+        flush(2000);
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public OutputHandler getOutputHandler() {
         return outputHandler;
     }
+
+    private void enqueue(String level, Object payload) {
+        Thread thread = Thread.currentThread();
+        String threadName = thread.getName().isEmpty() ? "virtual-" + thread.threadId() : thread.getName();
+        if (!buffer.offer(new Entry(System.currentTimeMillis(), level, threadName, payload))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drainLoop() {
+        while (running || !buffer.isEmpty()) {
+            reportDropped();
+            Entry entry = buffer.poll();
+            if (entry == null) {
+                flushFile();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            if (entry.payload() instanceof RollingFile rollingFile) {
+                closeFile();
+                file = rollingFile;
+            } else {
+                write(entry);
+            }
+        }
+        reportDropped();
+        closeFile();
+    }
+
+    private void reportDropped() {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            write(new Entry(System.currentTimeMillis(), "WARN", "logger", lost + " log messages dropped, buffer was full"));
+        }
+    }
+
+    private void write(Entry entry) {
+        String message = (String) entry.payload();
+
+        line.setLength(0);
+        OutputHandler.appendColored(prefixes.getOrDefault(entry.level(), "&f"), line);
+        OutputHandler.appendColored(message, line);
+        console.println(line);
+
+        if (file != null) {
+            line.setLength(0);
+            FILE_TIMESTAMP.formatTo(Instant.ofEpochMilli(entry.timestamp()), line);
+            line.append(' ').append(entry.level()).append(" [").append(entry.thread()).append("] ");
+            OutputHandler.appendStripped(message, line);
+            try {
+                file.writeLine(line);
+            } catch (IOException e) {
+                console.println("Log file disabled: " + e.getMessage());
+                closeFile();
+            }
+        }
+    }
+
+    private void flushFile() {
+        if (file != null) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                console.println("Log file disabled: " + e.getMessage());
+                closeFile();
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+                // Nothing left to log to
+            }
+            file = null;
+        }
+    }
+
+    // A null level marks a control entry whose payload is not a message
+    private record Entry(long timestamp, String level, String thread, Object payload) {
+    }
+
+    private static class RollingFile {
+        private final Path path;
+        private final long maxBytes;
+        private final int maxFiles;
+        private BufferedWriter writer;
+        private long size;
+
+        private RollingFile(Path path, long maxBytes, int maxFiles) throws IOException {
+            this.path = path;
+            this.maxBytes = maxBytes;
+            this.maxFiles = maxFiles;
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            open();
+        }
+
+        private void writeLine(CharSequence text) throws IOException {
+            if (size >= maxBytes) {
+                roll();
+            }
+            writer.append(text).append(System.lineSeparator());
+            // Close enough for rolling, avoids encoding the line twice
+            size += text.length() + 1;
+        }
+
+        private void roll() throws IOException {
+            writer.close();
+            Files.deleteIfExists(numbered(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                if (Files.exists(numbered(i))) {
+                    Files.move(numbered(i), numbered(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (maxFiles > 0) {
+                Files.move(path, numbered(1), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(path);
+            }
+            open();
+        }
+
+        private Path numbered(int index) {
+            return path.resolveSibling(path.getFileName() + "." + index);
+        }
+
+        private void open() throws IOException {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            size = Files.size(path);
+        }
+
+        private void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void close() throws IOException {
+            writer.close();
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package dev.zanex.utils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Receives every row of a streamed query together with the object its RowMapper made of it
+ *
+ * @param <T> Type of the mapped object
+ */
+@FunctionalInterface
+public interface MappedRowCallback<T> {
+    /**
+     * Processes the row the result set is currently positioned on. Implementations must not move the cursor.
+     *
+     * @param resultSet The result set positioned on the current row
+     * @param row The mapped row
+     * @throws SQLException if a column cannot be read
+     */
+    void processRow(ResultSet resultSet, T row) throws SQLException;
+}
@@ -0,0 +1,218 @@
+package dev.zanex.utils;
+
+import dev.zanex.Main;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Application-wide registry of timers, value histograms, counters and gauges. Hot paths keep the
+ * Histogram or LongAdder in a static field and only pay for a few atomic adds per event. The
+ * metrics can be read through JMX (dev.zanex:type=Metrics) and dumped to the log periodically.
+ */
+public final class Metrics {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final Set<String> timers = ConcurrentHashMap.newKeySet();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService reporter;
+    private static long lastReportedCount = 0;
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use. Timers record nanoseconds.
+     *
+     * @param name Metric name, e.g. "db.query"
+     * @return The timer
+     */
+    public static Histogram timer(String name) {
+        timers.add(name);
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Returns the value histogram with the given name, creating it on first use
+     *
+     * @param name Metric name, e.g. "db.batch.size"
+     * @return The histogram
+     */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Returns the counter with the given name, creating it on first use
+     *
+     * @param name Metric name, e.g. "db.rows.fetched"
+     * @return The counter
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Registers a value that is read when metrics are reported, e.g. the number of idle connections
+     *
+     * @param name Metric name
+     * @param value Supplies the current value
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Registers the metrics MBean with the platform MBean server
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName("dev.zanex:type=Metrics"));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered
+        } catch (JMException e) {
+            Main.getLogger().log("WARN", "Metrics MBean could not be registered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Logs the summary every intervalSeconds, skipped when nothing was recorded since the last dump
+     *
+     * @param intervalSeconds Seconds between dumps
+     */
+    public static synchronized void startReporter(long intervalSeconds) {
+        if (reporter != null || intervalSeconds <= 0) {
+            return;
+        }
+
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(Metrics::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic dump
+     */
+    public static synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdown();
+            reporter = null;
+        }
+    }
+
+    /**
+     * Formats all metrics, one line per histogram, counter and gauge
+     *
+     * @return Multi-line summary
+     */
+    public static String summary() {
+        StringBuilder out = new StringBuilder("Metrics:");
+
+        for (Histogram histogram : new TreeMap<>(histograms).values()) {
+            Histogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.count() == 0) {
+                continue;
+            }
+
+            boolean timer = timers.contains(histogram.getName());
+            out.append("\n  ").append(histogram.getName())
+                    .append(" count=").append(snapshot.count())
+                    .append(" mean=").append(format(snapshot.mean(), timer))
+                    .append(" p50=").append(format(snapshot.p50(), timer))
+                    .append(" p90=").append(format(snapshot.p90(), timer))
+                    .append(" p99=").append(format(snapshot.p99(), timer))
+                    .append(" max=").append(format(snapshot.max(), timer));
+        }
+
+        for (Map.Entry<String, Long> counter : readCounters().entrySet()) {
+            out.append("\n  ").append(counter.getKey()).append('=').append(counter.getValue());
+        }
+
+        return out.toString();
+    }
+
+    private static void report() {
+        long recorded = 0;
+        for (Histogram histogram : histograms.values()) {
+            recorded += histogram.getCount();
+        }
+        if (recorded == lastReportedCount) {
+            return;
+        }
+        lastReportedCount = recorded;
+
+        Main.getLogger().log("INFO", Metrics::summary);
+    }
+
+    private static Map<String, Long> readCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    private static String format(double value, boolean timer) {
+        return timer ? String.format("%.2fms", value / NANOS_PER_MILLI) : String.format("%.0f", value);
+    }
+
+    private static class MBean implements MetricsMXBean {
+        @Override
+        public String[] getHistogramNames() {
+            return new TreeMap<>(histograms).keySet().toArray(String[]::new);
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return readCounters();
+        }
+
+        @Override
+        public Map<String, Double> getHistogram(String name) {
+            Histogram histogram = histograms.get(name);
+            Map<String, Double> values = new LinkedHashMap<>();
+            if (histogram == null) {
+                return values;
+            }
+
+            Histogram.Snapshot snapshot = histogram.snapshot();
+            double scale = timers.contains(name) ? NANOS_PER_MILLI : 1.0;
+            values.put("count", (double) snapshot.count());
+            values.put("mean", snapshot.mean() / scale);
+            values.put("p50", snapshot.p50() / scale);
+            values.put("p90", snapshot.p90() / scale);
+            values.put("p99", snapshot.p99() / scale);
+            values.put("p999", snapshot.p999() / scale);
+            values.put("max", snapshot.max() / scale);
+            return values;
+        }
+
+        @Override
+        public String getSummary() {
+            return summary();
+        }
+
+        @Override
+        public void reset() {
+            histograms.values().forEach(Histogram::reset);
+            counters.values().forEach(LongAdder::reset);
+        }
+    }
+}
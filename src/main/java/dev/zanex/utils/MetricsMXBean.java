@@ -0,0 +1,42 @@
+package dev.zanex.utils;
+
+import java.util.Map;
+
+/**
+ * JMX view of the application metrics, registered as dev.zanex:type=Metrics
+ */
+public interface MetricsMXBean {
+    /**
+     * Returns the names of all timers and value histograms
+     *
+     * @return Histogram names
+     */
+    String[] getHistogramNames();
+
+    /**
+     * Returns the current values of all counters and gauges
+     *
+     * @return Counter values by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Returns count, mean, p50, p90, p99, p99.9 and max of a histogram. Timers report milliseconds.
+     *
+     * @param name Histogram name
+     * @return Statistics by name, empty if the histogram does not exist
+     */
+    Map<String, Double> getHistogram(String name);
+
+    /**
+     * Returns the same text the periodic dump logs
+     *
+     * @return Multi-line summary
+     */
+    String getSummary();
+
+    /**
+     * Clears all histograms and counters, gauges are not affected
+     */
+    void reset();
+}
@@ -0,0 +1,279 @@
+package dev.zanex.utils;
+
+import dev.zanex.Main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Brings the database schema up to date with versioned migration scripts. The scripts are listed
+ * in order in index.txt of the migration directory and named V&lt;version&gt;__&lt;description&gt;.sql.
+ * Applied versions are recorded with a SHA-256 checksum in the schema_version table, so a current
+ * schema costs a single query at startup and an edited script that was already applied is detected.
+ * A database whose tables predate the migrations is baselined: the first migration is recorded without running it.
+ */
+public class MigrationRunner {
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final String TABLE_NOT_FOUND = "42S02";
+
+    private final MySQLHandler dbHandler;
+    private final String directory;
+    private final String baselineTable;
+    private int previousVersion = -1;
+    private boolean createdSchema;
+
+    /**
+     * Creates a runner for the scripts in a classpath directory
+     *
+     * @param dbHandler The database handler
+     * @param directory Classpath directory containing index.txt and the scripts, e.g. "/sql/migrations"
+     */
+    public MigrationRunner(MySQLHandler dbHandler, String directory) {
+        this(dbHandler, directory, null);
+    }
+
+    /**
+     * Creates a runner that baselines databases created before the migrations were introduced
+     *
+     * @param dbHandler The database handler
+     * @param directory Classpath directory containing index.txt and the scripts, e.g. "/sql/migrations"
+     * @param baselineTable A table of the first migration. If it exists without a migration history,
+     *                      the first migration is recorded as applied without running it.
+     */
+    public MigrationRunner(MySQLHandler dbHandler, String directory, String baselineTable) {
+        this.dbHandler = dbHandler;
+        this.directory = directory;
+        this.baselineTable = baselineTable;
+    }
+
+    /**
+     * Applies all migrations newer than the current schema version, in order
+     *
+     * @return Number of applied migrations, 0 if the schema was current
+     * @throws SQLException if a migration fails or an applied script was changed
+     * @throws IOException if a script cannot be read
+     */
+    public int migrate() throws SQLException, IOException {
+        List<Migration> migrations = loadMigrations();
+        NavigableMap<Integer, String> applied = getAppliedChecksums();
+        previousVersion = applied.isEmpty() ? 0 : applied.lastKey();
+        createdSchema = false;
+
+        boolean baselined = false;
+        if (applied.isEmpty() && !migrations.isEmpty() && baselineTable != null && tableExists(baselineTable)) {
+            Migration baseline = migrations.get(0);
+            record(baseline, 0);
+            applied.put(baseline.version(), baseline.checksum());
+            baselined = true;
+            Main.getLogger().log("INFO", "Existing schema found, recorded " + baseline.name() + " as baseline without running it");
+        }
+
+        int count = 0;
+        for (Migration migration : migrations) {
+            String checksum = applied.get(migration.version());
+            if (checksum != null) {
+                if (!checksum.equals(migration.checksum())) {
+                    throw new SQLException("Migration " + migration.name() + " was changed after it was applied " +
+                            "(checksum " + checksum + " in schema_version, " + migration.checksum() + " on disk)");
+                }
+                continue;
+            }
+
+            apply(migration);
+            count++;
+        }
+
+        if (count == 0 && !baselined) {
+            Main.getLogger().log("INFO", "Database schema is current at version " + previousVersion);
+        }
+        createdSchema = previousVersion == 0 && !baselined && count > 0;
+        return count;
+    }
+
+    /**
+     * Returns whether the last migrate() call created the schema of an empty database,
+     * as opposed to updating or baselining an existing one
+     *
+     * @return true if the first migration ran
+     */
+    public boolean hasCreatedSchema() {
+        return createdSchema;
+    }
+
+    /**
+     * Returns the schema version found by the last migrate() call, before it applied anything
+     *
+     * @return The version, 0 for a new database, -1 if migrate() has not run
+     */
+    public int getPreviousVersion() {
+        return previousVersion;
+    }
+
+    private void apply(Migration migration) throws SQLException {
+        Main.getLogger().log("INFO", "Applying migration " + migration.name());
+        long start = System.currentTimeMillis();
+
+        // MySQL commits DDL implicitly, so a migration is not atomic. Its version is recorded only after
+        // every statement succeeded, a failed migration has to be repaired by hand before the next start.
+        try (Connection connection = dbHandler.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : migration.statements()) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Migration " + migration.name() + " failed: " + e.getMessage(), e.getSQLState(), e);
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        record(migration, millis);
+        Main.getLogger().log("SUCCESS", "Applied migration " + migration.name() + " in " + millis + " ms");
+    }
+
+    private void record(Migration migration, long millis) throws SQLException {
+        dbHandler.executeUpdate("INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)",
+                migration.version(), migration.description(), migration.checksum(), millis);
+    }
+
+    private boolean tableExists(String table) throws SQLException {
+        try (Connection connection = dbHandler.getConnection();
+             ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private NavigableMap<Integer, String> getAppliedChecksums() throws SQLException {
+        NavigableMap<Integer, String> applied = new TreeMap<>();
+        try {
+            dbHandler.forEachRow("SELECT version, checksum FROM schema_version", row ->
+                    applied.put(row.getInt(1), row.getString(2)));
+        } catch (SQLException e) {
+            if (!TABLE_NOT_FOUND.equals(e.getSQLState())) {
+                throw e;
+            }
+            createVersionTable();
+        }
+        return applied;
+    }
+
+    private void createVersionTable() throws SQLException {
+        Main.getLogger().log("INFO", "Creating schema_version table");
+        try (Connection connection = dbHandler.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(255) NOT NULL, " +
+                    "checksum CHAR(64) NOT NULL, " +
+                    "execution_ms BIGINT NOT NULL, " +
+                    "installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    private List<Migration> loadMigrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        int previousVersion = 0;
+
+        for (String name : readResource("index.txt").lines().map(String::trim).toList()) {
+            if (name.isEmpty() || name.startsWith("#")) {
+                continue;
+            }
+
+            Matcher matcher = SCRIPT_NAME.matcher(name);
+            if (!matcher.matches()) {
+                throw new IOException("Invalid migration script name: " + name);
+            }
+
+            int version = Integer.parseInt(matcher.group(1));
+            if (version <= previousVersion) {
+                throw new IOException("Migration " + name + " is listed out of order");
+            }
+            previousVersion = version;
+
+            String script = readResource(name);
+            migrations.add(new Migration(version, matcher.group(2).replace('_', ' '), name,
+                    checksum(script), splitStatements(script)));
+        }
+
+        return migrations;
+    }
+
+    private String readResource(String name) throws IOException {
+        try (InputStream stream = MigrationRunner.class.getResourceAsStream(directory + "/" + name)) {
+            if (stream == null) {
+                throw new IOException("Migration resource not found: " + directory + "/" + name);
+            }
+            return new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))
+                    .lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    private static String checksum(String script) {
+        try {
+            // Line endings are normalized by readResource, so checkouts on other platforms match
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(script.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Splits a script on semicolons outside of quotes and drops "--" line comments
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        char quote = 0;
+
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+
+            if (quote != 0) {
+                current.append(c);
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                current.append(c);
+            } else if (c == '-' && i + 1 < script.length() && script.charAt(i + 1) == '-') {
+                while (i < script.length() && script.charAt(i) != '\n') {
+                    i++;
+                }
+                current.append('\n');
+            } else if (c == ';') {
+                addStatement(statements, current);
+            } else {
+                current.append(c);
+            }
+        }
+        addStatement(statements, current);
+
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+
+    private record Migration(int version, String description, String name, String checksum, List<String> statements) {
+    }
+}
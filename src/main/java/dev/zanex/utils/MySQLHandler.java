@@ -2,12 +2,40 @@ package dev.zanex.utils;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class MySQLHandler {
-    private final Connection connection;
+    private static final int DEFAULT_MIN_POOL_SIZE = 2;
+    private static final int DEFAULT_MAX_POOL_SIZE = 8;
+    private static final long BORROW_TIMEOUT_MILLIS = 10_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 300_000;
+    private static final long LEAK_THRESHOLD_MILLIS = 60_000;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private static final Histogram EXECUTE_QUERY_TIME = Metrics.timer("db.executeQuery");
+    private static final Histogram QUERY_TIME = Metrics.timer("db.query");
+    private static final Histogram FOR_EACH_ROW_TIME = Metrics.timer("db.forEachRow");
+    private static final Histogram STREAM_OPEN_TIME = Metrics.timer("db.stream.open");
+    private static final Histogram EXECUTE_UPDATE_TIME = Metrics.timer("db.executeUpdate");
+    private static final Histogram EXECUTE_SCALAR_TIME = Metrics.timer("db.executeScalar");
+    private static final Histogram EXECUTE_BATCH_TIME = Metrics.timer("db.executeBatch");
+    private static final Histogram EXECUTE_BATCH_KEYS_TIME = Metrics.timer("db.executeBatchReturningKeys");
+    private static final Histogram BATCH_SIZE = Metrics.histogram("db.batch.size");
+    private static final LongAdder ROWS_FETCHED = Metrics.counter("db.rows.fetched");
+    private static final LongAdder ROWS_UPDATED = Metrics.counter("db.rows.updated");
+
+    private final ConnectionPool pool;
+    private final String channelId;
+    private final ThreadLocal<Connection> transactionConnection = new ThreadLocal<>();
+    private final ThreadLocal<CancellationToken> cancellationToken = new ThreadLocal<>();
+    private volatile int fetchSize = DEFAULT_FETCH_SIZE;
 
     /**
-     * Creates a new MySQL connection handler
+     * Creates a new MySQL connection handler backed by a connection pool with default size
      *
      * @param host     MySQL server hostname
      * @param port     MySQL server port
@@ -17,16 +45,122 @@ public class MySQLHandler {
      * @throws SQLException if connection fails
      */
     public MySQLHandler(String host, int port, String database, String username, String password) throws SQLException {
-        connection = DriverManager.getConnection("jdbc:mysql://" + host + ":" + port + "/" + database, username, password);
+        this(host, port, database, username, password, DEFAULT_MIN_POOL_SIZE, DEFAULT_MAX_POOL_SIZE);
     }
 
     /**
-     * Returns the underlying connection object
+     * Creates a new MySQL connection handler backed by a bounded connection pool
      *
-     * @return The JDBC Connection object
+     * @param host        MySQL server hostname
+     * @param port        MySQL server port
+     * @param database    Database name
+     * @param username    MySQL username
+     * @param password    MySQL password
+     * @param minPoolSize Number of connections kept open while idle
+     * @param maxPoolSize Maximum number of concurrently used connections
+     * @throws SQLException if connection fails
      */
-    public Connection getConnection() {
-        return connection;
+    public MySQLHandler(String host, int port, String database, String username, String password,
+                        int minPoolSize, int maxPoolSize) throws SQLException {
+        // Server-side prepared statements, so cached statements skip parsing on the server as well.
+        // Cursor fetch lets streamed queries read fetchSize rows per round-trip instead of the whole result.
+        // Batched inserts are rewritten into multi-row INSERTs, one round-trip per batch.
+        this("jdbc:mysql://" + host + ":" + port + "/" + database
+                        + "?useServerPrepStmts=true&useCursorFetch=true&rewriteBatchedStatements=true",
+                username, password, minPoolSize, maxPoolSize);
+    }
+
+    private MySQLHandler(String url, String username, String password, int minPoolSize, int maxPoolSize) throws SQLException {
+        pool = new ConnectionPool(url, username, password, minPoolSize, maxPoolSize,
+                BORROW_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, LEAK_THRESHOLD_MILLIS, STATEMENT_CACHE_SIZE);
+        channelId = channelOf(url);
+
+        Metrics.gauge("db.pool.active", pool::getActiveCount);
+        Metrics.gauge("db.pool.idle", pool::getIdleCount);
+        Metrics.gauge("db.statementCache.hits", () -> pool.getStatementCacheStats().getHits());
+        Metrics.gauge("db.statementCache.misses", () -> pool.getStatementCacheStats().getMisses());
+    }
+
+    /**
+     * Creates a handler for any JDBC url, e.g. an embedded database used by tools and benchmarks.
+     * The driver of the url must be on the classpath.
+     *
+     * @param url      JDBC url
+     * @param username Database username
+     * @param password Database password
+     * @return The handler with a default sized pool
+     * @throws SQLException if connection fails
+     */
+    public static MySQLHandler forUrl(String url, String username, String password) throws SQLException {
+        return new MySQLHandler(url, username, password, DEFAULT_MIN_POOL_SIZE, DEFAULT_MAX_POOL_SIZE);
+    }
+
+    /**
+     * Returns an id of the database this handler connects to, the JDBC url without the "jdbc:" prefix
+     * and options. Instances connected to the same database get the same id.
+     *
+     * @return The id, e.g. mysql://localhost:3306/buchhaltung
+     */
+    public String getChannelId() {
+        return channelId;
+    }
+
+    private static String channelOf(String url) {
+        String channel = url.startsWith("jdbc:") ? url.substring("jdbc:".length()) : url;
+        int options = channel.indexOf('?');
+        return options >= 0 ? channel.substring(0, options) : channel;
+    }
+
+    /**
+     * Borrows a connection from the pool. The caller must close it to hand it back.
+     *
+     * @return A pooled JDBC Connection
+     * @throws SQLException if no connection becomes available
+     */
+    public Connection getConnection() throws SQLException {
+        return pool.borrow();
+    }
+
+    /**
+     * Returns the underlying connection pool
+     *
+     * @return The connection pool
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the hit/miss counters of the per-connection prepared statement caches.
+     * Statements prepared on a pooled connection are cached by SQL text and generated-keys flag,
+     * closing them hands them back to the cache.
+     *
+     * @return Statement cache statistics
+     */
+    public StatementCache.Stats getStatementCacheStats() {
+        return pool.getStatementCacheStats();
+    }
+
+    /**
+     * Returns the number of rows streamed queries fetch per round-trip
+     *
+     * @return The fetch size
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows streamed queries fetch per round-trip.
+     * Integer.MIN_VALUE switches to the MySQL row-by-row streaming result mode.
+     *
+     * @param fetchSize Rows per round-trip, must be positive or Integer.MIN_VALUE
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0 && fetchSize != Integer.MIN_VALUE) {
+            throw new IllegalArgumentException("Fetch size must be positive or Integer.MIN_VALUE: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
     }
 
     /**
@@ -38,26 +172,176 @@ public class MySQLHandler {
      * @throws SQLException if query execution fails
      */
     public List<Map<String, Object>> executeQuery(String query, Object... params) throws SQLException {
-        try (PreparedStatement statement = prepareStatement(query, params);
-             ResultSet resultSet = statement.executeQuery()) {
+        return timed(EXECUTE_QUERY_TIME, connection -> {
+            try (PreparedStatement statement = prepareStatement(connection, query, params)) {
+                return tracked(statement, () -> {
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        List<Map<String, Object>> results = new ArrayList<>();
+                        String[] labels = columnLabels(resultSet.getMetaData());
 
-            List<Map<String, Object>> results = new ArrayList<>();
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int columnCount = metaData.getColumnCount();
+                        while (resultSet.next()) {
+                            Map<String, Object> row = HashMap.newHashMap(labels.length);
 
-            while (resultSet.next()) {
-                Map<String, Object> row = new HashMap<>();
+                            for (int i = 0; i < labels.length; i++) {
+                                row.put(labels[i], resultSet.getObject(i + 1));
+                            }
+                            results.add(row);
+                        }
 
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnLabel(i);
-                    Object value = resultSet.getObject(i);
-                    row.put(columnName, value);
-                }
-                results.add(row);
+                        ROWS_FETCHED.add(results.size());
+                        return results;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Executes a query and maps every row, without building an intermediate map per row
+     *
+     * @param query The SQL query to execute
+     * @param mapper Maps the current row to an object
+     * @param params Parameters to substitute in the query
+     * @return List of mapped rows
+     * @throws SQLException if query execution fails
+     */
+    public <T> List<T> query(String query, RowMapper<T> mapper, Object... params) throws SQLException {
+        return timed(QUERY_TIME, connection -> {
+            try (PreparedStatement statement = prepareStatement(connection, query, params)) {
+                return tracked(statement, () -> {
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        RowMapper<T> rows = mapper.bind(resultSet.getMetaData());
+                        List<T> results = new ArrayList<>();
+                        while (resultSet.next()) {
+                            results.add(rows.mapRow(resultSet));
+                        }
+                        ROWS_FETCHED.add(results.size());
+                        return results;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Executes a query and hands every row to the callback while the cursor is streamed,
+     * so memory use does not depend on the number of rows
+     *
+     * @param query The SQL query to execute
+     * @param callback Receives each row
+     * @param params Parameters to substitute in the query
+     * @return Number of rows processed
+     * @throws SQLException if query execution fails
+     */
+    public long forEachRow(String query, RowCallback callback, Object... params) throws SQLException {
+        return timed(FOR_EACH_ROW_TIME, connection -> {
+            try (PreparedStatement statement = prepareStreamingStatement(connection, query, params)) {
+                return tracked(statement, () -> {
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        long count = 0;
+                        while (resultSet.next()) {
+                            callback.processRow(resultSet);
+                            count++;
+                        }
+                        ROWS_FETCHED.add(count);
+                        return count;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Executes a query and hands every row with its mapped object to the callback while the cursor is streamed
+     *
+     * @param query The SQL query to execute
+     * @param mapper Maps the current row to an object
+     * @param callback Receives each row and its mapped object
+     * @param params Parameters to substitute in the query
+     * @return Number of rows processed
+     * @throws SQLException if query execution fails
+     */
+    public <T> long forEachRow(String query, RowMapper<T> mapper, MappedRowCallback<T> callback, Object... params) throws SQLException {
+        return timed(FOR_EACH_ROW_TIME, connection -> {
+            try (PreparedStatement statement = prepareStreamingStatement(connection, query, params)) {
+                return tracked(statement, () -> {
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        RowMapper<T> rows = mapper.bind(resultSet.getMetaData());
+                        long count = 0;
+                        while (resultSet.next()) {
+                            callback.processRow(resultSet, rows.mapRow(resultSet));
+                            count++;
+                        }
+                        ROWS_FETCHED.add(count);
+                        return count;
+                    }
+                });
             }
+        });
+    }
+
+    /**
+     * Executes a query and returns its rows as a lazily fetched stream. The stream holds a pooled
+     * connection and an open cursor until it is closed, so it must be used in a try-with-resources block.
+     * SQL errors while reading are thrown as UncheckedSQLException.
+     *
+     * @param query The SQL query to execute
+     * @param mapper Maps the current row to an object
+     * @param params Parameters to substitute in the query
+     * @return Stream of mapped rows
+     * @throws SQLException if query execution fails
+     */
+    public <T> Stream<T> stream(String query, RowMapper<T> mapper, Object... params) throws SQLException {
+        long start = System.nanoTime();
+        Connection bound = transactionConnection.get();
+        Connection connection = bound != null ? bound : pool.borrow();
+        PreparedStatement statement = null;
+        CancellationToken.Registration registration = null;
+        ResultSet resultSet;
+        RowMapper<T> rowMapper;
 
-            return results;
+        try {
+            statement = prepareStreamingStatement(connection, query, params);
+            registration = track(statement);
+            resultSet = statement.executeQuery();
+            rowMapper = mapper.bind(resultSet.getMetaData());
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(registration);
+            closeQuietly(statement);
+            if (bound == null) {
+                closeQuietly(connection);
+            }
+            throw e;
+        } finally {
+            STREAM_OPEN_TIME.recordSince(start);
         }
+
+        PreparedStatement openStatement = statement;
+        CancellationToken.Registration openRegistration = registration;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    action.accept(rowMapper.mapRow(resultSet));
+                    ROWS_FETCHED.increment();
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            closeQuietly(resultSet);
+            closeQuietly(openRegistration);
+            closeQuietly(openStatement);
+            if (bound == null) {
+                closeQuietly(connection);
+            }
+        });
     }
 
     /**
@@ -69,9 +353,13 @@ public class MySQLHandler {
      * @throws SQLException if query execution fails
      */
     public int executeUpdate(String query, Object... params) throws SQLException {
-        try (PreparedStatement statement = prepareStatement(query, params)) {
-            return statement.executeUpdate();
-        }
+        return timed(EXECUTE_UPDATE_TIME, connection -> {
+            try (PreparedStatement statement = prepareStatement(connection, query, params)) {
+                int rows = tracked(statement, statement::executeUpdate);
+                ROWS_UPDATED.add(rows);
+                return rows;
+            }
+        });
     }
 
     /**
@@ -83,14 +371,15 @@ public class MySQLHandler {
      * @throws SQLException if query execution fails
      */
     public Object executeScalar(String query, Object... params) throws SQLException {
-        try (PreparedStatement statement = prepareStatement(query, params);
-             ResultSet resultSet = statement.executeQuery()) {
-
-            if (resultSet.next()) {
-                return resultSet.getObject(1);
+        return timed(EXECUTE_SCALAR_TIME, connection -> {
+            try (PreparedStatement statement = prepareStatement(connection, query, params)) {
+                return tracked(statement, () -> {
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        return resultSet.next() ? resultSet.getObject(1) : null;
+                    }
+                });
             }
-            return null;
-        }
+        });
     }
 
     /**
@@ -102,26 +391,135 @@ public class MySQLHandler {
      * @throws SQLException if batch execution fails
      */
     public int[] executeBatch(String query, List<Object[]> batchParams) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
-            for (Object[] params : batchParams) {
-                for (int i = 0; i < params.length; i++) {
-                    statement.setObject(i + 1, params[i]);
+        return timed(EXECUTE_BATCH_TIME, connection -> {
+            BATCH_SIZE.recordValue(batchParams.size());
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (Object[] params : batchParams) {
+                    for (int i = 0; i < params.length; i++) {
+                        statement.setObject(i + 1, params[i]);
+                    }
+                    statement.addBatch();
+                }
+
+                return tracked(statement, statement::executeBatch);
+            }
+        });
+    }
+
+    /**
+     * Executes a batch of inserts and returns the generated keys in batch order
+     *
+     * @param query The INSERT template to execute
+     * @param batchParams List of parameter arrays for each row
+     * @return Generated key of each row
+     * @throws SQLException if batch execution fails or not every row produced a key
+     */
+    public int[] executeBatchReturningKeys(String query, List<Object[]> batchParams) throws SQLException {
+        return timed(EXECUTE_BATCH_KEYS_TIME, connection -> {
+            BATCH_SIZE.recordValue(batchParams.size());
+            try (PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                for (Object[] params : batchParams) {
+                    for (int i = 0; i < params.length; i++) {
+                        statement.setObject(i + 1, params[i]);
+                    }
+                    statement.addBatch();
+                }
+
+                tracked(statement, statement::executeBatch);
+
+                int[] keys = new int[batchParams.size()];
+                int count = 0;
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    while (generatedKeys.next() && count < keys.length) {
+                        keys[count++] = generatedKeys.getInt(1);
+                    }
+                }
+
+                if (count != keys.length) {
+                    throw new SQLException("Expected " + keys.length + " generated keys but got " + count);
                 }
-                statement.addBatch();
+                return keys;
+            }
+        });
+    }
+
+    // Runs the work like withConnection and records its duration, including the wait for a connection
+    private <T> T timed(Histogram timer, ConnectionCallback<T> work) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return withConnection(work);
+        } finally {
+            timer.recordSince(start);
+        }
+    }
+
+    /**
+     * Runs the given work on a pooled connection. Inside a transaction the connection bound to the
+     * current thread is used, otherwise a connection is borrowed and returned afterwards.
+     *
+     * @param work The work to run
+     * @return The result of the work
+     * @throws SQLException if the work fails or no connection is available
+     */
+    public <T> T withConnection(ConnectionCallback<T> work) throws SQLException {
+        Connection bound = transactionConnection.get();
+        if (bound != null) {
+            return work.execute(bound);
+        }
+
+        try (Connection connection = pool.borrow()) {
+            return work.execute(connection);
+        }
+    }
+
+    /**
+     * Runs work whose statements can be aborted from another thread through the given token.
+     * Every statement the work executes through this handler on the current thread is registered with the token.
+     *
+     * @param token The token another thread may cancel
+     * @param work The work to run
+     * @return The result of the work
+     * @throws SQLException if the work fails or was cancelled
+     */
+    public <T> T runCancellable(CancellationToken token, CancellableWork<T> work) throws SQLException {
+        CancellationToken previous = cancellationToken.get();
+        cancellationToken.set(token);
+        try {
+            return work.run();
+        } finally {
+            if (previous != null) {
+                cancellationToken.set(previous);
+            } else {
+                cancellationToken.remove();
             }
-            return statement.executeBatch();
+        }
+    }
+
+    private CancellationToken.Registration track(Statement statement) throws SQLException {
+        CancellationToken token = cancellationToken.get();
+        return token != null ? token.register(statement) : CancellationToken.none();
+    }
+
+    // Runs work on a statement that the token of the current thread may cancel meanwhile
+    private <T> T tracked(Statement statement, CancellableWork<T> work) throws SQLException {
+        CancellationToken.Registration registration = track(statement);
+        try {
+            return work.run();
+        } finally {
+            registration.close();
         }
     }
 
     /**
      * Prepares a statement with the given parameters
      *
+     * @param connection The connection to prepare the statement on
      * @param query The SQL query with placeholders
      * @param params The parameters to substitute
      * @return Prepared statement ready for execution
      * @throws SQLException if statement preparation fails
      */
-    private PreparedStatement prepareStatement(String query, Object... params) throws SQLException {
+    private PreparedStatement prepareStatement(Connection connection, String query, Object... params) throws SQLException {
         PreparedStatement statement = connection.prepareStatement(query);
         for (int i = 0; i < params.length; i++) {
             statement.setObject(i + 1, params[i]);
@@ -130,12 +528,67 @@ public class MySQLHandler {
     }
 
     /**
-     * Begins a transaction
+     * Prepares a forward-only, read-only statement that fetches its result in chunks of fetchSize rows.
+     * These statements are not cached since they hold a server-side cursor while being read.
+     *
+     * @param connection The connection to prepare the statement on
+     * @param query The SQL query with placeholders
+     * @param params The parameters to substitute
+     * @return Prepared statement ready for execution
+     * @throws SQLException if statement preparation fails
+     */
+    private PreparedStatement prepareStreamingStatement(Connection connection, String query, Object... params) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            return statement;
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+    }
+
+    private static String[] columnLabels(ResultSetMetaData metaData) throws SQLException {
+        String[] labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+        return labels;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing left to do when cleanup fails
+        }
+    }
+
+    /**
+     * Begins a transaction on a connection bound to the current thread
      *
-     * @throws SQLException if setting auto-commit fails
+     * @throws SQLException if a transaction is already running or setting auto-commit fails
      */
     public void beginTransaction() throws SQLException {
-        connection.setAutoCommit(false);
+        if (transactionConnection.get() != null) {
+            throw new SQLException("A transaction is already running on this thread");
+        }
+
+        Connection connection = pool.borrow();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        transactionConnection.set(connection);
     }
 
     /**
@@ -144,8 +597,14 @@ public class MySQLHandler {
      * @throws SQLException if commit fails
      */
     public void commitTransaction() throws SQLException {
-        connection.commit();
-        connection.setAutoCommit(true);
+        Connection connection = requireTransactionConnection();
+        try {
+            connection.commit();
+            connection.setAutoCommit(true);
+        } finally {
+            transactionConnection.remove();
+            connection.close();
+        }
     }
 
     /**
@@ -154,18 +613,62 @@ public class MySQLHandler {
      * @throws SQLException if rollback fails
      */
     public void rollbackTransaction() throws SQLException {
-        connection.rollback();
-        connection.setAutoCommit(true);
+        Connection connection = requireTransactionConnection();
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } finally {
+            transactionConnection.remove();
+            connection.close();
+        }
+    }
+
+    private Connection requireTransactionConnection() throws SQLException {
+        Connection connection = transactionConnection.get();
+        if (connection == null) {
+            throw new SQLException("No transaction is running on this thread");
+        }
+        return connection;
     }
 
     /**
-     * Closes the database connection
-     *
-     * @throws SQLException if closing fails
+     * Closes the connection pool
      */
-    public void close() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Thrown by streamed queries when reading a row fails
+     */
+    public static class UncheckedSQLException extends RuntimeException {
+        public UncheckedSQLException(SQLException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Work that can be aborted through a CancellationToken
+     *
+     * @param <T> Result type of the work
+     */
+    @FunctionalInterface
+    public interface CancellableWork<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Work that runs on a borrowed connection
+     *
+     * @param <T> Result type of the work
+     */
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+}
@@ -1,41 +1,83 @@
 package dev.zanex.utils;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class OutputHandler {
-    private final Map<Character, String> colors = new HashMap<>();
+    // ANSI sequence for each color code character, indexed by the character
+    private static final String[] COLORS = new String[128];
 
-    public OutputHandler() {
-        colors.put('0', "\u001B[30m"); // black
-        colors.put('1', "\u001B[34m"); // dark_blue
-        colors.put('2', "\u001B[32m"); // dark_green
-        colors.put('3', "\u001B[36m"); // dark_aqua
-        colors.put('4', "\u001B[31m"); // dark_red
-        colors.put('5', "\u001B[35m"); // dark_purple
-        colors.put('6', "\u001B[33m"); // gold
-        colors.put('7', "\u001B[37m"); // gray
-        colors.put('8', "\u001B[90m"); // dark_gray
-        colors.put('9', "\u001B[94m"); // blue
-        colors.put('a', "\u001B[92m"); // green
-        colors.put('b', "\u001B[96m"); // aqua
-        colors.put('c', "\u001B[91m"); // red
-        colors.put('d', "\u001B[95m"); // light_purple
-        colors.put('e', "\u001B[93m"); // yellow
-        colors.put('f', "\u001B[97m"); // white
-        colors.put('r', "\u001B[0m");  // reset
+    static {
+        COLORS['0'] = "\u001B[30m"; // black
+        COLORS['1'] = "\u001B[34m"; // dark_blue
+        COLORS['2'] = "\u001B[32m"; // dark_green
+        COLORS['3'] = "\u001B[36m"; // dark_aqua
+        COLORS['4'] = "\u001B[31m"; // dark_red
+        COLORS['5'] = "\u001B[35m"; // dark_purple
+        COLORS['6'] = "\u001B[33m"; // gold
+        COLORS['7'] = "\u001B[37m"; // gray
+        COLORS['8'] = "\u001B[90m"; // dark_gray
+        COLORS['9'] = "\u001B[94m"; // blue
+        COLORS['a'] = "\u001B[92m"; // green
+        COLORS['b'] = "\u001B[96m"; // aqua
+        COLORS['c'] = "\u001B[91m"; // red
+        COLORS['d'] = "\u001B[95m"; // light_purple
+        COLORS['e'] = "\u001B[93m"; // yellow
+        COLORS['f'] = "\u001B[97m"; // white
+        COLORS['r'] = "\u001B[0m";  // reset
     }
 
-    private String replaceColorCodes(String text) {
-        for (Map.Entry<Character, String> entry : colors.entrySet()) {
-            text = text.replace("&" + entry.getKey(), entry.getValue());
+    /**
+     * Appends text with its color codes (&amp;0-&amp;f, &amp;r) replaced by ANSI sequences, in a single pass
+     *
+     * @param text The text with color codes
+     * @param out The builder to append to
+     * @return The builder
+     */
+    public static StringBuilder appendColored(CharSequence text, StringBuilder out) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            String color = c == '&' && i + 1 < length ? colorFor(text.charAt(i + 1)) : null;
+            if (color != null) {
+                out.append(color);
+                i++;
+            } else {
+                out.append(c);
+            }
         }
-        return text;
+        return out;
+    }
+
+    /**
+     * Appends text with its color codes removed, in a single pass
+     *
+     * @param text The text with color codes
+     * @param out The builder to append to
+     * @return The builder
+     */
+    public static StringBuilder appendStripped(CharSequence text, StringBuilder out) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '&' && i + 1 < length && colorFor(text.charAt(i + 1)) != null) {
+                i++;
+            } else {
+                out.append(c);
+            }
+        }
+        return out;
+    }
+
+    private static String colorFor(char code) {
+        return code < COLORS.length ? COLORS[code] : null;
+    }
+
+    private String replaceColorCodes(String text) {
+        return text.indexOf('&') < 0 ? text : appendColored(text, new StringBuilder(text.length() + 32)).toString();
     }
 
     private String stripColorCodes(String text) {
-        return text.replaceAll("&[0-9a-fr]", "");
+        return text.indexOf('&') < 0 ? text : appendStripped(text, new StringBuilder(text.length())).toString();
     }
 
     public void println(String text) {
@@ -59,7 +101,6 @@ public class OutputHandler {
 
         println(header);
         for (String line : lines) {
-            String content = stripColorCodes(line);
             println("&f│ &7" + paddingRight(line, maxContentLength) + " &f│");
         }
         println("&f╰" + "─".repeat(tableWidth - 2) + "╯"); // -2 for the borders
@@ -69,4 +110,4 @@ public class OutputHandler {
         int visibleLength = stripColorCodes(text).length();
         return text + " ".repeat(length - visibleLength);
     }
-}
\ No newline at end of file
+}
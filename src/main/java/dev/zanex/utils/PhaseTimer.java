@@ -0,0 +1,45 @@
+package dev.zanex.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long the phases of a procedure like the application startup take, also when the
+ * phases run on different threads. Every phase is additionally recorded in the timer "prefix.phase".
+ */
+public class PhaseTimer {
+    private final String prefix;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    public PhaseTimer(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Records a finished phase
+     *
+     * @param phase Name of the phase, e.g. "connect"
+     * @param phaseStartNanos Start of the phase from System.nanoTime()
+     */
+    public void record(String phase, long phaseStartNanos) {
+        long duration = System.nanoTime() - phaseStartNanos;
+        Metrics.timer(prefix + "." + phase).recordValue(duration);
+        synchronized (phases) {
+            phases.put(phase, duration);
+        }
+    }
+
+    /**
+     * Formats the recorded phases in the order they finished
+     *
+     * @return e.g. "connect 212 ms, migrations 14 ms, total 480 ms"
+     */
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        synchronized (phases) {
+            phases.forEach((phase, duration) -> out.append(phase).append(' ').append(duration / 1_000_000).append(" ms, "));
+        }
+        return out.append("total ").append((System.nanoTime() - startNanos) / 1_000_000).append(" ms").toString();
+    }
+}
@@ -0,0 +1,73 @@
+package dev.zanex.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Producers claim a slot with
+ * a compare-and-set on the tail and never block, offer() fails instead when the buffer is full.
+ *
+ * @param <E> Element type
+ */
+public class RingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates a ring buffer
+     *
+     * @param capacity Maximum number of elements, rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an element, safe to call from any thread
+     *
+     * @param element The element, not null
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long claimed = tail.get();
+            if (claimed - head.get() > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                slots.lazySet((int) claimed & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element, must only be called by the consumer thread
+     *
+     * @return The element or null if the buffer is empty or the next producer has not finished writing
+     */
+    public E poll() {
+        long next = head.get();
+        int index = (int) next & mask;
+        E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head.lazySet(next + 1);
+        return element;
+    }
+
+    /**
+     * Returns whether every claimed slot has been consumed
+     *
+     * @return true if the buffer is empty
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
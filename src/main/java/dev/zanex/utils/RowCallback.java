@@ -0,0 +1,18 @@
+package dev.zanex.utils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Receives every row of a streamed query without collecting the rows
+ */
+@FunctionalInterface
+public interface RowCallback {
+    /**
+     * Processes the row the result set is currently positioned on. Implementations must not move the cursor.
+     *
+     * @param resultSet The result set positioned on the current row
+     * @throws SQLException if a column cannot be read
+     */
+    void processRow(ResultSet resultSet) throws SQLException;
+}
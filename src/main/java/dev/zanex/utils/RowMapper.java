@@ -0,0 +1,34 @@
+package dev.zanex.utils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object
+ *
+ * @param <T> Type of the mapped object
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Maps the row the result set is currently positioned on. Implementations must not move the cursor.
+     *
+     * @param resultSet The result set positioned on the row to map
+     * @return The mapped object
+     * @throws SQLException if a column cannot be read
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Returns the mapper used for the rows of one query, called once before its first row.
+     * Mappers that resolve columns up front return a mapper bound to them, others return themselves.
+     *
+     * @param metaData Metadata of the query's result set
+     * @return Mapper for the rows of that result set
+     * @throws SQLException if a required column is missing
+     */
+    default RowMapper<T> bind(ResultSetMetaData metaData) throws SQLException {
+        return this;
+    }
+}
@@ -0,0 +1,260 @@
+package dev.zanex.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StatementCache {
+    // Settings reset to their initial values when a statement is handed back
+    private static final Set<String> RESET_SETTINGS = Set.of("setFetchSize", "setQueryTimeout", "setMaxRows", "setLargeMaxRows");
+    // Settings that are not reset, a statement that had one changed is closed instead of reused
+    private static final Set<String> LASTING_SETTINGS = Set.of("setFetchDirection", "setMaxFieldSize", "setEscapeProcessing",
+            "setCursorName", "setPoolable", "closeOnCompletion");
+
+    private final Connection connection;
+    private final Stats stats;
+    private final LinkedHashMap<Key, CachedStatement> statements;
+    // Uncached copies of statements whose SQL was already in use, closed at the latest by releaseAll()
+    private final List<CachedStatement> copies = new ArrayList<>();
+
+    /**
+     * Creates a prepared statement cache for a single physical connection
+     *
+     * @param connection The physical connection the statements are prepared on
+     * @param capacity   Maximum number of statements kept open, least recently used ones are closed first
+     * @param stats      Counters shared by all caches of a pool
+     */
+    public StatementCache(Connection connection, int capacity, Stats stats) {
+        this.connection = connection;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+
+                stats.evictions.increment();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, reusing a cached one when possible.
+     * Closing the returned statement hands it back to the cache instead of closing it.
+     *
+     * @param owner             The connection handed to the caller, returned by Statement.getConnection()
+     * @param sql               The SQL text
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     * @return A prepared statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS);
+        CachedStatement cached = statements.get(key);
+        if (cached != null && cached.evicted && !cached.inUse) {
+            statements.remove(key);
+            cached = null;
+        }
+
+        if (cached != null && !cached.inUse) {
+            stats.hits.increment();
+        } else if (cached != null) {
+            // Same SQL prepared twice before the first one was closed, hand out a private copy that closes on give back
+            stats.misses.increment();
+            copies.removeIf(copy -> !copy.inUse);
+            CachedStatement copy = new CachedStatement(owner, connection.prepareStatement(sql, autoGeneratedKeys));
+            copy.evicted = true;
+            copy.inUse = true;
+            copies.add(copy);
+            return copy.proxy;
+        } else {
+            stats.misses.increment();
+            cached = new CachedStatement(owner, connection.prepareStatement(sql, autoGeneratedKeys));
+            statements.put(key, cached);
+        }
+
+        cached.inUse = true;
+        cached.owner = owner;
+        return cached.proxy;
+    }
+
+    /**
+     * Hands back statements the borrower forgot to close, called when the connection returns to the pool
+     */
+    public void releaseAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.giveBack();
+        }
+        for (CachedStatement copy : copies) {
+            copy.giveBack();
+        }
+        copies.clear();
+    }
+
+    /**
+     * Returns the number of statements currently cached
+     *
+     * @return Number of cached statements
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    private record Key(String sql, boolean generatedKeys) {
+    }
+
+    // A physical statement kept open between uses
+    private static class CachedStatement implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private final int initialFetchSize;
+        private final int initialQueryTimeout;
+        private final int initialMaxRows;
+        private Connection owner;
+        private boolean inUse = false;
+        private boolean evicted = false;
+        private boolean settingsChanged = false;
+
+        private CachedStatement(Connection owner, PreparedStatement statement) throws SQLException {
+            this.owner = owner;
+            this.statement = statement;
+            this.initialFetchSize = statement.getFetchSize();
+            this.initialQueryTimeout = statement.getQueryTimeout();
+            this.initialMaxRows = statement.getMaxRows();
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    giveBack();
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !inUse;
+                }
+                case "getConnection" -> {
+                    return owner;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (!inUse && !method.getName().equals("toString")) {
+                        throw new SQLException("Statement has already been closed");
+                    }
+                    if (RESET_SETTINGS.contains(method.getName())) {
+                        settingsChanged = true;
+                    } else if (LASTING_SETTINGS.contains(method.getName())) {
+                        evicted = true;
+                    }
+                }
+            }
+
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void giveBack() {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+
+            try {
+                ResultSet resultSet = statement.getResultSet();
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                if (settingsChanged) {
+                    // The next borrower expects the defaults, e.g. a streamed query's fetch size must not limit a lookup
+                    statement.setFetchSize(initialFetchSize);
+                    statement.setQueryTimeout(initialQueryTimeout);
+                    statement.setMaxRows(initialMaxRows);
+                    settingsChanged = false;
+                }
+            } catch (SQLException e) {
+                // A statement that cannot be reset is not reused
+                evicted = true;
+                closeQuietly();
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // Statement is discarded anyway
+            }
+        }
+    }
+
+    /**
+     * Hit, miss and eviction counters of the statement caches of one pool
+     */
+    public static class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        public double getHitRatio() {
+            long total = getHits() + getMisses();
+            return total == 0 ? 0.0 : (double) getHits() / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, hitRatio=%.2f",
+                    getHits(), getMisses(), getEvictions(), getHitRatio());
+        }
+    }
+}
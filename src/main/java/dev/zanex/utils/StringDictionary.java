@@ -0,0 +1,35 @@
+package dev.zanex.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deduplicates repeated strings such as category names so every distinct value is kept once
+ */
+public class StringDictionary {
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * Returns the canonical instance of the given string
+     *
+     * @param value The string to look up, may be null
+     * @return An equal string shared by all callers, or null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String existing = values.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * Returns the number of distinct strings seen
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -1,10 +1,11 @@
-CREATE TABLE categories (
+-- Baseline schema. IF NOT EXISTS lets databases created before migrations were introduced adopt it.
+CREATE TABLE IF NOT EXISTS categories (
     id INT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     type ENUM('INCOME', 'EXPENSE') NOT NULL
 );
 
-CREATE TABLE transactions (
+CREATE TABLE IF NOT EXISTS transactions (
     id INT AUTO_INCREMENT PRIMARY KEY,
     category_id INT NOT NULL,
     amount DECIMAL(10,2) NOT NULL,
@@ -12,4 +13,4 @@ CREATE TABLE transactions (
     transaction_date DATE NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (category_id) REFERENCES categories(id)
-);
\ No newline at end of file
+);
@@ -0,0 +1,5 @@
+-- Range filters and the (transaction_date, id) keyset order of the transaction list
+CREATE INDEX idx_transactions_date_id ON transactions (transaction_date, id);
+
+-- Per-category totals over a date range, also serves the foreign key on category_id
+CREATE INDEX idx_transactions_category_date ON transactions (category_id, transaction_date);
@@ -0,0 +1,15 @@
+-- Change tracking for delta refreshes: the time of the last write of every row, and a tombstone for every deleted row
+ALTER TABLE transactions
+    ADD COLUMN updated_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+
+CREATE INDEX idx_transactions_updated_at ON transactions (updated_at);
+
+-- Written by the application together with the delete, old tombstones are purged after the retention period
+CREATE TABLE IF NOT EXISTS transaction_tombstones (
+    transaction_id INT PRIMARY KEY,
+    transaction_date DATE NOT NULL,
+    created_at TIMESTAMP NULL,
+    deleted_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)
+);
+
+CREATE INDEX idx_tombstones_deleted_at ON transaction_tombstones (deleted_at);
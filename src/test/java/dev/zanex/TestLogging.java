@@ -0,0 +1,13 @@
+package dev.zanex;
+
+/**
+ * Starts the application logger for tests of classes that log through Main.getLogger()
+ */
+public final class TestLogging {
+    private TestLogging() {
+    }
+
+    public static void start() {
+        Main.startLogger();
+    }
+}
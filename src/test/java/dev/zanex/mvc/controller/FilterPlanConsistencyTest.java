@@ -0,0 +1,281 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.TestLogging;
+import dev.zanex.mvc.model.Category;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.FilterPlan;
+import dev.zanex.mvc.model.JournalTransactionStore;
+import dev.zanex.mvc.model.MySQLTransactionStore;
+import dev.zanex.mvc.model.StoredTransaction;
+import dev.zanex.mvc.model.TransactionFilter;
+import dev.zanex.mvc.model.TransactionType;
+import dev.zanex.utils.MySQLHandler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs random filters against the store, which tests every row with the plan, against the
+ * transaction cache, which tests columns, and against the SQL the MySQL store pushes down, run on H2
+ * in MySQL mode. All are compared with a plain evaluation of the filter.
+ */
+class FilterPlanConsistencyTest {
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+    private static final int DAYS = 730;
+    private static final List<Category> CATEGORIES = List.of(
+            new Category(1, "Gehalt", TransactionType.INCOME),
+            new Category(2, "Miete", TransactionType.EXPENSE),
+            new Category(3, "Lebensmittel", TransactionType.EXPENSE),
+            new Category(4, "Zinsen", TransactionType.INCOME));
+    private static final String[] DESCRIPTIONS = {
+            "Miete Januar", "REWE Einkauf", "Café am Markt", "CAFE BAR", "Bäckerei Müller", "Muller GmbH",
+            "Gehalt", "Zinsgutschrift", "Strom 50%", "Kauf_Online", "Straße", null};
+    private static final String[] TEXTS = {
+            "miete", "REWE", "café", "cafe", "müller", "MULLER", "ü", "e", "50%", "_", "kauf_", "straße", "zins"};
+
+    @TempDir
+    static Path dir;
+
+    private static JournalTransactionStore store;
+    private static MySQLHandler dbHandler;
+    private static MySQLTransactionStore database;
+    private static TransactionCache cache;
+    private static CategoryRegistry registry;
+    private static final List<StoredTransaction> rows = new ArrayList<>();
+
+    @BeforeAll
+    static void load() throws SQLException {
+        TestLogging.start();
+        store = new JournalTransactionStore(dir.resolve("filters.journal"));
+        Random random = new Random(1);
+        List<StoredTransaction> inserted = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            inserted.add(new StoredTransaction(0, START.plusDays(random.nextInt(DAYS)), 1 + random.nextInt(500_000),
+                    1 + random.nextInt(CATEGORIES.size()), DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]));
+        }
+        store.insert(inserted);
+        store.forEach(null, null, rows::add);
+
+        registry = new CategoryRegistry(store);
+        registry.seed(CATEGORIES);
+        cache = TransactionCache.load(store, registry);
+
+        DriverManager.registerDriver(new CollatingH2Driver());
+        dbHandler = MySQLHandler.forUrl(CollatingH2Driver.PREFIX + "mem:filters;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        dbHandler.executeUpdate("CREATE TABLE transactions (id INT PRIMARY KEY, category_id INT NOT NULL, "
+                + "amount DECIMAL(10,2) NOT NULL, description VARCHAR_IGNORECASE(255), transaction_date DATE NOT NULL)");
+        List<Object[]> values = new ArrayList<>();
+        for (StoredTransaction row : rows) {
+            values.add(new Object[]{row.id(), row.categoryId(), BigDecimal.valueOf(row.cents(), 2), row.description(), row.date()});
+        }
+        dbHandler.executeBatch("INSERT INTO transactions (id, category_id, amount, description, transaction_date) "
+                + "VALUES (?, ?, ?, ?, ?)", values);
+        database = new MySQLTransactionStore(dbHandler);
+    }
+
+    @AfterAll
+    static void close() {
+        store.close();
+        dbHandler.close();
+    }
+
+    @Test
+    void textIsMatchedIgnoringCaseButNotAccents() {
+        FilterPlan plan = FilterPlan.compile(new TransactionFilter(null, null, null, null, null, Set.of(), "Café"), CATEGORIES);
+
+        assertTrue(plan.matchesText("CAFÉ AM MARKT"));
+        assertFalse(plan.matchesText("Cafe Bar"));
+        assertTrue(plan.sqlCondition().contains("COLLATE utf8mb4_0900_as_ci"));
+    }
+
+    @Test
+    void databaseMatchesTextIgnoringCaseButNotAccents() throws SQLException {
+        LocalDate end = START.plusDays(DAYS);
+        FilterPlan accented = FilterPlan.compile(new TransactionFilter(START, end, null, null, null, Set.of(), "café"), CATEGORIES);
+        FilterPlan plain = FilterPlan.compile(new TransactionFilter(START, end, null, null, null, Set.of(), "cafe"), CATEGORIES);
+
+        Set<String> accentedMatches = new HashSet<>();
+        database.page(START, end, accented, 0, rows.size()).forEach(row -> accentedMatches.add(row.description()));
+        Set<String> plainMatches = new HashSet<>();
+        database.page(START, end, plain, 0, rows.size()).forEach(row -> plainMatches.add(row.description()));
+
+        assertEquals(Set.of("Café am Markt"), accentedMatches);
+        assertEquals(Set.of("CAFE BAR"), plainMatches);
+    }
+
+    @Test
+    void storeAndCacheAgreeOnRandomFilters() throws SQLException {
+        Random random = new Random(1);
+        for (int i = 0; i < 300; i++) {
+            TransactionFilter filter = randomFilter(random);
+            FilterPlan plan = FilterPlan.compile(filter, CATEGORIES);
+            List<StoredTransaction> expected = rows.stream()
+                    .filter(row -> matches(filter, row))
+                    .sorted(Comparator.comparing(StoredTransaction::date).thenComparing(StoredTransaction::id).reversed())
+                    .toList();
+            String context = "filter " + i + ": " + filter;
+
+            assertEquals(expected.size(), store.count(filter.from(), filter.to(), plan), context);
+            assertEquals(expected.size(), cache.count(filter.from(), filter.to(), plan), context);
+            assertEquals(expected.size(), database.count(filter.from(), filter.to(), plan), context);
+
+            Map<Integer, Long> sums = new HashMap<>();
+            expected.forEach(row -> sums.merge(row.categoryId(), row.cents(), Long::sum));
+            assertEquals(sums, withoutZeros(store.sumByCategory(filter.from(), filter.to(), plan)), context);
+            assertEquals(sums, withoutZeros(cache.sumByCategory(filter.from(), filter.to(), plan)), context);
+            assertEquals(sums, withoutZeros(database.sumByCategory(filter.from(), filter.to(), plan)), context);
+
+            int offset = expected.isEmpty() ? 0 : random.nextInt(expected.size());
+            List<Integer> offsetPage = ids(expected.subList(offset, Math.min(expected.size(), offset + 50)));
+            assertEquals(offsetPage, ids(store.page(filter.from(), filter.to(), plan, offset, 50)), context);
+            assertEquals(offsetPage, viewIds(cache.page(filter.from(), filter.to(), plan, offset, 50)), context);
+            assertEquals(offsetPage, ids(database.page(filter.from(), filter.to(), plan, offset, 50)), context);
+
+            if (!expected.isEmpty()) {
+                StoredTransaction anchor = expected.get(offset);
+                List<Integer> keysetPage = ids(expected.subList(offset + 1, Math.min(expected.size(), offset + 51)));
+                assertEquals(keysetPage, ids(store.page(filter.from(), filter.to(), plan, anchor.date(), anchor.id(), 50)), context);
+                assertEquals(keysetPage, viewIds(cache.page(filter.from(), filter.to(), plan,
+                        new AppController.Transaction(anchor.id(), anchor.date(), null, null, null, null), 50)), context);
+                assertEquals(keysetPage, ids(database.page(filter.from(), filter.to(), plan, anchor.date(), anchor.id(), 50)), context);
+            }
+        }
+    }
+
+    private static TransactionFilter randomFilter(Random random) {
+        LocalDate from = START.plusDays(random.nextInt(DAYS));
+        LocalDate to = from.plusDays(random.nextInt(DAYS));
+        Long min = random.nextInt(3) == 0 ? (long) random.nextInt(250_000) : null;
+        Long max = random.nextInt(3) == 0 ? (long) (250_000 + random.nextInt(250_000)) : null;
+        TransactionType type = random.nextInt(3) == 0 ? TransactionType.values()[random.nextInt(2)] : null;
+        Set<Integer> categoryIds = new HashSet<>();
+        if (random.nextInt(3) == 0) {
+            for (int j = random.nextInt(3); j >= 0; j--) {
+                categoryIds.add(1 + random.nextInt(CATEGORIES.size() + 1));
+            }
+        }
+        String text = random.nextInt(2) == 0 ? TEXTS[random.nextInt(TEXTS.length)] : null;
+        return new TransactionFilter(from, to, min, max, type, categoryIds, text);
+    }
+
+    // The filter evaluated without a plan
+    private static boolean matches(TransactionFilter filter, StoredTransaction row) {
+        Category category = CATEGORIES.stream().filter(c -> c.getId() == row.categoryId()).findFirst().orElseThrow();
+        return !row.date().isBefore(filter.from()) && !row.date().isAfter(filter.to())
+                && (filter.minCents() == null || row.cents() >= filter.minCents())
+                && (filter.maxCents() == null || row.cents() <= filter.maxCents())
+                && (filter.type() == null || category.getType() == filter.type())
+                && (filter.categoryIds().isEmpty() || filter.categoryIds().contains(row.categoryId()))
+                && (filter.text() == null || row.description() != null
+                        && row.description().toLowerCase().contains(filter.text().toLowerCase()));
+    }
+
+    private static Map<Integer, Long> withoutZeros(Map<Integer, Long> sums) {
+        Map<Integer, Long> result = new HashMap<>(sums);
+        result.values().removeIf(sum -> sum == 0);
+        return result;
+    }
+
+    private static List<Integer> ids(List<StoredTransaction> rows) {
+        return rows.stream().map(StoredTransaction::id).toList();
+    }
+
+    private static List<Integer> viewIds(List<AppController.Transaction> rows) {
+        return rows.stream().map(AppController.Transaction::getId).toList();
+    }
+
+    /**
+     * Opens H2 connections for urls starting with jdbc:h2-as-ci:. MySQL compares descriptions with
+     * utf8mb4_0900_as_ci, which ignores case but not accents. H2 has no COLLATE in expressions, so the
+     * clause is dropped from prepared statements and the VARCHAR_IGNORECASE column compares the same way.
+     */
+    private static final class CollatingH2Driver implements Driver {
+        static final String PREFIX = "jdbc:h2-as-ci:";
+        private static final String COLLATE_CLAUSE = " COLLATE utf8mb4_0900_as_ci";
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+
+            Connection connection = new org.h2.Driver().connect("jdbc:h2:" + url.substring(PREFIX.length()), info);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "prepareStatement":
+                                args[0] = ((String) args[0]).replace(COLLATE_CLAUSE, "");
+                                break;
+                            default:
+                                break;
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(PREFIX);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.TestLogging;
+import dev.zanex.mvc.model.CategoryRegistry;
+import dev.zanex.mvc.model.JournalTransactionStore;
+import dev.zanex.mvc.model.StoredTransaction;
+import dev.zanex.mvc.model.TransactionType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SummaryServiceTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startLogger() {
+        TestLogging.start();
+    }
+
+    @Test
+    void reloadReadsTheDaysAgainInsteadOfApplyingDeltas() throws SQLException {
+        try (JournalTransactionStore store = new JournalTransactionStore(dir.resolve("summary.journal"))) {
+            CategoryRegistry categories = new CategoryRegistry(store);
+            store.insert(List.of(
+                    new StoredTransaction(0, DAY, 300_000, 1, "Gehalt"),
+                    new StoredTransaction(0, DAY, 80_000, 2, "Miete"),
+                    new StoredTransaction(0, DAY.plusDays(1), 5_000, 2, "Einkauf")));
+            SummaryService summary = SummaryService.load(store, categories);
+
+            // Written by another instance, with totals this one would get wrong from a forged notification
+            store.delete(2);
+            store.insert(List.of(new StoredTransaction(0, DAY.plusDays(1), 1_000, 1, "Zinsen")));
+            summary.add(TransactionType.EXPENSE, DAY, 999_999);
+
+            summary.reload(store, categories, List.of(DAY, DAY.plusDays(1)));
+
+            assertEquals(0, summary.sum(TransactionType.EXPENSE, DAY, DAY));
+            assertEquals(300_000, summary.sum(TransactionType.INCOME, DAY, DAY));
+            assertEquals(5_000, summary.sum(TransactionType.EXPENSE, DAY.plusDays(1), DAY.plusDays(1)));
+            assertEquals(301_000, summary.sum(TransactionType.INCOME, DAY, DAY.plusDays(1)));
+        }
+    }
+}
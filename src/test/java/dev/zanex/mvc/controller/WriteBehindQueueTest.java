@@ -0,0 +1,164 @@
+package dev.zanex.mvc.controller;
+
+import dev.zanex.TestLogging;
+import dev.zanex.mvc.model.Money;
+import dev.zanex.mvc.model.StoredTransaction;
+import dev.zanex.mvc.model.Transaction;
+import dev.zanex.mvc.model.TransactionStore;
+import dev.zanex.mvc.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+    private final List<StoredTransaction> committed = new ArrayList<>();
+    private final List<Transaction> flushed = new ArrayList<>();
+    private final List<Transaction> rejected = new ArrayList<>();
+    private boolean down;
+    // When set, inserts signal that they started and wait to be released
+    private CountDownLatch insertStarted;
+    private CountDownLatch insertReleased;
+    private WriteBehindQueue queue;
+
+    @BeforeAll
+    static void startLogger() {
+        TestLogging.start();
+    }
+
+    @AfterEach
+    void closeQueue() {
+        queue.close();
+    }
+
+    @Test
+    void writesTheRowsAroundRejectedOnes() throws SQLException {
+        queue = newQueue();
+        for (int i = 0; i < 100; i++) {
+            queue.enqueue(transaction(i % 37 == 5 ? "bad " + i : "row " + i));
+        }
+
+        queue.flush();
+
+        assertEquals(List.of("bad 5", "bad 42", "bad 79"), rejected.stream().map(Transaction::getDescription).toList());
+        assertEquals(97, committed.size());
+        assertEquals(97, flushed.size());
+        assertTrue(committed.stream().noneMatch(row -> row.description().startsWith("bad")));
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    void keepsTheRowsQueuedWhenTheStoreIsDown() throws SQLException {
+        queue = newQueue();
+        queue.enqueue(transaction("row 1"));
+        queue.enqueue(transaction("row 2"));
+
+        down = true;
+        assertThrows(SQLException.class, queue::flush);
+        assertEquals(2, queue.getPendingCount());
+        assertTrue(rejected.isEmpty());
+
+        down = false;
+        queue.flush();
+        assertEquals(List.of("row 1", "row 2"), committed.stream().map(StoredTransaction::description).toList());
+    }
+
+    @Test
+    void closeReturnsTheRowsThatCouldNotBeWritten() {
+        queue = newQueue();
+        queue.enqueue(transaction("row 1"));
+
+        down = true;
+        List<Transaction> unwritten = queue.close();
+
+        assertEquals(1, unwritten.size());
+        assertEquals("row 1", unwritten.get(0).getDescription());
+    }
+
+    @Test
+    void flushWaitsForABatchAlreadyBeingWritten() throws Exception {
+        insertStarted = new CountDownLatch(1);
+        insertReleased = new CountDownLatch(1);
+        queue = newQueue(1);
+        queue.enqueue(transaction("row 1"));
+        insertStarted.await();
+        assertEquals(0, queue.getPendingCount());
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> {
+            try {
+                queue.flush();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(flush.isDone());
+
+        insertReleased.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("row 1"), committed.stream().map(StoredTransaction::description).toList());
+    }
+
+    private WriteBehindQueue newQueue() {
+        return newQueue(1000);
+    }
+
+    private WriteBehindQueue newQueue(int batchSize) {
+        return new WriteBehindQueue(store(), type -> type == TransactionType.INCOME ? 1 : 2,
+                (transaction, categoryId) -> flushed.add(transaction),
+                (transactions, cause) -> rejected.addAll(transactions), batchSize, 60_000);
+    }
+
+    // Inserts all rows or none, a description starting with "bad" is too long for the column
+    @SuppressWarnings("unchecked")
+    private TransactionStore store() {
+        return (TransactionStore) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TransactionStore.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("insert")) {
+                        return null;
+                    }
+                    if (insertStarted != null) {
+                        insertStarted.countDown();
+                        insertReleased.await();
+                    }
+                    if (down) {
+                        throw new SQLRecoverableException("Communications link failure", "08S01");
+                    }
+                    List<StoredTransaction> rows = (List<StoredTransaction>) args[0];
+                    for (StoredTransaction row : rows) {
+                        if (row.description().startsWith("bad")) {
+                            throw new SQLException("Data too long for column 'description'", "22001", 1406);
+                        }
+                    }
+                    int[] ids = new int[rows.size()];
+                    for (int i = 0; i < rows.size(); i++) {
+                        committed.add(rows.get(i));
+                        ids[i] = committed.size();
+                    }
+                    return ids;
+                });
+    }
+
+    private static Transaction transaction(String description) {
+        Transaction transaction = new Transaction();
+        transaction.setType(TransactionType.EXPENSE);
+        transaction.setDate(LocalDate.of(2024, 3, 1));
+        transaction.setDescription(description);
+        transaction.setAmount(Money.ofCents(1250));
+        return transaction;
+    }
+}
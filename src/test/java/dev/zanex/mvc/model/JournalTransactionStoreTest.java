@@ -0,0 +1,160 @@
+package dev.zanex.mvc.model;
+
+import dev.zanex.TestLogging;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTransactionStoreTest {
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startLogger() {
+        TestLogging.start();
+    }
+
+    @Test
+    void replaysInsertsUpdatesAndDeletes() throws SQLException {
+        Path file = dir.resolve("test.journal");
+        try (JournalTransactionStore store = new JournalTransactionStore(file)) {
+            assertArrayEquals(new int[]{1, 2, 3}, store.insert(List.of(row(0, "Miete"), row(1, "Gehalt"), row(2, "Strom"))));
+            assertTrue(store.update(new StoredTransaction(2, START.plusDays(5), 4200, 1, "Gehalt März")));
+            assertTrue(store.delete(3));
+            assertFalse(store.delete(3));
+        }
+
+        try (JournalTransactionStore store = new JournalTransactionStore(file)) {
+            assertEquals(2, store.count(START, START.plusDays(10)));
+            assertEquals(new StoredTransaction(2, START.plusDays(5), 4200, 1, "Gehalt März"), store.get(2));
+            assertNull(store.get(3));
+            assertEquals(2, store.loadCategories().size());
+            // Ids of deleted rows are not handed out again
+            assertArrayEquals(new int[]{4}, store.insert(List.of(row(3, "Zinsen"))));
+        }
+    }
+
+    @Test
+    void ignoresATornRecordAtTheEnd() throws SQLException, IOException {
+        Path file = dir.resolve("torn.journal");
+        try (JournalTransactionStore store = new JournalTransactionStore(file)) {
+            store.insert(List.of(row(0, "Miete"), row(1, "Gehalt")));
+        }
+
+        // A PUT record whose length was written but whose payload and checksum were not
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer torn = ByteBuffer.allocate(12);
+            torn.putInt(40).put((byte) 1).putInt(3).flip();
+            channel.write(torn);
+        }
+
+        try (JournalTransactionStore store = new JournalTransactionStore(file)) {
+            assertEquals(2, store.count(START, START.plusDays(10)));
+            assertArrayEquals(new int[]{3}, store.insert(List.of(row(2, "Strom"))));
+        }
+        try (JournalTransactionStore store = new JournalTransactionStore(file)) {
+            assertEquals(List.of("Strom", "Gehalt", "Miete"), descriptions(store.page(START, START.plusDays(10), 0, 10)));
+        }
+    }
+
+    @Test
+    void compactionKeepsTheLiveRows() throws SQLException, IOException {
+        Path file = dir.resolve("compact.journal");
+        List<StoredTransaction> expected = new ArrayList<>();
+        JournalTransactionStore store = new JournalTransactionStore(file);
+        List<StoredTransaction> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(row(i % 60, "Buchung " + i));
+        }
+        store.insert(rows);
+        for (int id = 1; id <= 2000; id++) {
+            if (id % 3 == 0) {
+                store.delete(id);
+            } else if (id % 3 == 1) {
+                store.update(new StoredTransaction(id, START.plusDays(id % 90), id * 10L, 2, "Geändert " + id));
+            }
+        }
+        store.forEach(null, null, expected::add);
+        store.close();
+        long before = Files.size(file);
+
+        JournalTransactionStore reopened = new JournalTransactionStore(file);
+        reopened.compact();
+        assertEquals(expected, all(reopened));
+        // Writes after the compaction go to the new file
+        reopened.insert(List.of(row(1, "Nach dem Verdichten")));
+        reopened.close();
+        assertTrue(Files.size(file) < before);
+
+        try (JournalTransactionStore replayed = new JournalTransactionStore(file)) {
+            List<StoredTransaction> replayedRows = all(replayed);
+            assertEquals(expected.size() + 1, replayedRows.size());
+            assertTrue(replayedRows.containsAll(expected));
+        }
+    }
+
+    @Test
+    void keysetPagesMatchTheOffsetPages() throws SQLException {
+        try (JournalTransactionStore store = new JournalTransactionStore(dir.resolve("pages.journal"))) {
+            Random random = new Random(1);
+            List<StoredTransaction> rows = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                rows.add(row(random.nextInt(100), "Buchung " + i));
+            }
+            store.insert(rows);
+
+            LocalDate from = START.plusDays(10);
+            LocalDate to = START.plusDays(80);
+            List<StoredTransaction> expected = new ArrayList<>(all(store).stream()
+                    .filter(row -> !row.date().isBefore(from) && !row.date().isAfter(to))
+                    .sorted(Comparator.comparing(StoredTransaction::date).thenComparing(StoredTransaction::id).reversed())
+                    .toList());
+
+            List<StoredTransaction> keyset = new ArrayList<>();
+            List<StoredTransaction> page = store.page(from, to, (LocalDate) null, 0, 37);
+            while (!page.isEmpty()) {
+                assertEquals(store.page(from, to, keyset.size(), 37), page);
+                keyset.addAll(page);
+                StoredTransaction last = page.get(page.size() - 1);
+                page = store.page(from, to, last.date(), last.id(), 37);
+            }
+            assertEquals(expected, keyset);
+            assertEquals(expected.size(), store.count(from, to));
+        }
+    }
+
+    private static StoredTransaction row(int day, String description) {
+        return new StoredTransaction(0, START.plusDays(day), 1000 + day, day % 2 + 1, description);
+    }
+
+    private static List<StoredTransaction> all(TransactionStore store) throws SQLException {
+        List<StoredTransaction> rows = new ArrayList<>();
+        store.forEach(null, null, rows::add);
+        return rows;
+    }
+
+    private static List<String> descriptions(List<StoredTransaction> rows) {
+        return rows.stream().map(StoredTransaction::description).toList();
+    }
+}
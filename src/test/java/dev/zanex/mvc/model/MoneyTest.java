@@ -0,0 +1,37 @@
+package dev.zanex.mvc.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+    @Test
+    void parsesGermanAndEnglishFormats() {
+        assertEquals(-123456, Money.parse("-1.234,56 €", true).cents());
+        assertEquals(123456, Money.parse("1,234.56", false).cents());
+        assertEquals(500, Money.parse("5", true).cents());
+        assertEquals(510, Money.parse("5,1", true).cents());
+    }
+
+    @Test
+    void acceptsTheLargestColumnValue() {
+        assertEquals(Money.MAX_CENTS, Money.parse("99.999.999,99", true).cents());
+        assertEquals(-Money.MAX_CENTS, Money.parse("-99999999.99", false).cents());
+        assertEquals(9_999_999_900L, Money.parse("99999999", false).cents());
+    }
+
+    @Test
+    void rejectsAmountsAboveTheColumnAfterAddingTheCents() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("100000000", false));
+        assertThrows(NumberFormatException.class, () -> Money.parse("9999999999", false));
+        assertThrows(NumberFormatException.class, () -> Money.parse("-100000000,00", true));
+    }
+
+    @Test
+    void rejectsMalformedAmounts() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("", true));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1,234", true));
+        assertThrows(NumberFormatException.class, () -> Money.parse("12a", true));
+    }
+}
@@ -0,0 +1,118 @@
+package dev.zanex.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCacheTest {
+    private final List<FakeStatement> prepared = new ArrayList<>();
+    private final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().equals("prepareStatement")) {
+                    FakeStatement statement = new FakeStatement();
+                    prepared.add(statement);
+                    return statement.proxy;
+                }
+                return null;
+            });
+    private final StatementCache.Stats stats = new StatementCache.Stats();
+    private final StatementCache cache = new StatementCache(connection, 10, stats);
+
+    @Test
+    void reusesTheStatementOfTheSameSqlOnceItIsHandedBack() throws Exception {
+        PreparedStatement statement = cache.prepare(connection, "SELECT 1", Statement.NO_GENERATED_KEYS);
+        statement.close();
+        PreparedStatement reused = cache.prepare(connection, "SELECT 1", Statement.NO_GENERATED_KEYS);
+
+        assertSame(statement, reused);
+        assertEquals(1, prepared.size());
+        assertFalse(prepared.get(0).closed);
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void closesTheLeastRecentlyUsedStatementBeyondTheCapacity() throws Exception {
+        StatementCache small = new StatementCache(connection, 2, stats);
+        for (String sql : List.of("SELECT 1", "SELECT 2", "SELECT 1", "SELECT 3")) {
+            small.prepare(connection, sql, Statement.NO_GENERATED_KEYS).close();
+        }
+
+        assertEquals(3, prepared.size());
+        assertFalse(prepared.get(0).closed);
+        assertTrue(prepared.get(1).closed);
+        assertEquals(2, small.size());
+        assertEquals(1, stats.getEvictions());
+    }
+
+    @Test
+    void resetsFetchSizeTimeoutAndMaxRowsWhenAStatementIsHandedBack() throws Exception {
+        PreparedStatement statement = cache.prepare(connection, "SELECT 1", Statement.NO_GENERATED_KEYS);
+        statement.setFetchSize(1000);
+        statement.setQueryTimeout(30);
+        statement.setMaxRows(5);
+        statement.close();
+
+        PreparedStatement reused = cache.prepare(connection, "SELECT 1", Statement.NO_GENERATED_KEYS);
+        assertEquals(1, prepared.size());
+        assertEquals(0, reused.getFetchSize());
+        assertEquals(0, reused.getQueryTimeout());
+        assertEquals(0, reused.getMaxRows());
+    }
+
+    @Test
+    void doesNotReuseAStatementWithSettingsThatAreNotReset() throws Exception {
+        PreparedStatement statement = cache.prepare(connection, "SELECT 1", Statement.NO_GENERATED_KEYS);
+        statement.setMaxFieldSize(10);
+        statement.close();
+
+        cache.prepare(connection, "SELECT 1", Statement.NO_GENERATED_KEYS);
+        assertEquals(2, prepared.size());
+        assertTrue(prepared.get(0).closed);
+    }
+
+    @Test
+    void closesCopiesOfStatementsInUseOnReleaseAll() throws Exception {
+        PreparedStatement first = cache.prepare(connection, "SELECT 1", Statement.NO_GENERATED_KEYS);
+        PreparedStatement copy = cache.prepare(connection, "SELECT 1", Statement.NO_GENERATED_KEYS);
+        assertNotSame(first, copy);
+        assertSame(connection, copy.getConnection());
+
+        cache.releaseAll();
+
+        assertFalse(prepared.get(0).closed);
+        assertTrue(prepared.get(1).closed);
+        assertEquals(1, cache.size());
+    }
+
+    // Keeps the values of the settings, every other call does nothing
+    private class FakeStatement {
+        private final Map<String, Object> settings = new HashMap<>();
+        private boolean closed;
+        private final PreparedStatement proxy = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("close")) {
+                        closed = true;
+                    } else if (name.startsWith("set") && args != null && args.length == 1) {
+                        settings.put(name.substring(3), args[0]);
+                    } else if (name.startsWith("get") && method.getReturnType() == int.class) {
+                        return settings.getOrDefault(name.substring(3), 0);
+                    }
+                    return null;
+                });
+    }
+}